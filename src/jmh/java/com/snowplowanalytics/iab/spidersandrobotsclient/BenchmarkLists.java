@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.test.SyntheticCorpus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The IAB files the benchmarks load: those of the directory in the {@code iab.lists.dir} system property,
+ * named as in an IAB release, or else a synthetic corpus of the same size generated from the seed in the
+ * {@code iab.lists.seed} system property.
+ */
+public final class BenchmarkLists {
+
+    private static final String LISTS_DIR_PROPERTY = "iab.lists.dir";
+
+    private static final String SEED_PROPERTY = "iab.lists.seed";
+
+    private static SyntheticCorpus corpus;
+
+    private static File listsDir;
+
+    private BenchmarkLists() {
+
+    }
+
+    public static synchronized SyntheticCorpus corpus() {
+        if (corpus == null) {
+            corpus = SyntheticCorpus.generate(Long.getLong(SEED_PROPERTY, 1));
+        }
+        return corpus;
+    }
+
+    public static File ipFile() throws IOException {
+        return new File(listsDir(), SyntheticCorpus.IP_FILE_NAME);
+    }
+
+    public static File excludeUserAgentFile() throws IOException {
+        return new File(listsDir(), SyntheticCorpus.EXCLUDE_FILE_NAME);
+    }
+
+    public static File includeUserAgentFile() throws IOException {
+        return new File(listsDir(), SyntheticCorpus.INCLUDE_FILE_NAME);
+    }
+
+    /**
+     * @return a temporary copy of the list with the records appended, so that a benchmark can rely on a
+     * match whatever lists it runs against
+     */
+    public static File withRecords(File list, String... records) throws IOException {
+        File result = File.createTempFile(list.getName(), ".txt");
+        result.deleteOnExit();
+        Files.copy(list.toPath(), result.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        String appended = "\n" + String.join("\n", records) + "\n";
+        Files.write(result.toPath(), appended.getBytes(StandardCharsets.ISO_8859_1), StandardOpenOption.APPEND);
+        return result;
+    }
+
+    private static synchronized File listsDir() throws IOException {
+        if (listsDir == null) {
+            String releaseDir = System.getProperty(LISTS_DIR_PROPERTY);
+            if (releaseDir != null) {
+                listsDir = new File(releaseDir);
+            } else {
+                listsDir = Files.createTempDirectory("iab-synthetic").toFile();
+                corpus().writeTo(listsDir);
+            }
+        }
+        return listsDir;
+    }
+
+}
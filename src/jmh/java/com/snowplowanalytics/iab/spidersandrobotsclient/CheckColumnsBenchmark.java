@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.MatchingEngine;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.ParallelRanges;
+import com.snowplowanalytics.iab.spidersandrobotsclient.test.TestResources;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link IabClient#checkColumns(CharSequence[], IpAddressColumns, long[], int[])} over a batch of synthetic
+ * traffic with the user agents as strings, against
+ * {@link IabClient#checkColumns(UserAgentColumns, IpAddressColumns, long[], int[])} with the same user agents
+ * as ISO-8859-1 bytes. The batch is small enough to be checked by the calling thread alone, and the time is
+ * per row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CheckColumnsBenchmark {
+
+    /**
+     * The largest batch run on the calling thread.
+     */
+    private static final int ROWS = ParallelRanges.LEAF_SIZE;
+
+    @Param({"AUTOMATON", "VECTOR"})
+    public MatchingEngine engine;
+
+    private IabClient client;
+
+    private CharSequence[] userAgents;
+
+    private UserAgentColumns latin1UserAgents;
+
+    private long[] accurateAt;
+
+    private int[] codes;
+
+    @Setup
+    public void setUp() throws IOException {
+        client = new IabClient(
+                BenchmarkLists.ipFile(),
+                BenchmarkLists.excludeUserAgentFile(),
+                BenchmarkLists.includeUserAgentFile(),
+                Collections.emptyList(),
+                Collections.emptyList(),
+                IabClientConfig.builder().matchingEngine(engine).build()
+        );
+
+        String[] traffic = new String[ROWS];
+        BenchmarkLists.corpus().traffic(1).fill(traffic, new InetAddress[ROWS]);
+        userAgents = traffic;
+        latin1UserAgents = TestResources.latin1Columns(userAgents);
+        accurateAt = new long[ROWS];
+        Arrays.fill(accurateAt, System.currentTimeMillis());
+        codes = new int[ROWS];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int[] strings() {
+        client.checkColumns(userAgents, null, accurateAt, codes);
+        return codes;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int[] latin1Bytes() {
+        client.checkColumns(latin1UserAgents, null, accurateAt, codes);
+        return codes;
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creating an {@link IabClient} from the IAB files, which parses and compiles every list, and from a
+ * snapshot of the compiled lists.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@Threads(1)
+@State(Scope.Benchmark)
+public class ClientConstructionBenchmark {
+
+    private File ipFile;
+
+    private File excludeUserAgentFile;
+
+    private File includeUserAgentFile;
+
+    private File snapshotFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        ipFile = BenchmarkLists.ipFile();
+        excludeUserAgentFile = BenchmarkLists.excludeUserAgentFile();
+        includeUserAgentFile = BenchmarkLists.includeUserAgentFile();
+        snapshotFile = File.createTempFile("iab", ".snapshot");
+        new IabClient(ipFile, excludeUserAgentFile, includeUserAgentFile).exportSnapshot(snapshotFile);
+    }
+
+    @TearDown
+    public void tearDown() {
+        snapshotFile.delete();
+    }
+
+    @Benchmark
+    public IabClient fromFiles() throws IOException {
+        return new IabClient(ipFile, excludeUserAgentFile, includeUserAgentFile);
+    }
+
+    @Benchmark
+    public IabClient fromSnapshot() throws IOException {
+        return IabClient.fromSnapshot(snapshotFile);
+    }
+
+}
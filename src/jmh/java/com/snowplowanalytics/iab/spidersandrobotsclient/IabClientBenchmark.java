@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link IabClient#checkAt(String, InetAddress, long)} along each of its paths and over synthetic traffic,
+ * run by 1, 4 and as many threads as there are processors sharing one client.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public abstract class IabClientBenchmark {
+
+    private static final String BROWSER_USER_AGENT =
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) "
+                    + "Chrome/120.0.0.0 Safari/537.36";
+
+    private static final String EXCLUDED_USER_AGENT = "Mozilla/5.0 (compatible; BenchmarkExcludedBot/1.0)";
+
+    private static final String CUSTOM_EXCLUDED_USER_AGENT = "Mozilla/5.0 (compatible; CustomBenchmarkBot/1.0)";
+
+    private IabClient client;
+
+    private InetAddress browserIpAddress;
+
+    private InetAddress excludedIpAddress;
+
+    private long accurateAt;
+
+    @Setup
+    public void setUp() throws IOException {
+        client = new IabClient(
+                BenchmarkLists.withRecords(BenchmarkLists.ipFile(), "198.51.100.0/24"),
+                BenchmarkLists.withRecords(BenchmarkLists.excludeUserAgentFile(), "BenchmarkExcludedBot|1||0|2|0"),
+                BenchmarkLists.includeUserAgentFile(),
+                Collections.singletonList("CustomBenchmarkBot"),
+                Collections.emptyList()
+        );
+        browserIpAddress = InetAddress.getByName("203.0.113.7");
+        excludedIpAddress = InetAddress.getByName("198.51.100.7");
+        accurateAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Checks the next event of the synthetic traffic, whose user agents and IP addresses repeat with a
+     * Zipf distribution.
+     */
+    @Benchmark
+    public IabResponse traffic(TrafficCursor cursor) {
+        int index = cursor.next();
+        return client.checkAt(cursor.userAgents[index], cursor.ipAddresses[index], accurateAt);
+    }
+
+    @Benchmark
+    public IabResponse browser() {
+        return client.checkAt(BROWSER_USER_AGENT, browserIpAddress, accurateAt);
+    }
+
+    @Benchmark
+    public IabResponse excludedUserAgent() {
+        return client.checkAt(EXCLUDED_USER_AGENT, browserIpAddress, accurateAt);
+    }
+
+    @Benchmark
+    public IabResponse excludedIpAddress() {
+        return client.checkAt(BROWSER_USER_AGENT, excludedIpAddress, accurateAt);
+    }
+
+    @Benchmark
+    public IabResponse customExcludedUserAgent() {
+        return client.checkAt(CUSTOM_EXCLUDED_USER_AGENT, browserIpAddress, accurateAt);
+    }
+
+    @State(Scope.Thread)
+    public static class TrafficCursor {
+
+        private static final int EVENTS = 1 << 16;
+
+        private static final AtomicLong SEEDS = new AtomicLong();
+
+        private final String[] userAgents = new String[EVENTS];
+
+        private final InetAddress[] ipAddresses = new InetAddress[EVENTS];
+
+        private int index;
+
+        @Setup
+        public void setUp() {
+            BenchmarkLists.corpus().traffic(SEEDS.incrementAndGet()).fill(userAgents, ipAddresses);
+        }
+
+        private int next() {
+            index = (index + 1) & (EVENTS - 1);
+            return index;
+        }
+
+    }
+
+    @State(Scope.Benchmark)
+    @Threads(1)
+    public static class OneThread extends IabClientBenchmark {
+
+    }
+
+    @State(Scope.Benchmark)
+    @Threads(4)
+    public static class FourThreads extends IabClientBenchmark {
+
+    }
+
+    @State(Scope.Benchmark)
+    @Threads(Threads.MAX)
+    public static class AllProcessors extends IabClientBenchmark {
+
+    }
+
+}
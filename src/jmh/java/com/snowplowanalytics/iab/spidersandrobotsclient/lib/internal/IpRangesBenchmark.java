@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.BenchmarkLists;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link IpRanges#belong(InetAddress)} for IPv4 and IPv6 addresses in and out of the ranges. Two
+ * documentation ranges are added to the list so the hits do not depend on the release benchmarked.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public abstract class IpRangesBenchmark {
+
+    private IpRanges ipRanges;
+
+    private InetAddress ipv4Hit;
+
+    private InetAddress ipv4Miss;
+
+    private InetAddress ipv6Hit;
+
+    private InetAddress ipv6Miss;
+
+    @Setup
+    public void setUp() throws IOException {
+        File ipFile = BenchmarkLists.withRecords(BenchmarkLists.ipFile(), "198.51.100.0/24", "2001:db8::/32");
+        try (InputStream stream = new FileInputStream(ipFile)) {
+            ipRanges = new IpRanges(stream);
+        }
+        ipv4Hit = InetAddress.getByName("198.51.100.7");
+        ipv4Miss = InetAddress.getByName("203.0.113.7");
+        ipv6Hit = InetAddress.getByName("2001:db8:85a3::8a2e:370:7334");
+        ipv6Miss = InetAddress.getByName("2001:db9:85a3::8a2e:370:7334");
+    }
+
+    @Benchmark
+    public boolean ipv4Hit() {
+        return ipRanges.belong(ipv4Hit);
+    }
+
+    @Benchmark
+    public boolean ipv4Miss() {
+        return ipRanges.belong(ipv4Miss);
+    }
+
+    @Benchmark
+    public boolean ipv6Hit() {
+        return ipRanges.belong(ipv6Hit);
+    }
+
+    @Benchmark
+    public boolean ipv6Miss() {
+        return ipRanges.belong(ipv6Miss);
+    }
+
+    @State(Scope.Benchmark)
+    @Threads(1)
+    public static class OneThread extends IpRangesBenchmark {
+
+    }
+
+    @State(Scope.Benchmark)
+    @Threads(4)
+    public static class FourThreads extends IpRangesBenchmark {
+
+    }
+
+    @State(Scope.Benchmark)
+    @Threads(Threads.MAX)
+    public static class AllProcessors extends IpRangesBenchmark {
+
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.BenchmarkLists;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.MatchingEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single scan of a browser user agent cut or repeated to every length, for the patterns matched anywhere
+ * of the first records of the exclude list, with the Vector API {@link PatternSearch}, the scalar one and a
+ * {@link PatternAutomaton}. The lengths and numbers of patterns for which {@code VECTOR} beats
+ * {@code AUTOMATON} are where the engine pays off, and those for which it beats {@code SCALAR} where the
+ * Vector API does; {@code VECTOR} falls back to {@code SCALAR} unless the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}, as the build does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class PatternSearchBenchmark {
+
+    private static final String BROWSER_USER_AGENT =
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) "
+                    + "Chrome/120.0.0.0 Safari/537.36 ";
+
+    @Param({"VECTOR", "SCALAR", "AUTOMATON"})
+    public String search;
+
+    @Param({"8", "16", "32", "64", "128", "256", "512"})
+    public int userAgentLength;
+
+    @Param({"16", "128", "1024"})
+    public int patternCount;
+
+    private PatternSearch patternSearch;
+
+    private PatternAutomaton automaton;
+
+    private String userAgent;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<String> patterns = new ArrayList<>();
+        try (InputStream stream = new FileInputStream(BenchmarkLists.excludeUserAgentFile())) {
+            for (ExcludeRecord record : new ExcludeUserAgents(stream, MatchingEngine.LINEAR_SCAN).getRecords()) {
+                if (!record.isStartOfString() && patterns.size() < patternCount
+                        && !patterns.contains(record.getUserAgentPattern())) {
+                    patterns.add(record.getUserAgentPattern());
+                }
+            }
+        }
+
+        switch (search) {
+            case "VECTOR":
+                patternSearch = PatternSearch.create(patterns, false);
+                break;
+            case "SCALAR":
+                patternSearch = new PatternSearch(patterns, false);
+                break;
+            default:
+                automaton = PatternAutomaton.compile(patterns);
+        }
+
+        StringBuilder text = new StringBuilder(userAgentLength);
+        while (text.length() < userAgentLength) {
+            text.append(BROWSER_USER_AGENT);
+        }
+        userAgent = text.substring(0, userAgentLength);
+    }
+
+    @Benchmark
+    public PatternAutomaton.Matches scan() {
+        return automaton == null ? patternSearch.scan(userAgent) : automaton.scan(userAgent);
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.BenchmarkLists;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.MatchingEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ExcludeUserAgents#checkLowerCase(String)} and {@link IncludeUserAgents#presentLowerCase(String, Date)}
+ * with each matching engine, for a user agent of a browser and one of an excluded robot.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public abstract class UserAgentsBenchmark {
+
+    private static final String BROWSER_USER_AGENT =
+            "mozilla/5.0 (windows nt 10.0; win64; x64) applewebkit/537.36 (khtml, like gecko) "
+                    + "chrome/120.0.0.0 safari/537.36";
+
+    private static final String ROBOT_USER_AGENT = "mozilla/5.0 (compatible; benchmarkexcludedbot/1.0)";
+
+    @Param({"AUTOMATON", "VECTOR", "LINEAR_SCAN"})
+    public MatchingEngine engine;
+
+    @Param({"false", "true"})
+    public boolean excludePrefilter;
+
+    @Param({"false", "true"})
+    public boolean adaptiveIncludeOrder;
+
+    private ExcludeUserAgents excludeUserAgents;
+
+    private IncludeUserAgents includeUserAgents;
+
+    private Date accurateAt;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream stream = new FileInputStream(BenchmarkLists.withRecords(
+                BenchmarkLists.excludeUserAgentFile(), "BenchmarkExcludedBot|1||0|2|0"))) {
+            excludeUserAgents = new ExcludeUserAgents(stream, engine, excludePrefilter);
+        }
+        try (InputStream stream = new FileInputStream(BenchmarkLists.includeUserAgentFile())) {
+            includeUserAgents = new IncludeUserAgents(stream, engine, adaptiveIncludeOrder);
+        }
+        accurateAt = new Date();
+    }
+
+    @Benchmark
+    public ExcludeCheckResult excludeBrowser() {
+        return excludeUserAgents.checkLowerCase(BROWSER_USER_AGENT);
+    }
+
+    @Benchmark
+    public ExcludeCheckResult excludeRobot() {
+        return excludeUserAgents.checkLowerCase(ROBOT_USER_AGENT);
+    }
+
+    @Benchmark
+    public boolean includeBrowser() {
+        return includeUserAgents.presentLowerCase(BROWSER_USER_AGENT, accurateAt);
+    }
+
+    @Benchmark
+    public boolean includeRobot() {
+        return includeUserAgents.presentLowerCase(ROBOT_USER_AGENT, accurateAt);
+    }
+
+    @State(Scope.Benchmark)
+    @Threads(1)
+    public static class OneThread extends UserAgentsBenchmark {
+
+    }
+
+    @State(Scope.Benchmark)
+    @Threads(4)
+    public static class FourThreads extends UserAgentsBenchmark {
+
+    }
+
+    @State(Scope.Benchmark)
+    @Threads(Threads.MAX)
+    public static class AllProcessors extends UserAgentsBenchmark {
+
+    }
+
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.loadtest;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.BenchmarkLists;
+import com.snowplowanalytics.iab.spidersandrobotsclient.IabClient;
+import com.snowplowanalytics.iab.spidersandrobotsclient.IabClientConfig;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.LatencyDistribution;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.MatchingEngine;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.VerdictCacheStats;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.LatencyHistogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays events against one {@link IabClient} shared by a growing number of threads, and reports for each
+ * number the sustained throughput, the latency percentiles, the bytes allocated per check, the garbage
+ * collections and how the throughput per thread holds up against the first run.
+ * <p>
+ * Unlike the JMH benchmarks, it runs for as long as a node would between two list reloads, over traffic as
+ * varied as the node would see, so that the warm-up, the contention on the shared lists and the churn of the
+ * verdict cache all show in the numbers. Every setting is a system property, see {@code ./gradlew loadTest}:
+ * <ul>
+ * <li>{@code iab.loadtest.log}: a log of events to replay, see {@link ReplayEvents#fromLog(File, long)};
+ * without it, {@code iab.loadtest.events} events of the synthetic traffic of {@link BenchmarkLists}</li>
+ * <li>{@code iab.loadtest.threads}: the comma separated numbers of threads to run with, one run each</li>
+ * <li>{@code iab.loadtest.virtual}: whether the threads are virtual threads</li>
+ * <li>{@code iab.loadtest.warmupSeconds} and {@code iab.loadtest.seconds}: how long each run warms up,
+ * then measures</li>
+ * <li>{@code iab.loadtest.rate}: checks per second to offer, spread over the threads; latencies then run
+ * from when each check was due, so that they include the time it waited behind slower ones. Without it,
+ * every thread checks as fast as it can</li>
+ * <li>{@code iab.loadtest.verdictCacheMb} and {@code iab.loadtest.engine}: the configuration of the
+ * client</li>
+ * <li>{@code iab.loadtest.csv}: a file to also write the results to</li>
+ * </ul>
+ */
+public final class LoadTest {
+
+    private static final String PREFIX = "iab.loadtest.";
+
+    private static final long PARK_MARGIN_NANOS = 100_000;
+
+    private final IabClient client;
+
+    private final ReplayEvents events;
+
+    private final boolean virtualThreads;
+
+    private final long warmupNanos;
+
+    private final long measurementNanos;
+
+    private final double rate;
+
+    LoadTest(IabClient client, ReplayEvents events, boolean virtualThreads, long warmupNanos,
+             long measurementNanos, double rate) {
+        this.client = client;
+        this.events = events;
+        this.virtualThreads = virtualThreads;
+        this.warmupNanos = warmupNanos;
+        this.measurementNanos = measurementNanos;
+        this.rate = rate;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        IabClientConfig.Builder config = IabClientConfig.builder()
+                .matchingEngine(MatchingEngine.valueOf(System.getProperty(PREFIX + "engine",
+                        MatchingEngine.DEFAULT.name())));
+        long verdictCacheMb = Long.getLong(PREFIX + "verdictCacheMb", 0);
+        if (verdictCacheMb > 0) {
+            config.verdictCache(verdictCacheMb << 20);
+        }
+        IabClient client = new IabClient(BenchmarkLists.ipFile(), BenchmarkLists.excludeUserAgentFile(),
+                BenchmarkLists.includeUserAgentFile(), Collections.emptyList(), Collections.emptyList(),
+                config.build());
+
+        String log = System.getProperty(PREFIX + "log");
+        ReplayEvents events = log != null ? ReplayEvents.fromLog(new File(log), System.currentTimeMillis())
+                : ReplayEvents.synthetic(BenchmarkLists.corpus(), 1, Integer.getInteger(PREFIX + "events", 1 << 20),
+                System.currentTimeMillis());
+        if (events.size() == 0) {
+            throw new IllegalArgumentException("No event to replay in " + log);
+        }
+        System.out.printf("Replaying %,d events%s%n", events.size(), log == null ? " of synthetic traffic"
+                : " of " + log + ", " + events.getSkippedLines() + " lines skipped");
+
+        LoadTest loadTest = new LoadTest(client, events, Boolean.getBoolean(PREFIX + "virtual"),
+                TimeUnit.SECONDS.toNanos(Long.getLong(PREFIX + "warmupSeconds", 10)),
+                TimeUnit.SECONDS.toNanos(Long.getLong(PREFIX + "seconds", 30)),
+                Double.parseDouble(System.getProperty(PREFIX + "rate", "0")));
+        List<LoadTestResult> results = new ArrayList<>();
+        for (int threads : threadCounts(System.getProperty(PREFIX + "threads"))) {
+            LoadTestResult result = loadTest.run(threads);
+            if (!results.isEmpty()) {
+                result.scaleAgainst(results.get(0));
+            }
+            results.add(result);
+            System.out.println(result);
+        }
+
+        String csv = System.getProperty(PREFIX + "csv");
+        if (csv != null) {
+            List<String> lines = new ArrayList<>();
+            lines.add(LoadTestResult.CSV_HEADER);
+            for (LoadTestResult result : results) {
+                lines.add(result.toCsv());
+            }
+            File file = new File(csv);
+            if (file.getParentFile() != null) {
+                Files.createDirectories(file.getParentFile().toPath());
+            }
+            Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Warms up with the given number of threads, then measures with as many.
+     */
+    LoadTestResult run(int threads) throws InterruptedException {
+        replay(threads, warmupNanos);
+
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount -= Math.max(collector.getCollectionCount(), 0);
+            gcMillis -= Math.max(collector.getCollectionTime(), 0);
+        }
+        VerdictCacheStats cacheBefore = client.getVerdictCacheStats();
+
+        Worker[] workers = replay(threads, measurementNanos);
+
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(collector.getCollectionCount(), 0);
+            gcMillis += Math.max(collector.getCollectionTime(), 0);
+        }
+        VerdictCacheStats cacheAfter = client.getVerdictCacheStats();
+
+        long checks = 0;
+        long allocatedBytes = 0;
+        long started = Long.MAX_VALUE;
+        long ended = Long.MIN_VALUE;
+        long[] bucketCounts = new long[LatencyHistogram.BUCKET_COUNT];
+        long sumNanos = 0;
+        long maxNanos = 0;
+        for (Worker worker : workers) {
+            checks += worker.checks;
+            allocatedBytes = allocatedBytes < 0 || worker.allocatedBytes < 0 ? -1
+                    : allocatedBytes + worker.allocatedBytes;
+            started = Math.min(started, worker.startNanos);
+            ended = Math.max(ended, worker.endNanos);
+            long[] counts = worker.latencies.bucketCounts();
+            for (int i = 0; i < counts.length; i++) {
+                bucketCounts[i] += counts[i];
+            }
+            sumNanos += worker.latencies.sum();
+            maxNanos = Math.max(maxNanos, worker.latencies.max());
+        }
+        return new LoadTestResult(threads, checks, ended - started,
+                new LatencyDistribution(bucketCounts, sumNanos, maxNanos), allocatedBytes, gcCount, gcMillis,
+                cacheAfter.getHits() - cacheBefore.getHits(), cacheAfter.getMisses() - cacheBefore.getMisses());
+    }
+
+    private Worker[] replay(int threads, long durationNanos) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Worker[] workers = new Worker[threads];
+        Thread[] runners = new Thread[threads];
+        long intervalNanos = rate > 0 ? (long) (1e9 * threads / rate) : 0;
+        for (int i = 0; i < threads; i++) {
+            // the threads start at different events, so that they don't all miss the same cache entries at once
+            workers[i] = new Worker((int) ((long) events.size() * i / threads), durationNanos, intervalNanos,
+                    ready, start);
+            runners[i] = newThread(workers[i], "iab-load-test-" + i);
+            runners[i].start();
+        }
+        ready.await();
+        start.countDown();
+        for (Thread runner : runners) {
+            runner.join();
+        }
+        for (Worker worker : workers) {
+            if (worker.failure != null) {
+                throw new IllegalStateException("A check failed", worker.failure);
+            }
+        }
+        return workers;
+    }
+
+    private Thread newThread(Runnable task, String name) {
+        return virtualThreads ? Thread.ofVirtual().name(name).unstarted(task) : new Thread(task, name);
+    }
+
+    private static List<Integer> threadCounts(String property) {
+        List<Integer> result = new ArrayList<>();
+        if (property == null) {
+            int processors = Runtime.getRuntime().availableProcessors();
+            for (int threads = 1; threads < processors; threads *= 2) {
+                result.add(threads);
+            }
+            result.add(processors);
+            return result;
+        }
+        for (String threads : property.split(",")) {
+            result.add(Integer.parseInt(threads.trim()));
+        }
+        return result;
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far, or -1 when the JVM can't tell
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+            if (allocation.isThreadAllocatedMemorySupported() && allocation.isThreadAllocatedMemoryEnabled()) {
+                return allocation.getCurrentThreadAllocatedBytes();
+            }
+        }
+        return -1;
+    }
+
+    private final class Worker implements Runnable {
+
+        private final int firstEvent;
+
+        private final long durationNanos;
+
+        private final long intervalNanos;
+
+        private final CountDownLatch ready;
+
+        private final CountDownLatch start;
+
+        // a histogram per thread, so that recording a latency never contends
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        private long checks;
+
+        private long allocatedBytes;
+
+        private long startNanos;
+
+        private long endNanos;
+
+        private Throwable failure;
+
+        private Worker(int firstEvent, long durationNanos, long intervalNanos, CountDownLatch ready,
+                       CountDownLatch start) {
+            this.firstEvent = firstEvent;
+            this.durationNanos = durationNanos;
+            this.intervalNanos = intervalNanos;
+            this.ready = ready;
+            this.start = start;
+        }
+
+        @Override
+        public void run() {
+            try {
+                ready.countDown();
+                start.await();
+                replay();
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
+
+        private void replay() {
+            int size = events.size();
+            int event = firstEvent;
+            long allocatedBefore = allocatedBytes();
+            startNanos = System.nanoTime();
+            long deadline = startNanos + durationNanos;
+            long now = startNanos;
+            while (now < deadline) {
+                long due;
+                if (intervalNanos == 0) {
+                    due = System.nanoTime();
+                } else {
+                    due = startNanos + checks * intervalNanos;
+                    // parking may oversleep, so it stops short of the due time and spins the rest
+                    if (due - now > 2 * PARK_MARGIN_NANOS) {
+                        LockSupport.parkNanos(due - now - PARK_MARGIN_NANOS);
+                    }
+                    while (System.nanoTime() < due) {
+                        Thread.onSpinWait();
+                    }
+                }
+                client.checkAt(events.userAgent(event), events.ipAddress(event),
+                        events.accurateAtMillis(event));
+                now = System.nanoTime();
+                latencies.record(now - due);
+                checks++;
+                if (++event == size) {
+                    event = 0;
+                }
+            }
+            endNanos = now;
+            long allocatedAfter = allocatedBytes();
+            allocatedBytes = allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore;
+        }
+
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.loadtest;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.LatencyDistribution;
+
+import java.util.Locale;
+
+/**
+ * What a load test measured with one number of threads.
+ */
+public final class LoadTestResult {
+
+    static final String CSV_HEADER = "threads,checks,seconds,checks_per_second,scaling_efficiency,"
+            + "mean_us,p50_us,p90_us,p99_us,p999_us,max_us,bytes_per_check,gc_count,gc_millis,cache_hit_rate";
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final int threads;
+
+    private final long checks;
+
+    private final long elapsedNanos;
+
+    private final LatencyDistribution latencies;
+
+    private final long allocatedBytes;
+
+    private final long gcCount;
+
+    private final long gcMillis;
+
+    private final long cacheHits;
+
+    private final long cacheMisses;
+
+    private double scalingEfficiency = 1;
+
+    /**
+     * @param allocatedBytes allocated by all the threads while checking, or -1 when the JVM can't measure it
+     */
+    LoadTestResult(int threads, long checks, long elapsedNanos, LatencyDistribution latencies, long allocatedBytes,
+                   long gcCount, long gcMillis, long cacheHits, long cacheMisses) {
+        this.threads = threads;
+        this.checks = checks;
+        this.elapsedNanos = elapsedNanos;
+        this.latencies = latencies;
+        this.allocatedBytes = allocatedBytes;
+        this.gcCount = gcCount;
+        this.gcMillis = gcMillis;
+        this.cacheHits = cacheHits;
+        this.cacheMisses = cacheMisses;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getChecks() {
+        return checks;
+    }
+
+    public double getChecksPerSecond() {
+        return elapsedNanos == 0 ? 0 : checks * 1e9 / elapsedNanos;
+    }
+
+    public LatencyDistribution getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * @return bytes allocated per check, or NaN when the JVM can't measure the allocation of the threads
+     */
+    public double getBytesPerCheck() {
+        return allocatedBytes < 0 || checks == 0 ? Double.NaN : (double) allocatedBytes / checks;
+    }
+
+    /**
+     * @return the throughput per thread relative to that of the first run; 1 is perfect scaling
+     */
+    public double getScalingEfficiency() {
+        return scalingEfficiency;
+    }
+
+    /**
+     * @return share of the checks answered by the verdict cache, or NaN when the cache is disabled
+     */
+    public double getCacheHitRate() {
+        long lookups = cacheHits + cacheMisses;
+        return lookups == 0 ? Double.NaN : (double) cacheHits / lookups;
+    }
+
+    void scaleAgainst(LoadTestResult baseline) {
+        double baselinePerThread = baseline.getChecksPerSecond() / baseline.threads;
+        scalingEfficiency = baselinePerThread == 0 ? 0 : getChecksPerSecond() / threads / baselinePerThread;
+    }
+
+    String toCsv() {
+        StringBuilder line = new StringBuilder()
+                .append(threads).append(',')
+                .append(checks).append(',')
+                .append(format(elapsedNanos / 1e9)).append(',')
+                .append(format(getChecksPerSecond())).append(',')
+                .append(format(scalingEfficiency)).append(',')
+                .append(format(latencies.getMeanNanos() / 1e3));
+        for (double percentile : PERCENTILES) {
+            line.append(',').append(format(latencies.getPercentileNanos(percentile) / 1e3));
+        }
+        return line.append(',').append(format(latencies.getMaxNanos() / 1e3))
+                .append(',').append(format(getBytesPerCheck()))
+                .append(',').append(gcCount)
+                .append(',').append(gcMillis)
+                .append(',').append(format(getCacheHitRate()))
+                .toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%4d threads: %,12.0f checks/s, efficiency %5.2f, latency us p50 %8.2f p90 %8.2f p99 %8.2f "
+                        + "p99.9 %8.2f max %10.2f, %8.1f bytes/check, %4d GCs in %6d ms, cache hits %s",
+                threads, getChecksPerSecond(), scalingEfficiency,
+                latencies.getPercentileNanos(50) / 1e3, latencies.getPercentileNanos(90) / 1e3,
+                latencies.getPercentileNanos(99) / 1e3, latencies.getPercentileNanos(99.9) / 1e3,
+                latencies.getMaxNanos() / 1e3, getBytesPerCheck(), gcCount, gcMillis,
+                Double.isNaN(getCacheHitRate()) ? "n/a" : format(100 * getCacheHitRate()) + '%');
+    }
+
+    private static String format(double value) {
+        return Double.isNaN(value) ? "" : String.format(Locale.ROOT, "%.3f", value);
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.loadtest;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.test.SyntheticCorpus;
+import inet.ipaddr.IPAddress;
+import inet.ipaddr.IPAddressString;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The events a load test replays, parsed up front so that replaying them costs nothing but the checks.
+ */
+public final class ReplayEvents {
+
+    private final String[] userAgents;
+
+    private final InetAddress[] ipAddresses;
+
+    private final long[] accurateAtMillis;
+
+    private final int skippedLines;
+
+    private ReplayEvents(String[] userAgents, InetAddress[] ipAddresses, long[] accurateAtMillis, int skippedLines) {
+        this.userAgents = userAgents;
+        this.ipAddresses = ipAddresses;
+        this.accurateAtMillis = accurateAtMillis;
+        this.skippedLines = skippedLines;
+    }
+
+    /**
+     * Reads a log of one event per line: the user agent, the IP address and optionally the time of the event,
+     * separated by tabs. The time is either milliseconds since the epoch, an ISO-8601 instant or a UTC date
+     * time such as {@code 2017-03-23 12:00:00.000}; events without one are checked at the given time. Blank
+     * lines, lines starting with # and lines which don't parse are skipped.
+     */
+    public static ReplayEvents fromLog(File log, long defaultAccurateAtMillis) throws IOException {
+        List<String> userAgents = new ArrayList<>();
+        List<InetAddress> ipAddresses = new ArrayList<>();
+        List<Long> accurateAt = new ArrayList<>();
+        int skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(log.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t", -1);
+                InetAddress ipAddress = fields.length < 2 ? null : parseIpAddress(fields[1].trim());
+                Long millis = fields.length < 3 ? Long.valueOf(defaultAccurateAtMillis)
+                        : parseMillis(fields[2].trim(), defaultAccurateAtMillis);
+                if (ipAddress == null || millis == null) {
+                    skipped++;
+                    continue;
+                }
+                userAgents.add(fields[0]);
+                ipAddresses.add(ipAddress);
+                accurateAt.add(millis);
+            }
+        }
+        long[] millis = new long[accurateAt.size()];
+        for (int i = 0; i < millis.length; i++) {
+            millis[i] = accurateAt.get(i);
+        }
+        return new ReplayEvents(userAgents.toArray(new String[0]), ipAddresses.toArray(new InetAddress[0]),
+                millis, skipped);
+    }
+
+    /**
+     * @return the given number of events of the synthetic traffic of the corpus, all at the given time
+     */
+    public static ReplayEvents synthetic(SyntheticCorpus corpus, long seed, int count, long accurateAtMillis) {
+        String[] userAgents = new String[count];
+        InetAddress[] ipAddresses = new InetAddress[count];
+        corpus.traffic(seed).fill(userAgents, ipAddresses);
+        long[] millis = new long[count];
+        Arrays.fill(millis, accurateAtMillis);
+        return new ReplayEvents(userAgents, ipAddresses, millis, 0);
+    }
+
+    public int size() {
+        return userAgents.length;
+    }
+
+    public String userAgent(int index) {
+        return userAgents[index];
+    }
+
+    public InetAddress ipAddress(int index) {
+        return ipAddresses[index];
+    }
+
+    public long accurateAtMillis(int index) {
+        return accurateAtMillis[index];
+    }
+
+    /**
+     * @return count of the lines of the log which were not events
+     */
+    public int getSkippedLines() {
+        return skippedLines;
+    }
+
+    /**
+     * Parses the address without resolving host names, so that a malformed log can't make the load test
+     * wait on DNS.
+     */
+    private static InetAddress parseIpAddress(String text) {
+        IPAddress address = new IPAddressString(text).getAddress();
+        if (address == null) {
+            return null;
+        }
+        try {
+            return InetAddress.getByAddress(address.getBytes());
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    private static Long parseMillis(String text, long defaultMillis) {
+        if (text.isEmpty()) {
+            return defaultMillis;
+        }
+        try {
+            if (text.chars().allMatch(Character::isDigit)) {
+                return Long.parseLong(text);
+            }
+            if (text.endsWith("Z")) {
+                return Instant.parse(text).toEpochMilli();
+            }
+            return LocalDateTime.parse(text.replace(' ', 'T')).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return null;
+        }
+    }
+
+}
@@ -12,44 +12,80 @@
  */
 package com.snowplowanalytics.iab.spidersandrobotsclient;
 
-import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.ExcludeCheckResult;
-import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.ExcludeUserAgents;
-import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.IncludeUserAgents;
-import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.IpRanges;
-import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.DateUtils;
-import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.IabFile;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.CheckReason;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.CheckStage;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.ListsSnapshotInfo;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.MetricsSnapshot;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.OversizeUserAgentStats;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.PrefilterStats;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.RecordHitsReport;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.UserAgentCategory;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.VerdictCacheStats;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.CheckMetrics;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.RecordHitCounters;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.UserAgentGuard;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.VerdictCache;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.jfr.CheckEvent;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.Latin1Text;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.ParallelRanges;
+import jdk.jfr.EventType;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.StringUtils;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.WeakReference;
 import java.net.InetAddress;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
-import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.UserAgentCategory.ACTIVE_SPIDER_OR_ROBOT;
-import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.UserAgentCategory.INACTIVE_SPIDER_OR_ROBOT;
 import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.IabClientErrors.accurateAtIsNullError;
+import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.IabClientErrors.batchColumnLengthsDifferError;
 import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.IabClientErrors.userAgentAndIpAddressBothAreNullError;
 
 /**
  * This class can be reused across lookups.
+ * <p>
+ * User agents are matched case insensitively without being copied, so {@link #checkCode(String, InetAddress, long)}
+ * allocates nothing for an ISO-8859-1 user agent. Looking up an {@link InetAddress} still copies its address
+ * bytes.
+ * <p>
+ * The lists are held in an immutable snapshot, which {@link #reload(File, File, File) reload} replaces in a
+ * single atomic swap: checks never wait for a reload, and each of them, or each batch, runs against either
+ * the old or the new lists, never a mix of both.
  */
 public class IabClient {
 
-    private IpRanges ipRanges;
+    private static final EventType CHECK_EVENT_TYPE = EventType.getEventType(CheckEvent.class);
 
-    private IncludeUserAgents includeUserAgents;
+    private final AtomicReference<ListsSnapshot> snapshot = new AtomicReference<>();
 
-    private ExcludeUserAgents excludeUserAgents;
+    private final AtomicLong lastVersion = new AtomicLong();
 
-    private final List<String> customIncludeUserAgents;
+    private final AtomicReference<VerdictCacheStats> retiredCacheStats =
+            new AtomicReference<>(new VerdictCacheStats(0, 0, 0, 0, 0));
 
-    private final List<String> customExcludeUserAgents;
+    private final IabClientConfig config;
+
+    private final ForkJoinPool batchPool;
+
+    private final CheckMetrics metrics;
+
+    private final UserAgentGuard userAgentGuard;
 
     public IabClient(File ipFile,
                      File excludeUserAgentFile,
@@ -63,13 +99,22 @@ public class IabClient {
                      File includeUserAgentFile,
                      List<String> excludeUserAgents,
                      List<String> includeUserAgents) throws IOException {
-        try (InputStream ip = FileUtils.openInputStream(ipFile);
-             InputStream excludeUserAgent = FileUtils.openInputStream(excludeUserAgentFile);
-             InputStream includeUserAgent = FileUtils.openInputStream(includeUserAgentFile)) {
-            init(ip, excludeUserAgent, includeUserAgent);
-        }
-        this.customExcludeUserAgents = toLowerCaseList(excludeUserAgents);
-        this.customIncludeUserAgents = toLowerCaseList(includeUserAgents);
+        this(ipFile, excludeUserAgentFile, includeUserAgentFile,
+             excludeUserAgents, includeUserAgents, IabClientConfig.defaults());
+    }
+
+    public IabClient(File ipFile,
+                     File excludeUserAgentFile,
+                     File includeUserAgentFile,
+                     List<String> excludeUserAgents,
+                     List<String> includeUserAgents,
+                     IabClientConfig config) throws IOException {
+        this.config = config;
+        this.batchPool = config.getBatchPool();
+        this.metrics = config.isMetricsEnabled() ? new CheckMetrics() : null;
+        this.userAgentGuard = userAgentGuard(config);
+        reload(ipFile, excludeUserAgentFile, includeUserAgentFile, excludeUserAgents, includeUserAgents);
+        MetricsPublication.schedule(this);
     }
 
     IabClient(InputStream ip,
@@ -84,76 +129,578 @@ public class IabClient {
               InputStream includeUserAgent,
               List<String> excludeUserAgents,
               List<String> includeUserAgents) throws IOException {
-        init(ip, excludeUserAgent, includeUserAgent);
-        this.customExcludeUserAgents = toLowerCaseList(excludeUserAgents);
-        this.customIncludeUserAgents = toLowerCaseList(includeUserAgents);
+        this(ip, excludeUserAgent, includeUserAgent,
+             excludeUserAgents, includeUserAgents, IabClientConfig.defaults());
     }
 
-    private void init(InputStream ip,
-                      InputStream excludeUserAgent,
-                      InputStream includeUserAgent) throws IOException {
-        try {
-            ipRanges = new IpRanges(ip);
-            includeUserAgents = new IncludeUserAgents(includeUserAgent);
-            excludeUserAgents = new ExcludeUserAgents(excludeUserAgent);
-        } finally {
-            IOUtils.closeQuietly(ip, excludeUserAgent, includeUserAgent);
-        }
+    IabClient(InputStream ip,
+              InputStream excludeUserAgent,
+              InputStream includeUserAgent,
+              List<String> excludeUserAgents,
+              List<String> includeUserAgents,
+              IabClientConfig config) throws IOException {
+        this.config = config;
+        this.batchPool = config.getBatchPool();
+        this.metrics = config.isMetricsEnabled() ? new CheckMetrics() : null;
+        this.userAgentGuard = userAgentGuard(config);
+        reload(ip, excludeUserAgent, includeUserAgent, excludeUserAgents, includeUserAgents);
+        MetricsPublication.schedule(this);
+    }
+
+    private IabClient(File snapshotFile, IabClientConfig config) throws IOException {
+        this.config = config;
+        this.batchPool = config.getBatchPool();
+        this.metrics = config.isMetricsEnabled() ? new CheckMetrics() : null;
+        this.userAgentGuard = userAgentGuard(config);
+        reloadSnapshot(snapshotFile);
+        MetricsPublication.schedule(this);
+    }
+
+    private static UserAgentGuard userAgentGuard(IabClientConfig config) {
+        return config.getMaxUserAgentLength() > 0 ? new UserAgentGuard(config.getMaxUserAgentLength(),
+                config.getOversizeUserAgentListener(), config.getOversizeUserAgentSampleEvery()) : null;
+    }
+
+    /**
+     * Creates a client from a file written by {@link #exportSnapshot(File)}. The file is memory mapped and
+     * the compiled lists are read as they are, so this is much faster than parsing the IAB files: their
+     * automatons, tries and tables are used in place in the mapping, whose pages every JVM mapping the same
+     * file shares. The file must not be modified in place while the client uses it; {@link #exportSnapshot(File)}
+     * replaces a file atomically, which leaves the mappings of the former one valid.
+     */
+    public static IabClient fromSnapshot(File snapshotFile) throws IOException {
+        return fromSnapshot(snapshotFile, IabClientConfig.defaults());
+    }
+
+    /**
+     * Same as {@link #fromSnapshot(File)} with a configuration. The lists are matched with the
+     * {@link IabClientConfig#getMatchingEngine() configured engine}: when the snapshot was exported with
+     * another one, its user agent lists are compiled again from their records, which saves parsing the IAB
+     * files but not compiling them.
+     *
+     * @throws IOException when the file can't be read, or is of another format version or corrupt
+     */
+    public static IabClient fromSnapshot(File snapshotFile, IabClientConfig config) throws IOException {
+        return new IabClient(snapshotFile, config);
+    }
+
+    /**
+     * Writes the current lists, compiled, to a versioned and checksummed file which
+     * {@link #fromSnapshot(File)} and {@link #reloadSnapshot(File)} can load. The file is replaced
+     * atomically.
+     */
+    public void exportSnapshot(File snapshotFile) throws IOException {
+        snapshot.get().export(snapshotFile);
+    }
+
+    /**
+     * Same as {@link #reload(File, File, File)} for a file written by {@link #exportSnapshot(File)}, custom
+     * lists included. The lists are matched with the configured engine, as for
+     * {@link #fromSnapshot(File, IabClientConfig)}.
+     *
+     * @throws IOException when the file can't be read, or is of another format version or corrupt; the
+     *                     current lists are then kept
+     */
+    public ListsSnapshotInfo reloadSnapshot(File snapshotFile) throws IOException {
+        ListsSnapshot next = ListsSnapshot.map(lastVersion.incrementAndGet(), snapshotFile, config, metrics);
+        publish(next);
+        return next.getInfo();
     }
 
-    private static List<String> toLowerCaseList(List<String> patterns) {
-        if (patterns == null || patterns.isEmpty()) {
-            return Collections.emptyList();
+    /**
+     * Loads new IAB lists, keeping the current custom lists, and swaps them in once they are compiled.
+     * Checks running meanwhile keep using the current lists.
+     *
+     * @return the description of the loaded snapshot
+     * @throws IOException when a file can't be read; the current lists are then kept
+     */
+    public ListsSnapshotInfo reload(File ipFile,
+                                    File excludeUserAgentFile,
+                                    File includeUserAgentFile) throws IOException {
+        ListsSnapshot current = snapshot.get();
+        return reload(ipFile, excludeUserAgentFile, includeUserAgentFile,
+                current.getCustomExcludePatterns(), current.getCustomIncludePatterns());
+    }
+
+    /**
+     * Same as {@link #reload(File, File, File)}, also replacing the custom lists.
+     */
+    public ListsSnapshotInfo reload(File ipFile,
+                                    File excludeUserAgentFile,
+                                    File includeUserAgentFile,
+                                    List<String> excludeUserAgents,
+                                    List<String> includeUserAgents) throws IOException {
+        try (InputStream ip = FileUtils.openInputStream(ipFile);
+             InputStream excludeUserAgent = FileUtils.openInputStream(excludeUserAgentFile);
+             InputStream includeUserAgent = FileUtils.openInputStream(includeUserAgentFile)) {
+            return reload(ip, excludeUserAgent, includeUserAgent, excludeUserAgents, includeUserAgents);
         }
-        List<String> result = new ArrayList<>(patterns.size());
-        for (String pattern : patterns) {
-            if (pattern != null) {
-                result.add(IabFile.toLowerCase(pattern));
+    }
+
+    /**
+     * Same as {@link #reload(File, File, File)}, loading and compiling the lists on a background thread.
+     */
+    public CompletableFuture<ListsSnapshotInfo> reloadAsync(File ipFile,
+                                                            File excludeUserAgentFile,
+                                                            File includeUserAgentFile) {
+        CompletableFuture<ListsSnapshotInfo> result = new CompletableFuture<>();
+        ReloadExecutor.INSTANCE.execute(() -> {
+            try {
+                result.complete(reload(ipFile, excludeUserAgentFile, includeUserAgentFile));
+            } catch (IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    ListsSnapshotInfo reload(InputStream ip,
+                             InputStream excludeUserAgent,
+                             InputStream includeUserAgent,
+                             List<String> excludeUserAgents,
+                             List<String> includeUserAgents) throws IOException {
+        ListsSnapshot next = ListsSnapshot.load(lastVersion.incrementAndGet(), ip, excludeUserAgent,
+                includeUserAgent, excludeUserAgents, includeUserAgents, config, metrics);
+        publish(next);
+        return next.getInfo();
+    }
+
+    /**
+     * Swaps in the snapshot unless a later reload has already published a newer one.
+     */
+    private void publish(ListsSnapshot next) {
+        while (true) {
+            ListsSnapshot current = snapshot.get();
+            if (current != null && current.getInfo().getVersion() > next.getInfo().getVersion()) {
+                return;
+            }
+            if (snapshot.compareAndSet(current, next)) {
+                if (current != null) {
+                    retire(current);
+                }
+                return;
             }
         }
-        return Collections.unmodifiableList(result);
+    }
+
+    private void retire(ListsSnapshot retired) {
+        VerdictCache<UserAgentVerdict> verdictCache = retired.getVerdictCache();
+        if (verdictCache != null) {
+            VerdictCacheStats stats = verdictCache.stats();
+            retiredCacheStats.accumulateAndGet(stats, (a, b) -> new VerdictCacheStats(a.getHits() + b.getHits(),
+                    a.getMisses() + b.getMisses(), a.getEvictions() + b.getEvictions(), 0, 0));
+            verdictCache.clear();
+        }
+    }
+
+    /**
+     * @return the version and load timings of the lists currently checked against
+     */
+    public ListsSnapshotInfo getSnapshotInfo() {
+        return snapshot.get().getInfo();
     }
 
     public IabResponse check(String userAgent, InetAddress ipAddress) {
-        return checkAt(userAgent, ipAddress, DateUtils.now());
+        return checkAt(userAgent, ipAddress, System.currentTimeMillis());
     }
 
     public IabResponse checkAt(String userAgent, InetAddress ipAddress, Date accurateAt) {
         assertCheckAtArguments(userAgent, ipAddress, accurateAt);
+        return checkAt(userAgent, ipAddress, accurateAt.getTime());
+    }
 
-        String userAgentLower = IabFile.toLowerCase(userAgent);
+    /**
+     * @param accurateAtMillis the time of the check in epoch milliseconds
+     */
+    public IabResponse checkAt(String userAgent, InetAddress ipAddress, long accurateAtMillis) {
+        if (userAgent == null && ipAddress == null) {
+            throw userAgentAndIpAddressBothAreNullError();
+        }
 
-        if (matchesAny(userAgentLower, customIncludeUserAgents)) {
-            return IabResponse.identifiedAsBrowser();
+        String examinedUserAgent = examine(userAgent);
+        boolean recorded = CHECK_EVENT_TYPE.isEnabled();
+        if (metrics == null && !recorded) {
+            return checkLists(snapshot.get(), examinedUserAgent, ipAddress, accurateAtMillis);
+        }
+        long start = System.nanoTime();
+        IabResponse response = recorded ?
+                checkRecorded(snapshot.get(), examinedUserAgent, ipAddress, accurateAtMillis) :
+                checkLists(snapshot.get(), examinedUserAgent, ipAddress, accurateAtMillis);
+        if (metrics == null) {
+            return response;
         }
+        metrics.recordCheck(response.getCode(), System.nanoTime() - start);
+        return response;
+    }
+
+    private static IabResponse checkLists(ListsSnapshot lists, String userAgent, InetAddress ipAddress,
+                                          long accurateAtMillis) {
+        IabResponse response = checkCustomListsAndIp(lists, userAgent, ipAddress);
+        return response != null ? response : lists.userAgentVerdict(userAgent, accurateAtMillis);
+    }
 
-        if (matchesAny(userAgentLower, customExcludeUserAgents)) {
-            return IabResponse.customExcludeCheckFailed();
+    /**
+     * Same as {@link #checkLists(ListsSnapshot, String, InetAddress, long)}, timing each stage for a
+     * {@link CheckEvent}. The event is committed only when it exceeds its threshold and is sampled.
+     */
+    private static IabResponse checkRecorded(ListsSnapshot lists, String userAgent, InetAddress ipAddress,
+                                             long accurateAtMillis) {
+        CheckEvent event = new CheckEvent();
+        event.begin();
+        long start = System.nanoTime();
+        IabResponse response = lists.checkCustomLists(userAgent);
+        long customListsEnd = System.nanoTime();
+        event.customListsDuration = customListsEnd - start;
+        if (response == null && ipAddress != null && lists.ipBelongs(ipAddress)) {
+            response = IabResponse.ipCheckFailed();
+        }
+        long ipRangesEnd = System.nanoTime();
+        event.ipRangesDuration = ipRangesEnd - customListsEnd;
+        if (response == null) {
+            response = userAgent == null ? IabResponse.identifiedAsBrowser() :
+                    lists.userAgentVerdict(userAgent, accurateAtMillis);
+            event.userAgentListsDuration = System.nanoTime() - ipRangesEnd;
         }
+        event.end();
 
-        if (ipAddress != null && ipRanges.belong(ipAddress)) {
-            return IabResponse.ipCheckFailed();
+        if (event.shouldCommit()) {
+            event.listsVersion = lists.getInfo().getVersion();
+            event.userAgent = userAgent;
+            event.userAgentLength = userAgent == null ? -1 : userAgent.length();
+            event.spiderOrRobot = response.isSpiderOrRobot();
+            event.category = response.getCategory().name();
+            event.reason = response.getReason().name();
+            event.primaryImpact = response.getPrimaryImpact().name();
+            event.commit();
+        }
+        return response;
+    }
+
+    /**
+     * Same as {@link #checkAt(String, InetAddress, long)}, but returns the packed code of the response,
+     * which can be decoded with {@link IabResponseCodes}.
+     */
+    public int checkCode(String userAgent, InetAddress ipAddress, long accurateAtMillis) {
+        return checkAt(userAgent, ipAddress, accurateAtMillis).getCode();
+    }
+
+    /**
+     * Same as {@link #checkAll(String[], InetAddress[], long[], IabResponse[])}, returning a new results array.
+     */
+    public IabResponse[] checkAll(String[] userAgents, InetAddress[] ipAddresses, long[] accurateAtMillis) {
+        IabResponse[] results = new IabResponse[userAgents.length];
+        checkAll(userAgents, ipAddresses, accurateAtMillis, results);
+        return results;
+    }
+
+    /**
+     * Checks a batch of events given as columns of the same length, and writes the response for row i into
+     * {@code results[i]}. Every row gets the same response as {@link #checkAt(String, InetAddress, long)}.
+     * <p>
+     * The batch is split across the {@link IabClientConfig#getBatchPool() batch pool}, and the include and
+     * exclude lists are evaluated once per distinct user agent of the batch, unless several tasks meet it at
+     * the same time.
+     *
+     * @param ipAddresses may be null when the batch has no IP addresses
+     */
+    public void checkAll(String[] userAgents, InetAddress[] ipAddresses, long[] accurateAtMillis,
+                         IabResponse[] results) {
+        int size = userAgents.length;
+        if ((ipAddresses != null && ipAddresses.length != size) || accurateAtMillis.length != size
+                || results.length != size) {
+            throw batchColumnLengthsDifferError();
+        }
+
+        ListsSnapshot lists = snapshot.get();
+        ConcurrentMap<UserAgentAtBucket, UserAgentVerdict> verdicts = new ConcurrentHashMap<>();
+        ParallelRanges.forEach(batchPool, size, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                InetAddress ipAddress = ipAddresses == null ? null : ipAddresses[i];
+                long start = metrics == null ? 0 : System.nanoTime();
+                results[i] = checkInBatch(lists, examine(userAgents[i]), ipAddress, accurateAtMillis[i], verdicts);
+                if (metrics != null) {
+                    metrics.recordCheck(results[i].getCode(), System.nanoTime() - start);
+                }
+            }
+        });
+    }
+
+    /**
+     * Same as {@link #checkAll(String[], InetAddress[], long[], IabResponse[])} for a batch given as lists.
+     */
+    public List<IabResponse> checkAll(List<String> userAgents, List<InetAddress> ipAddresses,
+                                      List<Date> accurateAt) {
+        long[] accurateAtMillis = new long[accurateAt.size()];
+        for (int i = 0; i < accurateAtMillis.length; i++) {
+            Date date = accurateAt.get(i);
+            if (date == null) {
+                throw accurateAtIsNullError();
+            }
+            accurateAtMillis[i] = date.getTime();
+        }
+
+        InetAddress[] ipAddressArray = ipAddresses == null ? null : ipAddresses.toArray(new InetAddress[0]);
+        return Arrays.asList(checkAll(userAgents.toArray(new String[0]), ipAddressArray, accurateAtMillis));
+    }
+
+    /**
+     * Checks a batch of events given as primitive columns of the same length, and writes the
+     * {@link IabResponseCodes code} of the response for row i into {@code codes[i]}. Every row gets the same
+     * response as {@link #checkAt(String, InetAddress, long)}, and nothing is allocated per row.
+     * <p>
+     * The batch is split across the {@link IabClientConfig#getBatchPool() batch pool}.
+     *
+     * @param ipAddresses may be null when the batch has no IP addresses
+     */
+    public void checkColumns(CharSequence[] userAgents, IpAddressColumns ipAddresses, long[] accurateAtMillis,
+                             int[] codes) {
+        assertColumnLengths(userAgents.length, ipAddresses, accurateAtMillis.length, codes.length);
+        ListsSnapshot lists = snapshot.get();
+        ParallelRanges.forEach(batchPool, userAgents.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                long start = metrics == null ? 0 : System.nanoTime();
+                codes[i] = checkRow(lists, examine(userAgents[i]), ipAddresses, accurateAtMillis, i);
+                if (metrics != null) {
+                    metrics.recordCheck(codes[i], System.nanoTime() - start);
+                }
+            }
+        });
+    }
+
+    /**
+     * Same as {@link #checkColumns(CharSequence[], IpAddressColumns, long[], int[])}, writing every code in a
+     * single byte.
+     */
+    public void checkColumns(CharSequence[] userAgents, IpAddressColumns ipAddresses, long[] accurateAtMillis,
+                             byte[] codes) {
+        assertColumnLengths(userAgents.length, ipAddresses, accurateAtMillis.length, codes.length);
+        ListsSnapshot lists = snapshot.get();
+        ParallelRanges.forEach(batchPool, userAgents.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                long start = metrics == null ? 0 : System.nanoTime();
+                codes[i] = (byte) checkRow(lists, examine(userAgents[i]), ipAddresses, accurateAtMillis, i);
+                if (metrics != null) {
+                    metrics.recordCheck(codes[i], System.nanoTime() - start);
+                }
+            }
+        });
+    }
+
+    /**
+     * Same as {@link #checkColumns(CharSequence[], IpAddressColumns, long[], int[])} for user agents given as
+     * ISO-8859-1 bytes. Every row gets the same response as {@link #checkAt(String, InetAddress, long)} with
+     * its user agent decoded from ISO-8859-1, and no user agent is decoded.
+     */
+    public void checkColumns(UserAgentColumns userAgents, IpAddressColumns ipAddresses, long[] accurateAtMillis,
+                             int[] codes) {
+        assertColumnLengths(userAgents.size(), ipAddresses, accurateAtMillis.length, codes.length);
+        ListsSnapshot lists = snapshot.get();
+        ParallelRanges.forEach(batchPool, userAgents.size(), (from, to) -> {
+            Latin1Text view = new Latin1Text(userAgents.data(), 0, 0);
+            for (int i = from; i < to; i++) {
+                long start = metrics == null ? 0 : System.nanoTime();
+                codes[i] = checkRow(lists, examine(userAgent(userAgents, i, view)), ipAddresses, accurateAtMillis, i);
+                if (metrics != null) {
+                    metrics.recordCheck(codes[i], System.nanoTime() - start);
+                }
+            }
+        });
+    }
+
+    /**
+     * Same as {@link #checkColumns(UserAgentColumns, IpAddressColumns, long[], int[])}, writing every code in a
+     * single byte.
+     */
+    public void checkColumns(UserAgentColumns userAgents, IpAddressColumns ipAddresses, long[] accurateAtMillis,
+                             byte[] codes) {
+        assertColumnLengths(userAgents.size(), ipAddresses, accurateAtMillis.length, codes.length);
+        ListsSnapshot lists = snapshot.get();
+        ParallelRanges.forEach(batchPool, userAgents.size(), (from, to) -> {
+            Latin1Text view = new Latin1Text(userAgents.data(), 0, 0);
+            for (int i = from; i < to; i++) {
+                long start = metrics == null ? 0 : System.nanoTime();
+                codes[i] = (byte) checkRow(lists, examine(userAgent(userAgents, i, view)), ipAddresses,
+                        accurateAtMillis, i);
+                if (metrics != null) {
+                    metrics.recordCheck(codes[i], System.nanoTime() - start);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the user agent of the row, seen through the view of the current thread, or null when it has none
+     */
+    private static CharSequence userAgent(UserAgentColumns userAgents, int row, Latin1Text view) {
+        return userAgents.hasUserAgent(row) ?
+                view.set(userAgents.data(), userAgents.offset(row), userAgents.length(row)) : null;
+    }
+
+    private static void assertColumnLengths(int size, IpAddressColumns ipAddresses, int accurateAtLength,
+                                            int codesLength) {
+        if ((ipAddresses != null && ipAddresses.size() != size) || accurateAtLength != size || codesLength != size) {
+            throw batchColumnLengthsDifferError();
+        }
+    }
+
+    private static int checkRow(ListsSnapshot lists, CharSequence userAgent, IpAddressColumns ipAddresses,
+                                long[] accurateAtMillis, int row) {
+        byte family = ipAddresses == null ? IpAddressColumns.NONE : ipAddresses.family(row);
+        if (userAgent == null && family == IpAddressColumns.NONE) {
+            throw userAgentAndIpAddressBothAreNullError();
+        }
+
+        IabResponse response = lists.checkCustomLists(userAgent);
+        if (response != null) {
+            return response.getCode();
+        }
+
+        if (family == IpAddressColumns.IPV4 && lists.ipv4Belongs(ipAddresses.ipv4(row))
+                || family == IpAddressColumns.IPV6 && lists.ipv6Belongs(ipAddresses.ipv6High(row),
+                ipAddresses.ipv6Low(row))) {
+            return IabResponse.ipCheckFailed().getCode();
         }
 
         if (userAgent == null) {
-            return IabResponse.identifiedAsBrowser();
+            return IabResponse.identifiedAsBrowser().getCode();
+        }
+
+        return lists.userAgentVerdict(userAgent, accurateAtMillis[row]).getCode();
+    }
+
+    private String examine(String userAgent) {
+        return userAgentGuard == null ? userAgent : userAgentGuard.examine(userAgent);
+    }
+
+    private CharSequence examine(CharSequence userAgent) {
+        return userAgentGuard == null ? userAgent : userAgentGuard.examine(userAgent);
+    }
+
+    private static IabResponse checkInBatch(ListsSnapshot lists, String userAgent, InetAddress ipAddress,
+                                            long accurateAt,
+                                            ConcurrentMap<UserAgentAtBucket, UserAgentVerdict> verdicts) {
+        if (userAgent == null && ipAddress == null) {
+            throw userAgentAndIpAddressBothAreNullError();
         }
 
-        if (!includeUserAgents.presentLowerCase(userAgentLower, accurateAt)) {
-            return IabResponse.includeCheckFailed();
+        IabResponse response = checkCustomListsAndIp(lists, userAgent, ipAddress);
+        if (response != null) {
+            return response;
         }
 
-        IabResponse excludeResponse = toIabResponse(excludeUserAgents.checkLowerCase(userAgentLower), accurateAt);
-        return excludeResponse == null ? IabResponse.identifiedAsBrowser() : excludeResponse;
+        UserAgentAtBucket key = new UserAgentAtBucket(userAgent, lists.timeBucket(accurateAt));
+        UserAgentVerdict verdict = verdicts.get(key);
+        if (verdict == null) {
+            // evaluated outside the map, as computeIfAbsent would hold the lock of its bin and block the tasks
+            // evaluating other user agents of the bin; two tasks may then evaluate the same user agent
+            verdict = lists.verdictOf(userAgent, accurateAt);
+            UserAgentVerdict stored = verdicts.putIfAbsent(key, verdict);
+            if (stored != null) {
+                verdict = stored;
+            }
+        }
+        lists.countRecordHits(verdict);
+        return verdict.getResponse();
     }
 
-    private static boolean matchesAny(String userAgentLower, List<String> patterns) {
-        for (String pattern : patterns) {
-            if (StringUtils.contains(userAgentLower, pattern)) {
-                return true;
+    /**
+     * @return counters of the verdict cache, accumulated over all the lists loaded; entries and weight are
+     * those of the current lists. All zero when the cache is disabled
+     */
+    public VerdictCacheStats getVerdictCacheStats() {
+        VerdictCache<UserAgentVerdict> verdictCache = snapshot.get().getVerdictCache();
+        if (verdictCache == null) {
+            return new VerdictCacheStats(0, 0, 0, 0, 0);
+        }
+        VerdictCacheStats current = verdictCache.stats();
+        VerdictCacheStats retired = retiredCacheStats.get();
+        return new VerdictCacheStats(current.getHits() + retired.getHits(),
+                current.getMisses() + retired.getMisses(), current.getEvictions() + retired.getEvictions(),
+                current.getEntries(), current.getWeight());
+    }
+
+    /**
+     * @return counts and latencies of the checks since the client was created; no checks and no latencies
+     * when metrics are not {@link IabClientConfig.Builder#metrics() enabled}
+     */
+    public MetricsSnapshot getMetrics() {
+        if (metrics == null) {
+            return new MetricsSnapshot(0, new EnumMap<>(CheckReason.class), new EnumMap<>(UserAgentCategory.class),
+                    new EnumMap<>(CheckStage.class));
+        }
+        return metrics.snapshot();
+    }
+
+    /**
+     * @return the counters of the user agents longer than the
+     * {@link IabClientConfig.Builder#maxUserAgentLength(int) maximum length}, or null when user agents are
+     * examined whole
+     */
+    public OversizeUserAgentStats getOversizeUserAgentStats() {
+        return userAgentGuard == null ? null : userAgentGuard.stats();
+    }
+
+    /**
+     * @return the counters of the prefilter of the current exclude list, since the lists were loaded; null
+     * when the prefilter is not {@link IabClientConfig.Builder#excludePrefilter() enabled}
+     */
+    public PrefilterStats getExcludePrefilterStats() {
+        return snapshot.get().getExcludePrefilterStats();
+    }
+
+    /**
+     * @return the records of the current include and exclude lists with the number of checks which found each,
+     * counted since the lists were loaded or {@link #resetRecordHits() reset}; null when record hits are not
+     * {@link IabClientConfig.Builder#recordHits() enabled}
+     */
+    public RecordHitsReport getRecordHits() {
+        RecordHitCounters recordHits = snapshot.get().getRecordHits();
+        return recordHits == null ? null : recordHits.report();
+    }
+
+    /**
+     * Restarts counting the record hits of the current lists from zero.
+     */
+    public void resetRecordHits() {
+        RecordHitCounters recordHits = snapshot.get().getRecordHits();
+        if (recordHits != null) {
+            recordHits.reset();
+        }
+    }
+
+    /**
+     * Publishes the current metrics to the sink of the config, if there is one. Sinks are called at their
+     * period anyway; this is for a last publication, at shutdown for example.
+     */
+    public void publishMetrics() {
+        MetricsSink sink = config.getMetricsSink();
+        if (sink != null) {
+            synchronized (sink) {
+                sink.publish(getMetrics());
             }
         }
-        return false;
+    }
+
+    /**
+     * @return the response decided by the custom lists or the IP address, or null when the include and
+     * exclude lists decide
+     */
+    private static IabResponse checkCustomListsAndIp(ListsSnapshot lists, String userAgent,
+                                                     InetAddress ipAddress) {
+        IabResponse customResponse = lists.checkCustomLists(userAgent);
+        if (customResponse != null) {
+            return customResponse;
+        }
+
+        if (ipAddress != null && lists.ipBelongs(ipAddress)) {
+            return IabResponse.ipCheckFailed();
+        }
+
+        if (userAgent == null) {
+            return IabResponse.identifiedAsBrowser();
+        }
+
+        return null;
     }
 
     private static void assertCheckAtArguments(String userAgent, InetAddress ipAddress, Date accurateAt) {
@@ -166,16 +713,97 @@ public class IabClient {
         }
     }
 
-    private static IabResponse toIabResponse(ExcludeCheckResult result, Date accurateAt) {
-        if (!result.isPresent()) {
-            return null;
+    /**
+     * A user agent within a {@link ListsSnapshot#timeBucket(long) time bucket}, which the include and exclude verdict
+     * depends on.
+     */
+    private static final class UserAgentAtBucket {
+
+        private final String userAgent;
+
+        private final int bucket;
+
+        private UserAgentAtBucket(String userAgent, int bucket) {
+            this.userAgent = userAgent;
+            this.bucket = bucket;
         }
 
-        if (result.inactiveDateIsNotSet() || result.isBeforeInactiveDate(accurateAt)) {
-            return IabResponse.excludeCheckFailed(ACTIVE_SPIDER_OR_ROBOT, result.getPrimaryImpact());
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof UserAgentAtBucket)) {
+                return false;
+            }
+            UserAgentAtBucket other = (UserAgentAtBucket) o;
+            return bucket == other.bucket && userAgent.equals(other.userAgent);
         }
 
-        return IabResponse.excludeCheckFailed(INACTIVE_SPIDER_OR_ROBOT, result.getPrimaryImpact());
+        @Override
+        public int hashCode() {
+            return 31 * userAgent.hashCode() + bucket;
+        }
+
+    }
+
+    /**
+     * Publishes the metrics of a client to its sink periodically, on a daemon thread shared by all clients.
+     * Only a weak reference to the client is held, so the publication stops once the client is collected.
+     */
+    private static final class MetricsPublication implements Runnable {
+
+        private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(
+                runnable -> {
+                    Thread thread = new Thread(runnable, "iab-metrics");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        private final WeakReference<IabClient> client;
+
+        private volatile ScheduledFuture<?> future;
+
+        private MetricsPublication(IabClient client) {
+            this.client = new WeakReference<>(client);
+        }
+
+        private static void schedule(IabClient client) {
+            if (client.config.getMetricsSink() == null) {
+                return;
+            }
+            long period = client.config.getMetricsPeriodMillis();
+            MetricsPublication publication = new MetricsPublication(client);
+            publication.future = EXECUTOR.scheduleAtFixedRate(publication, period, period, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            IabClient current = client.get();
+            if (current == null) {
+                future.cancel(false);
+                return;
+            }
+            try {
+                current.publishMetrics();
+            } catch (RuntimeException e) {
+                // a failing sink must not stop the next publications
+            }
+        }
+
+    }
+
+    /**
+     * The thread background reloads of all clients run on, started on the first one.
+     */
+    private static final class ReloadExecutor {
+
+        private static final Executor INSTANCE = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "iab-lists-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+
     }
 
 }
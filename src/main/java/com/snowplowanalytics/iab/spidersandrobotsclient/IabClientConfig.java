@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.MatchingEngine;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.IabClientErrors.maxUserAgentLengthWithoutAutomatonError;
+import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.IabClientErrors.negativeVerdictCacheWeightError;
+import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.IabClientErrors.nonPositiveMaxUserAgentLengthError;
+import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.IabClientErrors.nonPositiveMetricsPeriodError;
+import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.IabClientErrors.nonPositiveSampleEveryError;
+
+/**
+ * Optional features of an {@link IabClient}. All of them are disabled by default, and batch checks run on
+ * the common fork-join pool.
+ */
+public final class IabClientConfig {
+
+    private static final IabClientConfig DEFAULT = builder().build();
+
+    private final long verdictCacheMaxWeight;
+
+    private final ForkJoinPool batchPool;
+
+    private final boolean metricsEnabled;
+
+    private final MetricsSink metricsSink;
+
+    private final long metricsPeriodMillis;
+
+    private final boolean recordHitsEnabled;
+
+    private final int maxUserAgentLength;
+
+    private final MatchingEngine matchingEngine;
+
+    private final boolean excludePrefilterEnabled;
+
+    private final boolean adaptiveIncludeOrderEnabled;
+
+    private final OversizeUserAgentListener oversizeUserAgentListener;
+
+    private final int oversizeUserAgentSampleEvery;
+
+    private IabClientConfig(Builder builder) {
+        this.verdictCacheMaxWeight = builder.verdictCacheMaxWeight;
+        this.batchPool = builder.batchPool;
+        this.metricsEnabled = builder.metricsEnabled;
+        this.metricsSink = builder.metricsSink;
+        this.metricsPeriodMillis = builder.metricsPeriodMillis;
+        this.recordHitsEnabled = builder.recordHitsEnabled;
+        this.maxUserAgentLength = builder.maxUserAgentLength;
+        this.matchingEngine = builder.matchingEngine;
+        this.excludePrefilterEnabled = builder.excludePrefilterEnabled;
+        this.adaptiveIncludeOrderEnabled = builder.adaptiveIncludeOrderEnabled;
+        this.oversizeUserAgentListener = builder.oversizeUserAgentListener;
+        this.oversizeUserAgentSampleEvery = builder.oversizeUserAgentSampleEvery;
+    }
+
+    public static IabClientConfig defaults() {
+        return DEFAULT;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return estimated heap size, in bytes, the verdict cache may use; 0 when the cache is disabled
+     */
+    public long getVerdictCacheMaxWeight() {
+        return verdictCacheMaxWeight;
+    }
+
+    /**
+     * @return the pool batch checks are split across; the common pool unless another one was set
+     */
+    public ForkJoinPool getBatchPool() {
+        return batchPool == null ? ForkJoinPool.commonPool() : batchPool;
+    }
+
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    /**
+     * @return the sink metrics are published to, or null when there is none
+     */
+    public MetricsSink getMetricsSink() {
+        return metricsSink;
+    }
+
+    /**
+     * @return the period at which metrics are published to the sink, in milliseconds
+     */
+    public long getMetricsPeriodMillis() {
+        return metricsPeriodMillis;
+    }
+
+    public boolean isRecordHitsEnabled() {
+        return recordHitsEnabled;
+    }
+
+    /**
+     * @return the number of chars of a user agent which are examined, 0 when user agents are examined whole
+     */
+    public int getMaxUserAgentLength() {
+        return maxUserAgentLength;
+    }
+
+    public MatchingEngine getMatchingEngine() {
+        return matchingEngine;
+    }
+
+    public boolean isExcludePrefilterEnabled() {
+        return excludePrefilterEnabled;
+    }
+
+    public boolean isAdaptiveIncludeOrderEnabled() {
+        return adaptiveIncludeOrderEnabled;
+    }
+
+    public OversizeUserAgentListener getOversizeUserAgentListener() {
+        return oversizeUserAgentListener;
+    }
+
+    public int getOversizeUserAgentSampleEvery() {
+        return oversizeUserAgentSampleEvery;
+    }
+
+    public static final class Builder {
+
+        private long verdictCacheMaxWeight;
+
+        private ForkJoinPool batchPool;
+
+        private boolean metricsEnabled;
+
+        private MetricsSink metricsSink;
+
+        private long metricsPeriodMillis;
+
+        private boolean recordHitsEnabled;
+
+        private int maxUserAgentLength;
+
+        private MatchingEngine matchingEngine = MatchingEngine.DEFAULT;
+
+        private boolean excludePrefilterEnabled;
+
+        private boolean adaptiveIncludeOrderEnabled;
+
+        private OversizeUserAgentListener oversizeUserAgentListener;
+
+        private int oversizeUserAgentSampleEvery = 1;
+
+        private Builder() {
+
+        }
+
+        /**
+         * Caches the verdict of the include and exclude lists per user agent, evicting entries once their
+         * estimated heap size exceeds the given number of bytes. The IP and custom list checks are always
+         * evaluated.
+         */
+        public Builder verdictCache(long maxWeightBytes) {
+            if (maxWeightBytes < 0) {
+                throw negativeVerdictCacheWeightError();
+            }
+            this.verdictCacheMaxWeight = maxWeightBytes;
+            return this;
+        }
+
+        /**
+         * Runs the batch checks of {@link IabClient#checkAll(String[], java.net.InetAddress[], long[])} on the
+         * given pool instead of the common pool.
+         */
+        public Builder batchPool(ForkJoinPool pool) {
+            this.batchPool = pool;
+            return this;
+        }
+
+        /**
+         * Counts the checks per reason and category and records the latency of every stage of a check, for
+         * {@link IabClient#getMetrics()}. Without it, a check only pays for a null test.
+         */
+        public Builder metrics() {
+            this.metricsEnabled = true;
+            return this;
+        }
+
+        /**
+         * Same as {@link #metrics()}, also publishing the metrics to the sink at the given period from a
+         * daemon thread shared by all clients. The publication stops once the client is garbage collected.
+         */
+        public Builder metrics(MetricsSink sink, long periodMillis) {
+            if (periodMillis <= 0) {
+                throw nonPositiveMetricsPeriodError();
+            }
+            this.metricsEnabled = true;
+            this.metricsSink = sink;
+            this.metricsPeriodMillis = periodMillis;
+            return this;
+        }
+
+        /**
+         * Counts how many checks find each record of the include and exclude lists, for
+         * {@link IabClient#getRecordHits()}. Checks answered by the verdict cache are counted too, but
+         * checks decided by the custom lists or the IP address never reach the records.
+         */
+        public Builder recordHits() {
+            this.recordHitsEnabled = true;
+            return this;
+        }
+
+        /**
+         * Checks a user agent longer than the given number of chars as if it were its first maxChars chars;
+         * patterns found only past them are missed. The truncated user agents are counted in
+         * {@link IabClient#getOversizeUserAgentStats()}.
+         * <p>
+         * This bounds the cost of a check to linear in maxChars only with the {@link MatchingEngine#AUTOMATON}
+         * engine, the default, which scans a user agent once for all the patterns; the other engines may compare
+         * every pattern at every position, so {@link #build()} rejects them with a maximum length.
+         */
+        public Builder maxUserAgentLength(int maxChars) {
+            return maxUserAgentLength(maxChars, null, 1);
+        }
+
+        /**
+         * Same as {@link #maxUserAgentLength(int)}, also passing one truncated user agent in sampleEvery to
+         * the listener.
+         */
+        public Builder maxUserAgentLength(int maxChars, OversizeUserAgentListener listener, int sampleEvery) {
+            if (maxChars <= 0) {
+                throw nonPositiveMaxUserAgentLengthError();
+            }
+            if (sampleEvery <= 0) {
+                throw nonPositiveSampleEveryError();
+            }
+            this.maxUserAgentLength = maxChars;
+            this.oversizeUserAgentListener = listener;
+            this.oversizeUserAgentSampleEvery = sampleEvery;
+            return this;
+        }
+
+        /**
+         * Sets how the include and exclude lists are matched, whether they are loaded from the IAB files or
+         * from a snapshot, which is compiled again when it was exported with another engine.
+         * {@link MatchingEngine#LINEAR_SCAN} is the reference the other engines must agree with, and is much
+         * slower.
+         */
+        public Builder matchingEngine(MatchingEngine engine) {
+            this.matchingEngine = engine;
+            return this;
+        }
+
+        /**
+         * Rules out the user agents in which no pattern of the exclude list can be present before the list is
+         * matched, with a bitset of one 3-gram of every pattern built when the lists are loaded. The verdicts
+         * are unchanged; how many user agents are passed on to the matching is told by
+         * {@link IabClient#getExcludePrefilterStats()}.
+         */
+        public Builder excludePrefilter() {
+            this.excludePrefilterEnabled = true;
+            return this;
+        }
+
+        /**
+         * Makes the {@link MatchingEngine#LINEAR_SCAN} engine try the records of the include list most often
+         * present first, from counts sampled on the checks, when any record present will do. The verdicts are
+         * unchanged; the other engines don't try the records one after the other, and ignore this.
+         */
+        public Builder adaptiveIncludeOrder() {
+            this.adaptiveIncludeOrderEnabled = true;
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException when a maximum user agent length is set with another engine than
+         *                                  {@link MatchingEngine#AUTOMATON}
+         */
+        public IabClientConfig build() {
+            if (maxUserAgentLength > 0 && matchingEngine != MatchingEngine.AUTOMATON) {
+                throw maxUserAgentLengthWithoutAutomatonError(matchingEngine);
+            }
+            return new IabClientConfig(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.IabClientErrors.listsDirectoryNotWatchedError;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Reloads the lists of an {@link IabClient} whenever one of its three IAB files changes.
+ * <p>
+ * The directories of the files are watched on a daemon thread. A change triggers a reload once the files
+ * have been quiet for the settle time, so a release copied file by file is loaded once. If a reload fails,
+ * the client keeps its current lists and the failure is available from {@link #getLastError()}. If a
+ * directory of the files is deleted or can no longer be watched, the watcher stops, with that error.
+ */
+public final class IabListsWatcher implements Closeable {
+
+    private static final long DEFAULT_SETTLE_MILLIS = 1000;
+
+    private final IabClient client;
+
+    private final File ipFile;
+
+    private final File excludeUserAgentFile;
+
+    private final File includeUserAgentFile;
+
+    private final long settleMillis;
+
+    private final WatchService watchService;
+
+    private final Set<Path> fileNames = new HashSet<>();
+
+    private final Thread thread;
+
+    private volatile Exception lastError;
+
+    private IabListsWatcher(IabClient client, File ipFile, File excludeUserAgentFile, File includeUserAgentFile,
+                            long settleMillis) throws IOException {
+        this.client = client;
+        this.ipFile = ipFile;
+        this.excludeUserAgentFile = excludeUserAgentFile;
+        this.includeUserAgentFile = includeUserAgentFile;
+        this.settleMillis = settleMillis;
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        Set<Path> directories = new HashSet<>();
+        for (File file : new File[]{ipFile, excludeUserAgentFile, includeUserAgentFile}) {
+            Path path = file.getAbsoluteFile().toPath();
+            fileNames.add(path.getFileName());
+            directories.add(path.getParent());
+        }
+        try {
+            for (Path directory : directories) {
+                directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+            }
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+
+        this.thread = new Thread(this::run, "iab-lists-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    public static IabListsWatcher start(IabClient client, File ipFile, File excludeUserAgentFile,
+                                        File includeUserAgentFile) throws IOException {
+        return start(client, ipFile, excludeUserAgentFile, includeUserAgentFile, DEFAULT_SETTLE_MILLIS);
+    }
+
+    /**
+     * @param settleMillis how long the files must be unchanged before they are reloaded
+     */
+    public static IabListsWatcher start(IabClient client, File ipFile, File excludeUserAgentFile,
+                                        File includeUserAgentFile, long settleMillis) throws IOException {
+        IabListsWatcher watcher =
+                new IabListsWatcher(client, ipFile, excludeUserAgentFile, includeUserAgentFile, settleMillis);
+        watcher.thread.start();
+        return watcher;
+    }
+
+    /**
+     * @return the failure of the last reload, or why the watcher stopped, or null when there was none
+     */
+    public Exception getLastError() {
+        return lastError;
+    }
+
+    /**
+     * @return false once the watcher is closed, or stopped as a directory can no longer be watched
+     */
+    public boolean isRunning() {
+        return thread.isAlive();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                if (!isListChange(watchService.take())) {
+                    continue;
+                }
+                WatchKey key;
+                while ((key = watchService.poll(settleMillis, TimeUnit.MILLISECONDS)) != null) {
+                    isListChange(key);
+                }
+                reload();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // closed
+        }
+    }
+
+    private boolean isListChange(WatchKey key) {
+        boolean listChange = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (fileNames.contains(event.context())) {
+                listChange = true;
+            }
+        }
+        if (!key.reset()) {
+            // nothing more will be reported for the directory; closing makes the thread end
+            lastError = listsDirectoryNotWatchedError(key.watchable());
+            IOUtils.closeQuietly(watchService);
+        }
+        return listChange;
+    }
+
+    private void reload() {
+        try {
+            client.reload(ipFile, excludeUserAgentFile, includeUserAgentFile);
+            lastError = null;
+        } catch (IOException | RuntimeException e) {
+            lastError = e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+
+}
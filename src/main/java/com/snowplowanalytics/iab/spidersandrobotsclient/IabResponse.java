@@ -25,8 +25,25 @@ import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.PrimaryImpact
 import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.UserAgentCategory.BROWSER;
 import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.UserAgentCategory.SPIDER_OR_ROBOT;
 
+/**
+ * The verdict of a check. Every combination of category, reason and primary impact has a single shared
+ * instance, identified by its {@link IabResponseCodes code}.
+ */
 public class IabResponse {
 
+    private static final IabResponse[] BY_CODE = new IabResponse[IabResponseCodes.CODE_COUNT];
+
+    static {
+        for (UserAgentCategory category : UserAgentCategory.values()) {
+            for (CheckReason reason : CheckReason.values()) {
+                for (PrimaryImpact primaryImpact : PrimaryImpact.values()) {
+                    int code = IabResponseCodes.encode(category, reason, primaryImpact);
+                    BY_CODE[code] = new IabResponse(category != BROWSER, category, reason, primaryImpact, code);
+                }
+            }
+        }
+    }
+
     private final boolean spiderOrRobot;
 
     private final UserAgentCategory category;
@@ -35,12 +52,15 @@ public class IabResponse {
 
     private final PrimaryImpact primaryImpact;
 
+    private final int code;
+
     private IabResponse(boolean spiderOrRobot, UserAgentCategory category, CheckReason reason,
-                        PrimaryImpact primaryImpact) {
+                        PrimaryImpact primaryImpact, int code) {
         this.spiderOrRobot = spiderOrRobot;
         this.category = category;
         this.reason = reason;
         this.primaryImpact = primaryImpact;
+        this.code = code;
     }
 
     public boolean isSpiderOrRobot() {
@@ -59,31 +79,48 @@ public class IabResponse {
         return primaryImpact;
     }
 
+    /**
+     * @return the packed code of this response, see {@link IabResponseCodes}
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * @return the shared response for a code produced by {@link IabResponseCodes} or {@link #getCode()}
+     */
+    public static IabResponse fromCode(int code) {
+        return BY_CODE[code];
+    }
+
+    @Override
+    public String toString() {
+        return "IabResponse{spiderOrRobot=" + spiderOrRobot + ", category=" + category + ", reason=" + reason
+                + ", primaryImpact=" + primaryImpact + '}';
+    }
+
     static IabResponse identifiedAsBrowser() {
-        final boolean spiderOrRobot = false;
-        return new IabResponse(spiderOrRobot, BROWSER, PASSED_ALL, NONE);
+        return of(BROWSER, PASSED_ALL, NONE);
     }
 
     static IabResponse ipCheckFailed() {
-        return createForSpiderOrRobot(SPIDER_OR_ROBOT, FAILED_IP_EXCLUDE, UNKNOWN);
+        return of(SPIDER_OR_ROBOT, FAILED_IP_EXCLUDE, UNKNOWN);
     }
 
     static IabResponse includeCheckFailed() {
-        return createForSpiderOrRobot(SPIDER_OR_ROBOT, FAILED_UA_INCLUDE, UNKNOWN);
+        return of(SPIDER_OR_ROBOT, FAILED_UA_INCLUDE, UNKNOWN);
     }
 
     public static IabResponse excludeCheckFailed(UserAgentCategory category, PrimaryImpact primaryImpact) {
-        return createForSpiderOrRobot(category, FAILED_UA_EXCLUDE, primaryImpact);
+        return of(category, FAILED_UA_EXCLUDE, primaryImpact);
     }
 
     static IabResponse customExcludeCheckFailed() {
-        return createForSpiderOrRobot(SPIDER_OR_ROBOT, FAILED_UA_EXCLUDE, UNKNOWN);
+        return of(SPIDER_OR_ROBOT, FAILED_UA_EXCLUDE, UNKNOWN);
     }
 
-    private static IabResponse createForSpiderOrRobot(UserAgentCategory category, CheckReason reason,
-                                                      PrimaryImpact primaryImpact) {
-        final boolean spiderOrRobot = true;
-        return new IabResponse(spiderOrRobot, category, reason, primaryImpact);
+    private static IabResponse of(UserAgentCategory category, CheckReason reason, PrimaryImpact primaryImpact) {
+        return BY_CODE[IabResponseCodes.encode(category, reason, primaryImpact)];
     }
 
 }
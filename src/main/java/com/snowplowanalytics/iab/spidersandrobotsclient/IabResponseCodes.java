@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.CheckReason;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.PrimaryImpact;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.UserAgentCategory;
+
+import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.UserAgentCategory.BROWSER;
+
+/**
+ * Packed verdict codes, for callers which don't need {@link IabResponse} objects.
+ * <p>
+ * A code holds the ordinals of the category (bits 0-1), the reason (bits 2-3) and the primary impact
+ * (bits 4-6), so every code fits in a non-negative {@code byte}.
+ */
+public final class IabResponseCodes {
+
+    /**
+     * Every code is below this, so codes can index an array of this size.
+     */
+    public static final int CODE_COUNT = 1 << 7;
+
+    private static final UserAgentCategory[] CATEGORIES = UserAgentCategory.values();
+
+    private static final CheckReason[] REASONS = CheckReason.values();
+
+    private static final PrimaryImpact[] PRIMARY_IMPACTS = PrimaryImpact.values();
+
+    private IabResponseCodes() {
+
+    }
+
+    public static int encode(UserAgentCategory category, CheckReason reason, PrimaryImpact primaryImpact) {
+        return category.ordinal() | reason.ordinal() << 2 | primaryImpact.ordinal() << 4;
+    }
+
+    public static UserAgentCategory category(int code) {
+        return CATEGORIES[code & 0x3];
+    }
+
+    public static CheckReason reason(int code) {
+        return REASONS[code >>> 2 & 0x3];
+    }
+
+    public static PrimaryImpact primaryImpact(int code) {
+        return PRIMARY_IMPACTS[code >>> 4 & 0x7];
+    }
+
+    public static boolean isSpiderOrRobot(int code) {
+        return category(code) != BROWSER;
+    }
+
+    public static IabResponse toResponse(int code) {
+        return IabResponse.fromCode(code);
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.Ipv4IntervalIndex;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.Ipv6PrefixTrie;
+
+import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.IabClientErrors.batchColumnLengthsDifferError;
+
+/**
+ * The IP addresses of a batch for {@link IabClient#checkColumns(CharSequence[], IpAddressColumns, long[], int[])},
+ * packed into primitive columns.
+ * <p>
+ * The family of row i is {@code families[i]}: {@link #NONE} when the row has no IP address, {@link #IPV4}
+ * when its address is {@code ipv4[i]}, big endian, and {@link #IPV6} when its address is {@code ipv6High[i]}
+ * followed by {@code ipv6Low[i]}. The columns of a family no row has may be null.
+ */
+public final class IpAddressColumns {
+
+    public static final byte NONE = 0;
+
+    public static final byte IPV4 = 4;
+
+    public static final byte IPV6 = 6;
+
+    private final byte[] families;
+
+    private final int[] ipv4;
+
+    private final long[] ipv6High;
+
+    private final long[] ipv6Low;
+
+    private IpAddressColumns(byte[] families, int[] ipv4, long[] ipv6High, long[] ipv6Low) {
+        this.families = families;
+        this.ipv4 = ipv4;
+        this.ipv6High = ipv6High;
+        this.ipv6Low = ipv6Low;
+    }
+
+    public static IpAddressColumns of(byte[] families, int[] ipv4, long[] ipv6High, long[] ipv6Low) {
+        int size = families.length;
+        if ((ipv4 != null && ipv4.length != size) || (ipv6High != null && ipv6High.length != size)
+                || (ipv6Low != null && ipv6Low.length != size) || (ipv6High == null) != (ipv6Low == null)) {
+            throw batchColumnLengthsDifferError();
+        }
+        return new IpAddressColumns(families, ipv4, ipv6High, ipv6Low);
+    }
+
+    /**
+     * @return columns in which every row has the IPv4 address of the same index
+     */
+    public static IpAddressColumns ipv4(int[] ipv4) {
+        return new IpAddressColumns(null, ipv4, null, null);
+    }
+
+    public int size() {
+        return families == null ? ipv4.length : families.length;
+    }
+
+    public byte family(int row) {
+        return families == null ? IPV4 : families[row];
+    }
+
+    public int ipv4(int row) {
+        return ipv4[row];
+    }
+
+    public long ipv6High(int row) {
+        return ipv6High[row];
+    }
+
+    public long ipv6Low(int row) {
+        return ipv6Low[row];
+    }
+
+    /**
+     * @param address the 4 bytes of an IPv4 address
+     * @return the address as stored in an IPv4 column
+     */
+    public static int packIpv4(byte[] address) {
+        return Ipv4IntervalIndex.toInt(address);
+    }
+
+    /**
+     * @param address the 16 bytes of an IPv6 address
+     * @return the first half of the address as stored in the high IPv6 column
+     */
+    public static long packIpv6High(byte[] address) {
+        return Ipv6PrefixTrie.high(address);
+    }
+
+    /**
+     * @param address the 16 bytes of an IPv6 address
+     * @return the second half of the address as stored in the low IPv6 column
+     */
+    public static long packIpv6Low(byte[] address) {
+        return Ipv6PrefixTrie.low(address);
+    }
+
+}
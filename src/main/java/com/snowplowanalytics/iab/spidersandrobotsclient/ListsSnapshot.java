@@ -0,0 +1,458 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.CheckStage;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.ListsSnapshotInfo;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.PrefilterStats;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.CheckMetrics;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.ExcludeCheckResult;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.ExcludeUserAgents;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.IncludeUserAgents;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.IpRanges;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.PatternAutomaton;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.RecordHitCounters;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.SnapshotFile;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.VerdictCache;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.jfr.ListsLoadEvent;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.IabFile;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotReader;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotWriter;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.UserAgentCategory.ACTIVE_SPIDER_OR_ROBOT;
+import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.UserAgentCategory.INACTIVE_SPIDER_OR_ROBOT;
+import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.IabClientErrors.invalidSnapshotError;
+
+/**
+ * The lists an {@link IabClient} checks against, fully loaded and compiled. A snapshot is never modified
+ * after it is created, so a check which reads it once sees a consistent set of lists however many reloads
+ * happen meanwhile.
+ * <p>
+ * Every snapshot has its own verdict cache and record hit counters, so a reload drops the verdicts and the
+ * hits of the previous lists. The metrics, when enabled, are those of the client and outlive the snapshot.
+ */
+final class ListsSnapshot {
+
+    private final IpRanges ipRanges;
+
+    private final IncludeUserAgents includeUserAgents;
+
+    private final ExcludeUserAgents excludeUserAgents;
+
+    private final List<String> customExcludePatterns;
+
+    private final List<String> customIncludePatterns;
+
+    private final PatternAutomaton customIncludeUserAgents;
+
+    private final PatternAutomaton customExcludeUserAgents;
+
+    private final long[] inactiveDates;
+
+    private final VerdictCache<UserAgentVerdict> verdictCache;
+
+    private final ListsSnapshotInfo info;
+
+    private final CheckMetrics metrics;
+
+    private final RecordHitCounters recordHits;
+
+    private ListsSnapshot(IpRanges ipRanges,
+                          IncludeUserAgents includeUserAgents,
+                          ExcludeUserAgents excludeUserAgents,
+                          List<String> customExcludePatterns,
+                          List<String> customIncludePatterns,
+                          PatternAutomaton customExcludeUserAgents,
+                          PatternAutomaton customIncludeUserAgents,
+                          IabClientConfig config,
+                          CheckMetrics metrics,
+                          ListsSnapshotInfo info) {
+        this.ipRanges = ipRanges;
+        this.includeUserAgents = includeUserAgents;
+        this.excludeUserAgents = excludeUserAgents;
+        this.customExcludePatterns = customExcludePatterns;
+        this.customIncludePatterns = customIncludePatterns;
+        this.customExcludeUserAgents = customExcludeUserAgents;
+        this.customIncludeUserAgents = customIncludeUserAgents;
+        this.inactiveDates = LongStream.concat(
+                LongStream.of(includeUserAgents.getInactiveDates()),
+                LongStream.of(excludeUserAgents.getInactiveDates())
+        ).sorted().distinct().toArray();
+        this.verdictCache = config.getVerdictCacheMaxWeight() > 0 ?
+                new VerdictCache<>(config.getVerdictCacheMaxWeight()) : null;
+        this.metrics = metrics;
+        this.recordHits = config.isRecordHitsEnabled() ?
+                new RecordHitCounters(info.getVersion(), includeUserAgents, excludeUserAgents) : null;
+        this.info = info;
+    }
+
+    /**
+     * Reads and compiles the lists, closing the streams.
+     *
+     * @param metrics the metrics of the client, or null when they are disabled
+     */
+    static ListsSnapshot load(long version,
+                              InputStream ip,
+                              InputStream excludeUserAgent,
+                              InputStream includeUserAgent,
+                              List<String> customExcludePatterns,
+                              List<String> customIncludePatterns,
+                              IabClientConfig config,
+                              CheckMetrics metrics) throws IOException {
+        ListsLoadEvent event = new ListsLoadEvent();
+        event.begin();
+        IpRanges ipRanges;
+        ExcludeUserAgents excludeUserAgents;
+        IncludeUserAgents includeUserAgents;
+        long ipRangesNanos;
+        long excludeNanos;
+        long includeNanos;
+        try {
+            long start = System.nanoTime();
+            ipRanges = new IpRanges(ip);
+            long ipRangesEnd = System.nanoTime();
+            excludeUserAgents = new ExcludeUserAgents(excludeUserAgent, config.getMatchingEngine(),
+                    config.isExcludePrefilterEnabled());
+            long excludeEnd = System.nanoTime();
+            includeUserAgents = new IncludeUserAgents(includeUserAgent, config.getMatchingEngine(),
+                    config.isAdaptiveIncludeOrderEnabled());
+            long includeEnd = System.nanoTime();
+
+            ipRangesNanos = ipRangesEnd - start;
+            excludeNanos = excludeEnd - ipRangesEnd;
+            includeNanos = includeEnd - excludeEnd;
+        } finally {
+            IOUtils.closeQuietly(ip, excludeUserAgent, includeUserAgent);
+        }
+
+        long customStart = System.nanoTime();
+        List<String> excludePatterns = copyOf(customExcludePatterns);
+        List<String> includePatterns = copyOf(customIncludePatterns);
+        PatternAutomaton customExcludeUserAgents = compileCustomList(excludePatterns);
+        PatternAutomaton customIncludeUserAgents = compileCustomList(includePatterns);
+        long customNanos = System.nanoTime() - customStart;
+
+        ListsSnapshotInfo info = new ListsSnapshotInfo(version, System.currentTimeMillis(),
+                ipRangesNanos, excludeNanos, includeNanos, customNanos);
+        ListsSnapshot lists = new ListsSnapshot(ipRanges, includeUserAgents, excludeUserAgents, excludePatterns,
+                includePatterns, customExcludeUserAgents, customIncludeUserAgents, config, metrics, info);
+        lists.commitLoadEvent(event, false);
+        return lists;
+    }
+
+    /**
+     * Writes the compiled lists to a {@link SnapshotFile}.
+     */
+    void export(File file) throws IOException {
+        SnapshotWriter out = new SnapshotWriter();
+        ipRanges.writeTo(out);
+        excludeUserAgents.writeTo(out);
+        includeUserAgents.writeTo(out);
+        writeCustomList(out, customExcludePatterns, customExcludeUserAgents);
+        writeCustomList(out, customIncludePatterns, customIncludeUserAgents);
+        SnapshotFile.write(file, out);
+    }
+
+    /**
+     * Maps a {@link SnapshotFile} written by {@link #export(File)}; nothing is parsed, and the user agent
+     * lists are compiled only when they were exported with another engine than the configured one.
+     */
+    static ListsSnapshot map(long version, File file, IabClientConfig config, CheckMetrics metrics)
+            throws IOException {
+        ListsLoadEvent event = new ListsLoadEvent();
+        event.begin();
+        SnapshotReader in = SnapshotFile.map(file);
+        long start = System.nanoTime();
+        IpRanges ipRanges = IpRanges.readFrom(in);
+        long ipRangesEnd = System.nanoTime();
+        ExcludeUserAgents excludeUserAgents;
+        IncludeUserAgents includeUserAgents;
+        long excludeEnd;
+        try {
+            excludeUserAgents = ExcludeUserAgents.readFrom(in, config.getMatchingEngine(),
+                    config.isExcludePrefilterEnabled());
+            excludeEnd = System.nanoTime();
+            includeUserAgents = IncludeUserAgents.readFrom(in, config.getMatchingEngine(),
+                    config.isAdaptiveIncludeOrderEnabled());
+        } catch (IllegalArgumentException e) {
+            throw invalidSnapshotError(file, e.getMessage());
+        }
+        long includeEnd = System.nanoTime();
+        List<String> excludePatterns = Collections.unmodifiableList(Arrays.asList(in.readStrings()));
+        PatternAutomaton customExcludeUserAgents = readCustomList(in);
+        List<String> includePatterns = Collections.unmodifiableList(Arrays.asList(in.readStrings()));
+        PatternAutomaton customIncludeUserAgents = readCustomList(in);
+        long customEnd = System.nanoTime();
+
+        ListsSnapshotInfo info = new ListsSnapshotInfo(version, System.currentTimeMillis(),
+                ipRangesEnd - start, excludeEnd - ipRangesEnd, includeEnd - excludeEnd, customEnd - includeEnd);
+        ListsSnapshot lists = new ListsSnapshot(ipRanges, includeUserAgents, excludeUserAgents, excludePatterns,
+                includePatterns, customExcludeUserAgents, customIncludeUserAgents, config, metrics, info);
+        lists.commitLoadEvent(event, true);
+        return lists;
+    }
+
+    private void commitLoadEvent(ListsLoadEvent event, boolean fromSnapshot) {
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.listsVersion = info.getVersion();
+        event.fromSnapshot = fromSnapshot;
+        event.ipRangesDuration = info.getIpRangesNanos();
+        event.excludeUserAgentsDuration = info.getExcludeUserAgentsNanos();
+        event.includeUserAgentsDuration = info.getIncludeUserAgentsNanos();
+        event.customListsDuration = info.getCustomListsNanos();
+        event.ipRanges = ipRanges.size();
+        event.excludeRecords = excludeUserAgents.getRecords().size();
+        event.includeRecords = includeUserAgents.getRecords().size();
+        event.customExcludePatterns = customExcludePatterns.size();
+        event.customIncludePatterns = customIncludePatterns.size();
+        event.commit();
+    }
+
+    private static void writeCustomList(SnapshotWriter out, List<String> patterns, PatternAutomaton automaton) {
+        out.writeStrings(patterns.toArray(new String[0])).writeBoolean(automaton != null);
+        if (automaton != null) {
+            automaton.writeTo(out);
+        }
+    }
+
+    private static PatternAutomaton readCustomList(SnapshotReader in) {
+        return in.readBoolean() ? PatternAutomaton.readFrom(in) : null;
+    }
+
+    private static List<String> copyOf(List<String> patterns) {
+        return patterns == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(patterns));
+    }
+
+    /**
+     * @return the custom patterns compiled into an automaton, or null when there are none
+     */
+    private static PatternAutomaton compileCustomList(List<String> patterns) {
+        List<String> lowerCasePatterns = new ArrayList<>(patterns.size());
+        for (String pattern : patterns) {
+            if (pattern != null) {
+                lowerCasePatterns.add(IabFile.toLowerCase(pattern));
+            }
+        }
+        return lowerCasePatterns.isEmpty() ? null : PatternAutomaton.compile(lowerCasePatterns);
+    }
+
+    ListsSnapshotInfo getInfo() {
+        return info;
+    }
+
+    List<String> getCustomExcludePatterns() {
+        return customExcludePatterns;
+    }
+
+    List<String> getCustomIncludePatterns() {
+        return customIncludePatterns;
+    }
+
+    VerdictCache<UserAgentVerdict> getVerdictCache() {
+        return verdictCache;
+    }
+
+    /**
+     * @return the hit counters of the records of these lists, or null when they are disabled
+     */
+    RecordHitCounters getRecordHits() {
+        return recordHits;
+    }
+
+    PrefilterStats getExcludePrefilterStats() {
+        return excludeUserAgents.getPrefilterStats();
+    }
+
+    /**
+     * @return the response decided by the custom lists, or null when they don't match
+     */
+    IabResponse checkCustomLists(CharSequence userAgent) {
+        if (metrics == null) {
+            return matchCustomLists(userAgent);
+        }
+        long start = System.nanoTime();
+        IabResponse response = matchCustomLists(userAgent);
+        metrics.recordStage(CheckStage.CUSTOM_LISTS, System.nanoTime() - start);
+        return response;
+    }
+
+    private IabResponse matchCustomLists(CharSequence userAgent) {
+        if (matchesAny(customIncludeUserAgents, userAgent)) {
+            return IabResponse.identifiedAsBrowser();
+        }
+
+        if (matchesAny(customExcludeUserAgents, userAgent)) {
+            return IabResponse.customExcludeCheckFailed();
+        }
+
+        return null;
+    }
+
+    boolean ipBelongs(InetAddress ipAddress) {
+        if (metrics == null) {
+            return ipRanges.belong(ipAddress);
+        }
+        long start = System.nanoTime();
+        boolean belongs = ipRanges.belong(ipAddress);
+        metrics.recordStage(CheckStage.IP_RANGES, System.nanoTime() - start);
+        return belongs;
+    }
+
+    boolean ipv4Belongs(int address) {
+        if (metrics == null) {
+            return ipRanges.belongIpv4(address);
+        }
+        long start = System.nanoTime();
+        boolean belongs = ipRanges.belongIpv4(address);
+        metrics.recordStage(CheckStage.IP_RANGES, System.nanoTime() - start);
+        return belongs;
+    }
+
+    boolean ipv6Belongs(long high, long low) {
+        if (metrics == null) {
+            return ipRanges.belongIpv6(high, low);
+        }
+        long start = System.nanoTime();
+        boolean belongs = ipRanges.belongIpv6(high, low);
+        metrics.recordStage(CheckStage.IP_RANGES, System.nanoTime() - start);
+        return belongs;
+    }
+
+    /**
+     * Only {@link String} user agents are cached, since other character sequences may be mutable.
+     */
+    IabResponse userAgentVerdict(CharSequence userAgent, long accurateAt) {
+        if (recordHits == null && (verdictCache == null || !(userAgent instanceof String))) {
+            return checkUserAgent(userAgent, accurateAt);
+        }
+
+        UserAgentVerdict verdict = verdictOf(userAgent, accurateAt);
+        countRecordHits(verdict);
+        return verdict.getResponse();
+    }
+
+    /**
+     * Same as {@link #userAgentVerdict(CharSequence, long)}, without counting record hits, for callers which
+     * share the verdict between checks and count it with {@link #countRecordHits(UserAgentVerdict)} for each.
+     */
+    UserAgentVerdict verdictOf(CharSequence userAgent, long accurateAt) {
+        if (verdictCache == null || !(userAgent instanceof String)) {
+            return evaluate(userAgent, accurateAt);
+        }
+
+        String key = (String) userAgent;
+        int bucket = timeBucket(accurateAt);
+        UserAgentVerdict verdict = verdictCache.get(key, bucket);
+        if (verdict == null) {
+            verdict = evaluate(userAgent, accurateAt);
+            verdictCache.put(key, bucket, verdict);
+        }
+        return verdict;
+    }
+
+    void countRecordHits(UserAgentVerdict verdict) {
+        if (recordHits != null) {
+            recordHits.count(verdict.getIncludeRecord(), verdict.getExcludeRecord());
+        }
+    }
+
+    private UserAgentVerdict evaluate(CharSequence userAgent, long accurateAt) {
+        if (recordHits == null) {
+            return UserAgentVerdict.of(checkUserAgent(userAgent, accurateAt));
+        }
+
+        long start = metrics == null ? 0 : System.nanoTime();
+        int includeRecord = includeUserAgents.presentRecord(userAgent, accurateAt);
+        long includeEnd = metrics == null ? 0 : System.nanoTime();
+        if (metrics != null) {
+            metrics.recordStage(CheckStage.INCLUDE_USER_AGENTS, includeEnd - start);
+        }
+        if (includeRecord == IncludeUserAgents.NO_RECORD) {
+            return UserAgentVerdict.of(IabResponse.includeCheckFailed());
+        }
+
+        int excludeRecord = excludeUserAgents.presentRecord(userAgent);
+        if (metrics != null) {
+            metrics.recordStage(CheckStage.EXCLUDE_USER_AGENTS, System.nanoTime() - includeEnd);
+        }
+        IabResponse response = toIabResponse(excludeUserAgents.checkResult(excludeRecord), accurateAt);
+        return new UserAgentVerdict(response, includeRecord, excludeRecord);
+    }
+
+    private IabResponse checkUserAgent(CharSequence userAgent, long accurateAt) {
+        if (metrics != null) {
+            return checkUserAgentTimed(userAgent, accurateAt);
+        }
+
+        if (!includeUserAgents.present(userAgent, accurateAt)) {
+            return IabResponse.includeCheckFailed();
+        }
+
+        return toIabResponse(excludeUserAgents.check(userAgent), accurateAt);
+    }
+
+    private IabResponse checkUserAgentTimed(CharSequence userAgent, long accurateAt) {
+        long start = System.nanoTime();
+        boolean included = includeUserAgents.present(userAgent, accurateAt);
+        long includeEnd = System.nanoTime();
+        metrics.recordStage(CheckStage.INCLUDE_USER_AGENTS, includeEnd - start);
+        if (!included) {
+            return IabResponse.includeCheckFailed();
+        }
+
+        ExcludeCheckResult result = excludeUserAgents.check(userAgent);
+        metrics.recordStage(CheckStage.EXCLUDE_USER_AGENTS, System.nanoTime() - includeEnd);
+        return toIabResponse(result, accurateAt);
+    }
+
+    /**
+     * The include and exclude verdicts for a user agent only change at the inactive dates of the records,
+     * so they are the same for any two times between which there is no inactive date.
+     *
+     * @return number of inactive dates not after the given time
+     */
+    int timeBucket(long accurateAt) {
+        int index = Arrays.binarySearch(inactiveDates, accurateAt);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private static boolean matchesAny(PatternAutomaton patterns, CharSequence userAgent) {
+        return patterns != null && userAgent != null && patterns.scan(userAgent).count() > 0;
+    }
+
+    private static IabResponse toIabResponse(ExcludeCheckResult result, long accurateAt) {
+        if (!result.isPresent()) {
+            return IabResponse.identifiedAsBrowser();
+        }
+
+        if (result.inactiveDateIsNotSet() || result.isBeforeInactiveDate(accurateAt)) {
+            return IabResponse.excludeCheckFailed(ACTIVE_SPIDER_OR_ROBOT, result.getPrimaryImpact());
+        }
+
+        return IabResponse.excludeCheckFailed(INACTIVE_SPIDER_OR_ROBOT, result.getPrimaryImpact());
+    }
+
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.MetricsSnapshot;
+
+/**
+ * Receives the metrics of an {@link IabClient}, for example to forward them to a monitoring system. See
+ * {@link IabClientConfig.Builder#metrics(MetricsSink, long)}.
+ */
+public interface MetricsSink {
+
+    /**
+     * Called on the thread publishing the metrics, never concurrently for the same client.
+     *
+     * @param metrics the counters and latencies accumulated since the client was created
+     */
+    void publish(MetricsSnapshot metrics);
+
+}
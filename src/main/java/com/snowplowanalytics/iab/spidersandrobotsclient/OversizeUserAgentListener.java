@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient;
+
+/**
+ * Receives a sample of the user agents longer than the maximum length of an {@link IabClient}, for example
+ * to find the clients sending them. See
+ * {@link IabClientConfig.Builder#maxUserAgentLength(int, OversizeUserAgentListener, int)}.
+ */
+public interface OversizeUserAgentListener {
+
+    /**
+     * Called on the checking thread, before the check, possibly concurrently; it should return quickly.
+     * Exceptions thrown are ignored.
+     *
+     * @param userAgent the whole user agent, before it is truncated
+     */
+    void onOversizeUserAgent(String userAgent);
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient;
+
+import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.IabClientErrors.batchColumnLengthsDifferError;
+
+/**
+ * The user agents of a batch for {@link IabClient#checkColumns(UserAgentColumns, IpAddressColumns, long[], int[])},
+ * as ISO-8859-1 bytes packed into a single array, the way HTTP headers and most logs carry them. They are
+ * matched byte by byte, without being decoded into strings.
+ * <p>
+ * The user agent of row i is made of the bytes of {@code data} from {@code offsets[i]}, inclusive, to
+ * {@code offsets[i + 1]}, exclusive, so there is one more offset than rows. Row i has no user agent when
+ * {@code missing[i]} is true; the column may be null when every row has one.
+ */
+public final class UserAgentColumns {
+
+    private final byte[] data;
+
+    private final int[] offsets;
+
+    private final boolean[] missing;
+
+    private UserAgentColumns(byte[] data, int[] offsets, boolean[] missing) {
+        this.data = data;
+        this.offsets = offsets;
+        this.missing = missing;
+    }
+
+    public static UserAgentColumns of(byte[] data, int[] offsets, boolean[] missing) {
+        if (offsets.length == 0 || (missing != null && missing.length != offsets.length - 1)) {
+            throw batchColumnLengthsDifferError();
+        }
+        return new UserAgentColumns(data, offsets, missing);
+    }
+
+    /**
+     * @return columns in which every row has a user agent
+     */
+    public static UserAgentColumns of(byte[] data, int[] offsets) {
+        return of(data, offsets, null);
+    }
+
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    public boolean hasUserAgent(int row) {
+        return missing == null || !missing[row];
+    }
+
+    byte[] data() {
+        return data;
+    }
+
+    public int offset(int row) {
+        return offsets[row];
+    }
+
+    public int length(int row) {
+        return offsets[row + 1] - offsets[row];
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.ExcludeUserAgents;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.IncludeUserAgents;
+
+/**
+ * The verdict of the include and exclude lists for a user agent, with the records which decided it when
+ * record hits are counted. Verdicts without records are shared per response.
+ */
+final class UserAgentVerdict {
+
+    private static final UserAgentVerdict[] WITHOUT_RECORDS = new UserAgentVerdict[IabResponseCodes.CODE_COUNT];
+
+    static {
+        for (int code = 0; code < WITHOUT_RECORDS.length; code++) {
+            IabResponse response = IabResponse.fromCode(code);
+            if (response != null) {
+                WITHOUT_RECORDS[code] = new UserAgentVerdict(response, IncludeUserAgents.NO_RECORD,
+                        ExcludeUserAgents.NO_RECORD);
+            }
+        }
+    }
+
+    private final IabResponse response;
+
+    private final int includeRecord;
+
+    private final int excludeRecord;
+
+    UserAgentVerdict(IabResponse response, int includeRecord, int excludeRecord) {
+        this.response = response;
+        this.includeRecord = includeRecord;
+        this.excludeRecord = excludeRecord;
+    }
+
+    static UserAgentVerdict of(IabResponse response) {
+        return WITHOUT_RECORDS[response.getCode()];
+    }
+
+    IabResponse getResponse() {
+        return response;
+    }
+
+    int getIncludeRecord() {
+        return includeRecord;
+    }
+
+    int getExcludeRecord() {
+        return excludeRecord;
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib;
+
+/**
+ * The stages of a check an IabClient measures the latency of.
+ */
+public enum CheckStage {
+
+    /**
+     * The custom include and exclude lists.
+     */
+    CUSTOM_LISTS,
+
+    /**
+     * The IP address list.
+     */
+    IP_RANGES,
+
+    /**
+     * The include list; skipped when the verdict cache already knows the user agent.
+     */
+    INCLUDE_USER_AGENTS,
+
+    /**
+     * The exclude list; skipped when the verdict cache already knows the user agent, or it isn't included.
+     */
+    EXCLUDE_USER_AGENTS,
+
+    /**
+     * The whole check.
+     */
+    TOTAL
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.LatencyHistogram;
+
+/**
+ * The latencies recorded for a {@link CheckStage}, in nanoseconds. Percentiles are known within 1/16 of their
+ * value.
+ */
+public final class LatencyDistribution {
+
+    private final long[] bucketCounts;
+
+    private final long count;
+
+    private final long sumNanos;
+
+    private final long maxNanos;
+
+    public LatencyDistribution(long[] bucketCounts, long sumNanos, long maxNanos) {
+        this.bucketCounts = bucketCounts;
+        long total = 0;
+        for (long bucketCount : bucketCounts) {
+            total += bucketCount;
+        }
+        this.count = total;
+        this.sumNanos = sumNanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSumNanos() {
+        return sumNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public double getMeanNanos() {
+        return count == 0 ? 0 : (double) sumNanos / count;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the latency the given percentage of the recorded ones don't exceed; 0 when none was recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * Math.min(Math.max(percentile, 0), 100) / 100));
+        long seen = 0;
+        for (int i = 0; i < bucketCounts.length; i++) {
+            seen += bucketCounts[i];
+            if (seen >= rank) {
+                // the last bucket also holds every latency above its bound
+                return i == bucketCounts.length - 1 ? maxNanos
+                        : Math.min(LatencyHistogram.bucketUpperBound(i), maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    /**
+     * @return the count of every bucket, for sinks exporting the whole distribution; bucket i holds the
+     * latencies up to {@link #getBucketUpperBoundNanos(int)} and above that of bucket i - 1
+     */
+    public long[] getBucketCounts() {
+        return bucketCounts.clone();
+    }
+
+    public static long getBucketUpperBoundNanos(int bucket) {
+        return LatencyHistogram.bucketUpperBound(bucket);
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyDistribution{count=" + count + ", meanNanos=" + getMeanNanos()
+                + ", p50Nanos=" + getPercentileNanos(50) + ", p99Nanos=" + getPercentileNanos(99)
+                + ", p999Nanos=" + getPercentileNanos(99.9) + ", maxNanos=" + maxNanos + '}';
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib;
+
+/**
+ * Describes the snapshot of the lists an IabClient currently checks against: its version and how long
+ * loading it took.
+ */
+public final class ListsSnapshotInfo {
+
+    private final long version;
+
+    private final long loadedAtMillis;
+
+    private final long ipRangesNanos;
+
+    private final long excludeUserAgentsNanos;
+
+    private final long includeUserAgentsNanos;
+
+    private final long customListsNanos;
+
+    public ListsSnapshotInfo(long version, long loadedAtMillis, long ipRangesNanos, long excludeUserAgentsNanos,
+                             long includeUserAgentsNanos, long customListsNanos) {
+        this.version = version;
+        this.loadedAtMillis = loadedAtMillis;
+        this.ipRangesNanos = ipRangesNanos;
+        this.excludeUserAgentsNanos = excludeUserAgentsNanos;
+        this.includeUserAgentsNanos = includeUserAgentsNanos;
+        this.customListsNanos = customListsNanos;
+    }
+
+    /**
+     * @return 1 for the lists the client was created with, increasing with every reload
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the time the snapshot finished loading, in epoch milliseconds
+     */
+    public long getLoadedAtMillis() {
+        return loadedAtMillis;
+    }
+
+    public long getIpRangesNanos() {
+        return ipRangesNanos;
+    }
+
+    public long getExcludeUserAgentsNanos() {
+        return excludeUserAgentsNanos;
+    }
+
+    public long getIncludeUserAgentsNanos() {
+        return includeUserAgentsNanos;
+    }
+
+    public long getCustomListsNanos() {
+        return customListsNanos;
+    }
+
+    /**
+     * @return time spent reading and compiling all the lists, in nanoseconds
+     */
+    public long getTotalNanos() {
+        return ipRangesNanos + excludeUserAgentsNanos + includeUserAgentsNanos + customListsNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ListsSnapshotInfo{version=" + version + ", loadedAtMillis=" + loadedAtMillis
+                + ", ipRangesNanos=" + ipRangesNanos + ", excludeUserAgentsNanos=" + excludeUserAgentsNanos
+                + ", includeUserAgentsNanos=" + includeUserAgentsNanos + ", customListsNanos=" + customListsNanos
+                + '}';
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib;
+
+/**
+ * How the include and exclude user agent lists are evaluated. All engines give the same answers.
+ */
+public enum MatchingEngine {
+
+    /**
+     * Tries every record in file order. This is the reference implementation the other engines are tested
+     * against.
+     */
+    LINEAR_SCAN,
+
+    /**
+     * Scans the user agent once with an automaton compiled from all records.
+     */
+    AUTOMATON,
+
+    /**
+     * Finds the positions of the user agent where any of the distinct patterns of all records may start, a
+     * vector of positions at a time with the Vector API, and compares only the patterns which may start there,
+     * when the JVM was started with {@code --add-modules jdk.incubator.vector}; otherwise it falls back to a
+     * scalar search of the patterns one after the other. Whether it beats {@link #AUTOMATON} depends on the
+     * hardware, the number of patterns and the length of the user agents, which {@code PatternSearchBenchmark}
+     * measures on a given machine. A snapshot keeps no search, which is built again by the JVM mapping it.
+     */
+    VECTOR;
+
+    public static final MatchingEngine DEFAULT = AUTOMATON;
+
+}
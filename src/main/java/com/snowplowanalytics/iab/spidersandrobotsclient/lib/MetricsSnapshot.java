@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Counters and latencies of the checks of an IabClient, accumulated since the client was created. Batch
+ * checks count every row.
+ */
+public final class MetricsSnapshot {
+
+    private final long checks;
+
+    private final Map<CheckReason, Long> byReason;
+
+    private final Map<UserAgentCategory, Long> byCategory;
+
+    private final Map<CheckStage, LatencyDistribution> latencies;
+
+    public MetricsSnapshot(long checks, Map<CheckReason, Long> byReason, Map<UserAgentCategory, Long> byCategory,
+                           Map<CheckStage, LatencyDistribution> latencies) {
+        this.checks = checks;
+        this.byReason = new EnumMap<>(byReason);
+        this.byCategory = new EnumMap<>(byCategory);
+        this.latencies = new EnumMap<>(latencies);
+    }
+
+    public long getChecks() {
+        return checks;
+    }
+
+    public long getChecks(CheckReason reason) {
+        return byReason.getOrDefault(reason, 0L);
+    }
+
+    public long getChecks(UserAgentCategory category) {
+        return byCategory.getOrDefault(category, 0L);
+    }
+
+    /**
+     * @return the latencies of the stage, or null when metrics are disabled
+     */
+    public LatencyDistribution getLatency(CheckStage stage) {
+        return latencies.get(stage);
+    }
+
+    @Override
+    public String toString() {
+        return "MetricsSnapshot{checks=" + checks + ", byReason=" + byReason + ", byCategory=" + byCategory
+                + ", latencies=" + latencies + '}';
+    }
+
+}
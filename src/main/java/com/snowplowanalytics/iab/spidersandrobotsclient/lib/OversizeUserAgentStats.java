@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib;
+
+/**
+ * Counters of the user agents an IabClient truncated to its maximum length, accumulated since the client
+ * was created.
+ */
+public final class OversizeUserAgentStats {
+
+    private final int maxLength;
+
+    private final long count;
+
+    private final long truncatedChars;
+
+    private final int longestLength;
+
+    public OversizeUserAgentStats(int maxLength, long count, long truncatedChars, int longestLength) {
+        this.maxLength = maxLength;
+        this.count = count;
+        this.truncatedChars = truncatedChars;
+        this.longestLength = longestLength;
+    }
+
+    /**
+     * @return the number of chars of a user agent which are examined
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * @return number of checks whose user agent was truncated
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return total number of chars left unexamined
+     */
+    public long getTruncatedChars() {
+        return truncatedChars;
+    }
+
+    /**
+     * @return length of the longest user agent checked, 0 when none was truncated
+     */
+    public int getLongestLength() {
+        return longestLength;
+    }
+
+    @Override
+    public String toString() {
+        return "OversizeUserAgentStats{maxLength=" + maxLength + ", count=" + count
+                + ", truncatedChars=" + truncatedChars + ", longestLength=" + longestLength + '}';
+    }
+
+}
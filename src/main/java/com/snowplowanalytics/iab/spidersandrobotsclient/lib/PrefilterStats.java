@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib;
+
+/**
+ * Counters of the prefilter of the exclude list, since the current lists were loaded.
+ */
+public final class PrefilterStats {
+
+    private final long checks;
+
+    private final long passed;
+
+    private final int grams;
+
+    private final int unfilterablePatterns;
+
+    public PrefilterStats(long checks, long passed, int grams, int unfilterablePatterns) {
+        this.checks = checks;
+        this.passed = passed;
+        this.grams = grams;
+        this.unfilterablePatterns = unfilterablePatterns;
+    }
+
+    /**
+     * @return number of user agents the prefilter examined
+     */
+    public long getChecks() {
+        return checks;
+    }
+
+    /**
+     * @return number of user agents passed on to the exact matching
+     */
+    public long getPassed() {
+        return passed;
+    }
+
+    /**
+     * @return share of the user agents passed on to the exact matching, 0 when none was examined; the lower,
+     * the more checks the prefilter saves
+     */
+    public double getPassThroughRate() {
+        return checks == 0 ? 0 : (double) passed / checks;
+    }
+
+    /**
+     * @return number of distinct 3-grams taken from the patterns
+     */
+    public int getGrams() {
+        return grams;
+    }
+
+    /**
+     * @return number of patterns too short to take a 3-gram from; when there is any, every user agent is
+     * passed on
+     */
+    public int getUnfilterablePatterns() {
+        return unfilterablePatterns;
+    }
+
+    @Override
+    public String toString() {
+        return "PrefilterStats{checks=" + checks + ", passed=" + passed + ", grams=" + grams
+                + ", unfilterablePatterns=" + unfilterablePatterns + '}';
+    }
+
+}
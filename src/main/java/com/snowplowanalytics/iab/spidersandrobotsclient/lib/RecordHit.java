@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A record of the include or exclude list and the number of checks it was found in.
+ */
+public final class RecordHit {
+
+    private final UserAgentList list;
+
+    private final int index;
+
+    private final String userAgentPattern;
+
+    private final boolean active;
+
+    private final boolean startOfString;
+
+    private final List<String> exceptionPatterns;
+
+    private final PrimaryImpact primaryImpact;
+
+    private final Date inactiveDate;
+
+    private final long hits;
+
+    public RecordHit(UserAgentList list, int index, String userAgentPattern, boolean active, boolean startOfString,
+                     String[] exceptionPatterns, PrimaryImpact primaryImpact, Date inactiveDate, long hits) {
+        this.list = list;
+        this.index = index;
+        this.userAgentPattern = userAgentPattern;
+        this.active = active;
+        this.startOfString = startOfString;
+        this.exceptionPatterns = Collections.unmodifiableList(Arrays.asList(exceptionPatterns.clone()));
+        this.primaryImpact = primaryImpact;
+        this.inactiveDate = inactiveDate == null ? null : new Date(inactiveDate.getTime());
+        this.hits = hits;
+    }
+
+    public UserAgentList getList() {
+        return list;
+    }
+
+    /**
+     * @return position of the record among the applicable records of its list, in file order
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the pattern, lower cased
+     */
+    public String getUserAgentPattern() {
+        return userAgentPattern;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public boolean isStartOfString() {
+        return startOfString;
+    }
+
+    /**
+     * @return the exception patterns of an exclude record; empty for include records
+     */
+    public List<String> getExceptionPatterns() {
+        return exceptionPatterns;
+    }
+
+    /**
+     * @return the primary impact of an exclude record; null for include records
+     */
+    public PrimaryImpact getPrimaryImpact() {
+        return primaryImpact;
+    }
+
+    /**
+     * @return the inactive date, or null when the record has none
+     */
+    public Date getInactiveDate() {
+        return inactiveDate == null ? null : new Date(inactiveDate.getTime());
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    @Override
+    public String toString() {
+        return "RecordHit{list=" + list + ", index=" + index + ", userAgentPattern='" + userAgentPattern + '\''
+                + ", active=" + active + ", startOfString=" + startOfString
+                + ", exceptionPatterns=" + exceptionPatterns + ", primaryImpact=" + primaryImpact
+                + ", inactiveDate=" + inactiveDate + ", hits=" + hits + '}';
+    }
+
+}
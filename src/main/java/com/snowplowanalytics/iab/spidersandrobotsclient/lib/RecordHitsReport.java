@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The records of the include and exclude lists of an IabClient with the number of checks each was found in,
+ * the most frequent first.
+ */
+public final class RecordHitsReport {
+
+    private static final String[] CSV_HEADER = {"list", "index", "user_agent_pattern", "active", "start_of_string",
+            "exception_patterns", "primary_impact", "inactive_date", "hits"};
+
+    private static final String INACTIVE_DATE_FORMAT = "MM/dd/yyyy";
+
+    private final long listsVersion;
+
+    private final long sinceMillis;
+
+    private final List<RecordHit> records;
+
+    public RecordHitsReport(long listsVersion, long sinceMillis, List<RecordHit> records) {
+        this.listsVersion = listsVersion;
+        this.sinceMillis = sinceMillis;
+        List<RecordHit> sorted = new ArrayList<>(records);
+        sorted.sort((a, b) -> Long.compare(b.getHits(), a.getHits()));
+        this.records = Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * @return the version of the lists the records belong to, as in ListsSnapshotInfo
+     */
+    public long getListsVersion() {
+        return listsVersion;
+    }
+
+    /**
+     * @return the time counting started, when the lists were loaded or the counters last reset, in epoch
+     * milliseconds
+     */
+    public long getSinceMillis() {
+        return sinceMillis;
+    }
+
+    /**
+     * @return every record of both lists, the most hit first, records with as many hits in file order
+     */
+    public List<RecordHit> getRecords() {
+        return records;
+    }
+
+    /**
+     * Writes the report as CSV with a header row, one row per record in the order of {@link #getRecords()}.
+     * Exception patterns are joined with commas, and inactive dates are written as in the IAB files.
+     */
+    public void writeCsv(Appendable out) throws IOException {
+        SimpleDateFormat dateFormat = new SimpleDateFormat(INACTIVE_DATE_FORMAT, Locale.ENGLISH);
+        CSVPrinter printer = new CSVPrinter(out, CSVFormat.DEFAULT.withHeader(CSV_HEADER));
+        for (RecordHit record : records) {
+            printer.printRecord(record.getList(), record.getIndex(), record.getUserAgentPattern(),
+                    record.isActive(), record.isStartOfString(), String.join(",", record.getExceptionPatterns()),
+                    record.getPrimaryImpact() == null ? "" : record.getPrimaryImpact(),
+                    record.getInactiveDate() == null ? "" : dateFormat.format(record.getInactiveDate()),
+                    record.getHits());
+        }
+        printer.flush();
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.MatchingEngine;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.StripedCounters;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The order in which the {@link MatchingEngine#LINEAR_SCAN} engine tries the records of the include list
+ * when any record present will do, the records most often present first.
+ * <p>
+ * The record found is counted for one check in {@link #SAMPLE_EVERY} only. Every
+ * {@link #SAMPLES_PER_PUBLISH} counted checks, the thread counting the last one sorts the records by count,
+ * ties in file order, and publishes the new order; checks read the order without locking, and one running
+ * meanwhile keeps the order it started with.
+ */
+final class AdaptiveRecordOrder {
+
+    static final int SAMPLE_EVERY = 16;
+
+    static final int SAMPLES_PER_PUBLISH = 1024;
+
+    private final StripedCounters hits;
+
+    private final AtomicInteger untilPublish = new AtomicInteger(SAMPLES_PER_PUBLISH);
+
+    private volatile int[] order;
+
+    AdaptiveRecordOrder(int size) {
+        this.hits = new StripedCounters(size);
+        this.order = new int[size];
+        Arrays.setAll(order, i -> i);
+    }
+
+    /**
+     * @return the indexes of the records, in the order to try them
+     */
+    int[] get() {
+        return order;
+    }
+
+    /**
+     * @param record index of the record found
+     */
+    void found(int record) {
+        if (ThreadLocalRandom.current().nextInt(SAMPLE_EVERY) != 0) {
+            return;
+        }
+        hits.increment(record);
+        if (untilPublish.decrementAndGet() == 0) {
+            publish();
+            untilPublish.set(SAMPLES_PER_PUBLISH);
+        }
+    }
+
+    void publish() {
+        // the count in the high half, complemented so that sorting puts the highest first, the index below
+        long[] keys = new long[hits.size()];
+        for (int i = 0; i < keys.length; i++) {
+            long count = Math.min(hits.sum(i), Integer.MAX_VALUE);
+            keys[i] = (Integer.MAX_VALUE - count) << 32 | i;
+        }
+        Arrays.sort(keys);
+        int[] sorted = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            sorted[i] = (int) keys[i];
+        }
+        order = sorted;
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.IabResponseCodes;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.CheckReason;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.CheckStage;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.LatencyDistribution;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.MetricsSnapshot;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.UserAgentCategory;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the checks of a client: a {@link LongAdder} per response code, from which the counts per reason and
+ * category are summed, and a {@link LatencyHistogram} per stage.
+ */
+public final class CheckMetrics {
+
+    private static final CheckStage[] STAGES = CheckStage.values();
+
+    private final LongAdder[] checksByCode = new LongAdder[IabResponseCodes.CODE_COUNT];
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[STAGES.length];
+
+    public CheckMetrics() {
+        for (int code = 0; code < checksByCode.length; code++) {
+            checksByCode[code] = new LongAdder();
+        }
+        for (int stage = 0; stage < latencies.length; stage++) {
+            latencies[stage] = new LatencyHistogram();
+        }
+    }
+
+    public void recordCheck(int code, long nanos) {
+        checksByCode[code].increment();
+        latencies[CheckStage.TOTAL.ordinal()].record(nanos);
+    }
+
+    public void recordStage(CheckStage stage, long nanos) {
+        latencies[stage.ordinal()].record(nanos);
+    }
+
+    public MetricsSnapshot snapshot() {
+        long checks = 0;
+        Map<CheckReason, Long> byReason = new EnumMap<>(CheckReason.class);
+        Map<UserAgentCategory, Long> byCategory = new EnumMap<>(UserAgentCategory.class);
+        for (int code = 0; code < checksByCode.length; code++) {
+            long count = checksByCode[code].sum();
+            if (count > 0) {
+                checks += count;
+                byReason.merge(IabResponseCodes.reason(code), count, Long::sum);
+                byCategory.merge(IabResponseCodes.category(code), count, Long::sum);
+            }
+        }
+
+        Map<CheckStage, LatencyDistribution> stageLatencies = new EnumMap<>(CheckStage.class);
+        for (CheckStage stage : STAGES) {
+            LatencyHistogram histogram = latencies[stage.ordinal()];
+            stageLatencies.put(stage,
+                    new LatencyDistribution(histogram.bucketCounts(), histogram.sum(), histogram.max()));
+        }
+        return new MetricsSnapshot(checks, byReason, byCategory, stageLatencies);
+    }
+
+}
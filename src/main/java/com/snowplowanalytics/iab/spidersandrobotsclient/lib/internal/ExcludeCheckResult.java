@@ -13,18 +13,21 @@
 package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
 
 import com.snowplowanalytics.iab.spidersandrobotsclient.lib.PrimaryImpact;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.IabFile;
 
 import java.util.Date;
 
 public class ExcludeCheckResult {
 
+    private static final ExcludeCheckResult NOT_PRESENT = new ExcludeCheckResult(false, IabFile.NO_DATE, null);
+
     private final boolean present;
 
-    private final Date inactiveDate;
+    private final long inactiveDate;
 
     private final PrimaryImpact primaryImpact;
 
-    private ExcludeCheckResult(boolean present, Date inactiveDate, PrimaryImpact primaryImpact) {
+    private ExcludeCheckResult(boolean present, long inactiveDate, PrimaryImpact primaryImpact) {
         this.present = present;
         this.inactiveDate = inactiveDate;
         this.primaryImpact = primaryImpact;
@@ -35,27 +38,28 @@ public class ExcludeCheckResult {
     }
 
     public boolean inactiveDateIsNotSet() {
-        return inactiveDate == null;
+        return inactiveDate == IabFile.NO_DATE;
     }
 
     public boolean isBeforeInactiveDate(Date accurateAt) {
-        return accurateAt.compareTo(inactiveDate) < 0;
+        return isBeforeInactiveDate(accurateAt.getTime());
+    }
+
+    public boolean isBeforeInactiveDate(long accurateAt) {
+        return accurateAt < inactiveDate;
     }
 
     public PrimaryImpact getPrimaryImpact() {
         return primaryImpact;
     }
 
-    static ExcludeCheckResult present(Date inactiveDate, PrimaryImpact primaryImpact) {
+    static ExcludeCheckResult present(long inactiveDate, PrimaryImpact primaryImpact) {
         final boolean present = true;
         return new ExcludeCheckResult(present, inactiveDate, primaryImpact);
     }
 
     static ExcludeCheckResult notPresent() {
-        final boolean present = false;
-        final Date inactiveDate = null;
-        final PrimaryImpact primaryImpact = null;
-        return new ExcludeCheckResult(present, inactiveDate, primaryImpact);
+        return NOT_PRESENT;
     }
 
 }
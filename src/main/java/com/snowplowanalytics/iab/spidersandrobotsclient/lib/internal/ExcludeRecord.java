@@ -15,46 +15,96 @@ package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
 import com.snowplowanalytics.iab.spidersandrobotsclient.lib.PrimaryImpact;
 import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.CsvUtils;
 import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.IabFile;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotReader;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotWriter;
 import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Date;
 import java.util.List;
 
+/**
+ * A record of the exclude list. Everything a check needs is resolved when the record is loaded: exception
+ * patterns are split, the inactive date is parsed and the primary impact flag is resolved (records which
+ * can never be present aren't validated).
+ */
 public class ExcludeRecord {
 
     private static final String EXCEPTION_PATTERNS_SEPARATOR = ",";
 
+    private static final String[] NO_PATTERNS = new String[0];
+
+    private static final PrimaryImpact[] PRIMARY_IMPACTS = PrimaryImpact.values();
+
+    private static final int NO_PRIMARY_IMPACT = -1;
+
     private final String userAgentPattern;
 
     private final boolean active;
 
-    private final String exceptionPatterns;
+    private final String[] exceptionPatterns;
 
-    private final String primaryImpactFlag;
+    private final PrimaryImpact primaryImpact;
 
     private final boolean startOfStringFlag;
 
-    private final String inactiveDate;
+    private final long inactiveDate;
+
+    private final ExcludeCheckResult checkResult;
 
     public ExcludeRecord(CSVRecord record) {
         userAgentPattern = CsvUtils.getLowCaseString(record, 0);
         active = CsvUtils.getBoolean(record, 1, false);
-        exceptionPatterns = CsvUtils.getLowCaseString(record, 2);
+        exceptionPatterns = toPatterns(CsvUtils.getLowCaseString(record, 2));
 
         // isn't used, because of previous check for valid UA should fail for such record
         // additionalFlag = CsvUtils.getInteger(record, 3);
 
-        primaryImpactFlag = CsvUtils.getString(record, 4);
         startOfStringFlag = CsvUtils.getBoolean(record, 5, false);
-        inactiveDate = CsvUtils.getString(record, 6);
+        inactiveDate = IabFile.parseDateMillis(CsvUtils.getString(record, 6));
+
+        if (isApplicable()) {
+            primaryImpact = PrimaryImpact.fromPrimaryImpactFlag(CsvUtils.getString(record, 4));
+            checkResult = ExcludeCheckResult.present(inactiveDate, primaryImpact);
+        } else {
+            primaryImpact = null;
+            checkResult = ExcludeCheckResult.notPresent();
+        }
+    }
+
+    private ExcludeRecord(String userAgentPattern, boolean active, String[] exceptionPatterns,
+                          PrimaryImpact primaryImpact, boolean startOfStringFlag, long inactiveDate) {
+        this.userAgentPattern = userAgentPattern;
+        this.active = active;
+        this.exceptionPatterns = exceptionPatterns;
+        this.primaryImpact = primaryImpact;
+        this.startOfStringFlag = startOfStringFlag;
+        this.inactiveDate = inactiveDate;
+        this.checkResult = primaryImpact == null ?
+                ExcludeCheckResult.notPresent() : ExcludeCheckResult.present(inactiveDate, primaryImpact);
+    }
+
+    public void writeTo(SnapshotWriter out) {
+        out.writeString(userAgentPattern).writeBoolean(active).writeStrings(exceptionPatterns)
+                .writeInt(primaryImpact == null ? NO_PRIMARY_IMPACT : primaryImpact.ordinal())
+                .writeBoolean(startOfStringFlag).writeLong(inactiveDate);
+    }
+
+    public static ExcludeRecord readFrom(SnapshotReader in) {
+        String userAgentPattern = in.readString();
+        boolean active = in.readBoolean();
+        String[] exceptionPatterns = in.readStrings();
+        int primaryImpact = in.readInt();
+        boolean startOfString = in.readBoolean();
+        long inactiveDate = in.readLong();
+        return new ExcludeRecord(userAgentPattern, active, exceptionPatterns,
+                primaryImpact == NO_PRIMARY_IMPACT ? null : PRIMARY_IMPACTS[primaryImpact], startOfString,
+                inactiveDate);
     }
 
     public boolean isPresent(String userAgentLowCase) {
-        if (!active && inactiveDateIsNotSet()) {
+        if (!isApplicable()) {
             return false;
         }
 
@@ -67,9 +117,7 @@ public class ExcludeRecord {
     }
 
     private boolean isExceptionPatternPresent(String userAgentLowCase) {
-        List<String> patterns = toPatternsList(exceptionPatterns);
-
-        for (String pattern : patterns) {
+        for (String pattern : exceptionPatterns) {
             if (StringUtils.contains(userAgentLowCase, pattern)) {
                 return true;
             }
@@ -78,10 +126,10 @@ public class ExcludeRecord {
         return false;
     }
 
-    private List<String> toPatternsList(String patterns) {
+    private static String[] toPatterns(String patterns) {
         String[] parts = StringUtils.split(patterns, EXCEPTION_PATTERNS_SEPARATOR);
         if (ArrayUtils.isEmpty(parts)) {
-            return Collections.emptyList();
+            return NO_PATTERNS;
         }
 
         List<String> result = new ArrayList<>(parts.length);
@@ -93,19 +141,48 @@ public class ExcludeRecord {
             }
         }
 
-        return result;
+        return result.toArray(NO_PATTERNS);
+    }
+
+    /**
+     * Inactive records without an inactive date can never be present.
+     */
+    public boolean isApplicable() {
+        return active || inactiveDate != IabFile.NO_DATE;
     }
 
-    private boolean inactiveDateIsNotSet() {
-        return getInactiveDateAsDate() == null;
+    public boolean isActive() {
+        return active;
     }
 
-    public Date getInactiveDateAsDate() {
-        return IabFile.parseDate(inactiveDate);
+    public String getUserAgentPattern() {
+        return userAgentPattern;
+    }
+
+    public boolean isStartOfString() {
+        return startOfStringFlag;
+    }
+
+    public String[] getExceptionPatterns() {
+        return exceptionPatterns.clone();
+    }
+
+    /**
+     * @return the inactive date in epoch milliseconds, or {@link IabFile#NO_DATE}
+     */
+    public long getInactiveDate() {
+        return inactiveDate;
     }
 
     public PrimaryImpact getPrimaryImpact() {
-        return PrimaryImpact.fromPrimaryImpactFlag(primaryImpactFlag);
+        return primaryImpact;
+    }
+
+    /**
+     * @return the result of a check which found this record, shared by all such checks
+     */
+    public ExcludeCheckResult toCheckResult() {
+        return checkResult;
     }
 
 }
@@ -12,7 +12,11 @@
  */
 package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
 
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.MatchingEngine;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.PrefilterStats;
 import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.IabFile;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotReader;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotWriter;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.io.IOUtils;
@@ -20,43 +24,321 @@ import org.apache.commons.io.IOUtils;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.apache.commons.io.IOUtils.buffer;
 
+/**
+ * The exclude list. A check reports the first record, in file order, whose user agent pattern is present
+ * and none of whose exception patterns are. With the {@link MatchingEngine#AUTOMATON} engine the user agent
+ * patterns of the records matched anywhere and the exception patterns of all records are compiled into a
+ * {@link PatternAutomaton}, so the user agent is scanned only once, and the user agent patterns of the
+ * records matched at the start of the user agent into an {@link PatternAutomaton#compileAnchored(List)
+ * anchored} one, which only reads as far into the user agent as the longest of them. The
+ * {@link MatchingEngine#VECTOR} engine groups the patterns the same way, but looks for them with a
+ * {@link PatternSearch} each.
+ */
 public class ExcludeUserAgents {
 
+    /**
+     * Index returned by {@link #presentRecord(CharSequence)} when no record is present.
+     */
+    public static final int NO_RECORD = -1;
+
+    private static final int NOT_FOUND = Integer.MAX_VALUE;
+
     private final List<ExcludeRecord> records = new ArrayList<>();
 
+    private final MatchingEngine engine;
+
+    private PatternAutomaton automaton;
+
+    private int[][] recordsByPattern;
+
+    private int[][] exceptionsByRecord;
+
+    private PatternAutomaton anchoredAutomaton;
+
+    private int[][] recordsByAnchoredPattern;
+
+    private PatternSearch search;
+
+    private PatternSearch anchoredSearch;
+
+    private NgramPrefilter prefilter;
+
     public ExcludeUserAgents(InputStream stream) throws IOException {
+        this(stream, MatchingEngine.DEFAULT);
+    }
+
+    public ExcludeUserAgents(InputStream stream, MatchingEngine engine) throws IOException {
+        this(stream, engine, false);
+    }
+
+    /**
+     * @param prefilter whether to rule out the user agents which can't contain any pattern with an
+     *                  {@link NgramPrefilter} before matching the records
+     */
+    public ExcludeUserAgents(InputStream stream, MatchingEngine engine, boolean prefilter) throws IOException {
+        this.engine = engine;
         try {
             parseRecords(stream);
         } finally {
             IOUtils.closeQuietly(stream);
         }
+        if (engine != MatchingEngine.LINEAR_SCAN) {
+            compile();
+        }
+        if (prefilter) {
+            buildPrefilter();
+        }
+    }
+
+    private ExcludeUserAgents(MatchingEngine engine) {
+        this.engine = engine;
+    }
+
+    public void writeTo(SnapshotWriter out) {
+        out.writeInt(engine.ordinal()).writeInt(records.size());
+        for (ExcludeRecord record : records) {
+            record.writeTo(out);
+        }
+        if (engine == MatchingEngine.AUTOMATON) {
+            automaton.writeTo(out);
+            out.writeIntRows(recordsByPattern).writeIntRows(exceptionsByRecord);
+            anchoredAutomaton.writeTo(out);
+            out.writeIntRows(recordsByAnchoredPattern);
+        }
+    }
+
+    /**
+     * @param engine    the engine to match the list with; the automatons written for
+     *                  {@link MatchingEngine#AUTOMATON} are read when both the list was exported with it and it
+     *                  is asked for, otherwise the list is compiled again from its records
+     * @param prefilter whether to build an {@link NgramPrefilter}, which is not part of the snapshot
+     * @throws IllegalArgumentException when the list was exported with an unknown engine
+     */
+    public static ExcludeUserAgents readFrom(SnapshotReader in, MatchingEngine engine, boolean prefilter) {
+        MatchingEngine exportedWith = SnapshotFile.readEngine(in);
+        ExcludeUserAgents agents = new ExcludeUserAgents(engine);
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            agents.records.add(ExcludeRecord.readFrom(in));
+        }
+        if (exportedWith == MatchingEngine.AUTOMATON) {
+            PatternAutomaton automaton = PatternAutomaton.readFrom(in);
+            int[][] recordsByPattern = in.readIntRows();
+            int[][] exceptionsByRecord = in.readIntRows();
+            PatternAutomaton anchoredAutomaton = PatternAutomaton.readFrom(in);
+            int[][] recordsByAnchoredPattern = in.readIntRows();
+            if (engine == MatchingEngine.AUTOMATON) {
+                agents.automaton = automaton;
+                agents.recordsByPattern = recordsByPattern;
+                agents.exceptionsByRecord = exceptionsByRecord;
+                agents.anchoredAutomaton = anchoredAutomaton;
+                agents.recordsByAnchoredPattern = recordsByAnchoredPattern;
+            }
+        }
+        if (engine != MatchingEngine.LINEAR_SCAN && agents.recordsByPattern == null) {
+            agents.compile();
+        }
+        if (prefilter) {
+            agents.buildPrefilter();
+        }
+        return agents;
     }
 
     private void parseRecords(InputStream stream) throws IOException {
         CSVParser parser = IabFile.createParser(buffer(stream));
         for (CSVRecord record : parser) {
-            records.add(new ExcludeRecord(record));
+            ExcludeRecord excludeRecord = new ExcludeRecord(record);
+            if (excludeRecord.isApplicable() && excludeRecord.getUserAgentPattern() != null) {
+                records.add(excludeRecord);
+            }
         }
     }
 
-    public ExcludeCheckResult check(String userAgent) {
-        return checkLowerCase(IabFile.toLowerCase(userAgent));
+    private void compile() {
+        Map<String, Integer> patternIds = new HashMap<>();
+        List<String> patterns = new ArrayList<>();
+        List<List<Integer>> recordLists = new ArrayList<>();
+        Map<String, Integer> anchoredPatternIds = new HashMap<>();
+        List<String> anchoredPatterns = new ArrayList<>();
+        List<List<Integer>> anchoredRecordLists = new ArrayList<>();
+
+        exceptionsByRecord = new int[records.size()][];
+        for (int i = 0; i < records.size(); i++) {
+            ExcludeRecord record = records.get(i);
+            if (record.isStartOfString()) {
+                anchoredRecordLists.get(patternId(record.getUserAgentPattern(), anchoredPatternIds,
+                        anchoredPatterns, anchoredRecordLists)).add(i);
+            } else {
+                recordLists.get(patternId(record.getUserAgentPattern(), patternIds, patterns, recordLists)).add(i);
+            }
+
+            String[] exceptionPatterns = record.getExceptionPatterns();
+            exceptionsByRecord[i] = new int[exceptionPatterns.length];
+            for (int j = 0; j < exceptionPatterns.length; j++) {
+                exceptionsByRecord[i][j] = patternId(exceptionPatterns[j], patternIds, patterns, recordLists);
+            }
+        }
+
+        recordsByPattern = toRows(recordLists);
+        recordsByAnchoredPattern = toRows(anchoredRecordLists);
+        if (engine == MatchingEngine.AUTOMATON) {
+            automaton = PatternAutomaton.compile(patterns);
+            anchoredAutomaton = PatternAutomaton.compileAnchored(anchoredPatterns);
+        } else {
+            search = PatternSearch.create(patterns, false);
+            anchoredSearch = PatternSearch.create(anchoredPatterns, true);
+        }
     }
 
-    public ExcludeCheckResult checkLowerCase(String userAgentLowerCase) {
+    private void buildPrefilter() {
+        List<String> patterns = new ArrayList<>(records.size());
         for (ExcludeRecord record : records) {
-            if (record.isPresent(userAgentLowerCase)) {
-                return ExcludeCheckResult.present(
-                        record.getInactiveDateAsDate(), record.getPrimaryImpact()
-                );
+            patterns.add(record.getUserAgentPattern());
+        }
+        prefilter = NgramPrefilter.build(patterns);
+    }
+
+    private static int[][] toRows(List<List<Integer>> recordLists) {
+        int[][] rows = new int[recordLists.size()][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = recordLists.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+        return rows;
+    }
+
+    private static int patternId(String pattern, Map<String, Integer> patternIds, List<String> patterns,
+                                 List<List<Integer>> recordLists) {
+        Integer id = patternIds.get(pattern);
+        if (id == null) {
+            id = patterns.size();
+            patternIds.put(pattern, id);
+            patterns.add(pattern);
+            recordLists.add(new ArrayList<>());
+        }
+        return id;
+    }
+
+    /**
+     * @return the distinct inactive dates of all records, in epoch milliseconds
+     */
+    public long[] getInactiveDates() {
+        return records.stream().mapToLong(ExcludeRecord::getInactiveDate)
+                .filter(date -> date != IabFile.NO_DATE).distinct().toArray();
+    }
+
+    /**
+     * Checks the user agent in any case. With the {@link MatchingEngine#AUTOMATON} engine this allocates
+     * nothing for ISO-8859-1 user agents.
+     */
+    public ExcludeCheckResult check(CharSequence userAgent) {
+        return checkResult(presentRecord(userAgent));
+    }
+
+    /**
+     * Same as {@link #check(CharSequence)}, but tells which record is present.
+     *
+     * @return index in {@link #getRecords()} of the first record present, or {@link #NO_RECORD}
+     */
+    public int presentRecord(CharSequence userAgent) {
+        if (userAgent == null || prefilter != null && !prefilter.mayMatch(userAgent)) {
+            return NO_RECORD;
+        }
+
+        int index = engine == MatchingEngine.LINEAR_SCAN ?
+                firstPresentRecord(IabFile.toLowerCase(userAgent.toString())) : firstPresentRecordScanned(userAgent);
+        return index == NOT_FOUND ? NO_RECORD : index;
+    }
+
+    /**
+     * @param record an index returned by {@link #presentRecord(CharSequence)}
+     */
+    public ExcludeCheckResult checkResult(int record) {
+        return record == NO_RECORD ? ExcludeCheckResult.notPresent() : records.get(record).toCheckResult();
+    }
+
+    /**
+     * @return the counters of the prefilter, or null when there is none
+     */
+    public PrefilterStats getPrefilterStats() {
+        return prefilter == null ? null : prefilter.stats();
+    }
+
+    /**
+     * @return the applicable records, in file order
+     */
+    public List<ExcludeRecord> getRecords() {
+        return Collections.unmodifiableList(records);
+    }
+
+    public ExcludeCheckResult checkLowerCase(String userAgentLowerCase) {
+        if (userAgentLowerCase == null || prefilter != null && !prefilter.mayMatch(userAgentLowerCase)) {
+            return ExcludeCheckResult.notPresent();
+        }
+
+        int index = engine == MatchingEngine.LINEAR_SCAN ?
+                firstPresentRecord(userAgentLowerCase) : firstPresentRecordScanned(userAgentLowerCase);
+        return toCheckResult(index);
+    }
+
+    private ExcludeCheckResult toCheckResult(int index) {
+        return index == NOT_FOUND ? ExcludeCheckResult.notPresent() : records.get(index).toCheckResult();
+    }
+
+    private int firstPresentRecord(String userAgentLowerCase) {
+        for (int i = 0; i < records.size(); i++) {
+            if (records.get(i).isPresent(userAgentLowerCase)) {
+                return i;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    private int firstPresentRecordScanned(CharSequence userAgent) {
+        return engine == MatchingEngine.AUTOMATON ?
+                firstPresentRecord(automaton.scan(userAgent), anchoredAutomaton.scan(userAgent)) :
+                firstPresentRecord(search.scan(userAgent), anchoredSearch.scan(userAgent));
+    }
+
+    /**
+     * @param matches         the scan of the patterns matched anywhere, which also tells the exception patterns
+     *                        present
+     * @param anchoredMatches the scan of the patterns matched at the start
+     */
+    private int firstPresentRecord(PatternAutomaton.Matches matches, PatternAutomaton.Matches anchoredMatches) {
+        int first = firstPresentRecord(anchoredMatches, recordsByAnchoredPattern, matches, NOT_FOUND);
+        return firstPresentRecord(matches, recordsByPattern, matches, first);
+    }
+
+    private int firstPresentRecord(PatternAutomaton.Matches found, int[][] recordsByFoundPattern,
+                                   PatternAutomaton.Matches matches, int first) {
+        for (int i = 0; i < found.count(); i++) {
+            for (int index : recordsByFoundPattern[found.get(i)]) {
+                if (index >= first) {
+                    break;
+                }
+                if (isPresent(index, matches)) {
+                    first = index;
+                    break;
+                }
             }
         }
+        return first;
+    }
 
-        return ExcludeCheckResult.notPresent();
+    private boolean isPresent(int index, PatternAutomaton.Matches matches) {
+        for (int exception : exceptionsByRecord[index]) {
+            if (matches.contains(exception)) {
+                return false;
+            }
+        }
+        return true;
     }
 
 }
@@ -12,6 +12,11 @@
  */
 package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
 
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.MatchingEngine;
+
+import java.io.File;
+import java.io.IOException;
+
 public final class IabClientErrors {
 
     private IabClientErrors() {
@@ -26,4 +31,41 @@ public final class IabClientErrors {
         return new IllegalArgumentException("The accurateAt must not be null");
     }
 
+    public static IllegalArgumentException negativeVerdictCacheWeightError() {
+        return new IllegalArgumentException("The verdict cache weight must not be negative");
+    }
+
+    public static IllegalArgumentException nonPositiveMetricsPeriodError() {
+        return new IllegalArgumentException("The metrics period must be positive");
+    }
+
+    public static IllegalArgumentException nonPositiveMaxUserAgentLengthError() {
+        return new IllegalArgumentException("The maximum user agent length must be positive");
+    }
+
+    public static IllegalArgumentException maxUserAgentLengthWithoutAutomatonError(MatchingEngine engine) {
+        return new IllegalArgumentException("A maximum user agent length needs the AUTOMATON matching engine, not "
+                + engine);
+    }
+
+    public static IllegalArgumentException nonPositiveSampleEveryError() {
+        return new IllegalArgumentException("The sampling of oversize user agents must be positive");
+    }
+
+    public static IllegalArgumentException batchColumnLengthsDifferError() {
+        return new IllegalArgumentException("All columns of a batch must have the same length");
+    }
+
+    public static IllegalArgumentException unknownMatchingEngineError(int ordinal) {
+        return new IllegalArgumentException("Unknown matching engine " + ordinal);
+    }
+
+    public static IOException listsDirectoryNotWatchedError(Object directory) {
+        return new IOException("The directory " + directory + " of the IAB lists can no longer be watched");
+    }
+
+    public static IOException invalidSnapshotError(File file, String reason) {
+        return new IOException("Invalid lists snapshot " + file + ": " + reason);
+    }
+
 }
@@ -14,11 +14,16 @@ package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
 
 import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.CsvUtils;
 import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.IabFile;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotReader;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotWriter;
 import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.Date;
 
+/**
+ * A record of the include list, with the inactive date parsed when the record is loaded.
+ */
 public class IncludeRecord {
 
     private final String userAgentPattern;
@@ -27,13 +32,29 @@ public class IncludeRecord {
 
     private final boolean startOfStringFlag;
 
-    private final String inactiveDate;
+    private final long inactiveDate;
 
     public IncludeRecord(CSVRecord record) {
         userAgentPattern = CsvUtils.getLowCaseString(record, 0);
         active = CsvUtils.getBoolean(record, 1, false);
         startOfStringFlag = CsvUtils.getBoolean(record, 2, false);
-        inactiveDate = CsvUtils.getString(record, 3);
+        inactiveDate = IabFile.parseDateMillis(CsvUtils.getString(record, 3));
+    }
+
+    private IncludeRecord(String userAgentPattern, boolean active, boolean startOfStringFlag, long inactiveDate) {
+        this.userAgentPattern = userAgentPattern;
+        this.active = active;
+        this.startOfStringFlag = startOfStringFlag;
+        this.inactiveDate = inactiveDate;
+    }
+
+    public void writeTo(SnapshotWriter out) {
+        out.writeString(userAgentPattern).writeBoolean(active).writeBoolean(startOfStringFlag)
+                .writeLong(inactiveDate);
+    }
+
+    public static IncludeRecord readFrom(SnapshotReader in) {
+        return new IncludeRecord(in.readString(), in.readBoolean(), in.readBoolean(), in.readLong());
     }
 
     public boolean isPresent(String userAgentLowCase) {
@@ -41,17 +62,38 @@ public class IncludeRecord {
                 StringUtils.contains(userAgentLowCase, userAgentPattern);
     }
 
+    public String getUserAgentPattern() {
+        return userAgentPattern;
+    }
+
+    public boolean isStartOfString() {
+        return startOfStringFlag;
+    }
+
+    /**
+     * Inactive records without an inactive date can never be present.
+     */
+    public boolean isApplicable() {
+        return active || inactiveDate != IabFile.NO_DATE;
+    }
+
     public boolean isActive() {
         return active;
     }
 
     public boolean isBeforeInactiveDate(Date accurateAt) {
-        Date inactiveDate = getInactiveDateAsDate();
-        return inactiveDate != null && accurateAt.compareTo(inactiveDate) < 0;
+        return isBeforeInactiveDate(accurateAt.getTime());
+    }
+
+    public boolean isBeforeInactiveDate(long accurateAt) {
+        return inactiveDate != IabFile.NO_DATE && accurateAt < inactiveDate;
     }
 
-    private Date getInactiveDateAsDate() {
-        return IabFile.parseDate(inactiveDate);
+    /**
+     * @return the inactive date in epoch milliseconds, or {@link IabFile#NO_DATE}
+     */
+    public long getInactiveDate() {
+        return inactiveDate;
     }
 
 }
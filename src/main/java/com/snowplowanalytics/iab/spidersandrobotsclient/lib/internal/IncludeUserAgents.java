@@ -12,8 +12,11 @@
  */
 package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
 
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.MatchingEngine;
 import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.DateUtils;
 import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.IabFile;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotReader;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotWriter;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.io.IOUtils;
@@ -21,42 +24,343 @@ import org.apache.commons.io.IOUtils;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.apache.commons.io.IOUtils.buffer;
 
+/**
+ * The include list. With the {@link MatchingEngine#AUTOMATON} engine the distinct user agent patterns of
+ * the records matched anywhere are compiled into a {@link PatternAutomaton}, and those of the records matched
+ * at the start of the user agent into an {@link PatternAutomaton#compileAnchored(List) anchored} one. Every
+ * pattern carries the latest time at which any of its records still applies, so a check is a walk over the
+ * first chars of the user agent, which decides most browsers, then at most a single scan over it. The
+ * {@link MatchingEngine#VECTOR} engine groups the patterns the same way, but looks for them with a
+ * {@link PatternSearch} each. The {@link MatchingEngine#LINEAR_SCAN} engine may try the records in an
+ * {@link AdaptiveRecordOrder adaptive order}, the records most often present first, when any record present
+ * will do.
+ */
 public class IncludeUserAgents {
 
+    private static final long ALWAYS = Long.MAX_VALUE;
+
+    private static final long NEVER = Long.MIN_VALUE;
+
+    /**
+     * Index returned by {@link #presentRecord(CharSequence, long)} when no record is present.
+     */
+    public static final int NO_RECORD = -1;
+
     private final List<IncludeRecord> records = new ArrayList<>();
 
+    private final MatchingEngine engine;
+
+    private PatternAutomaton automaton;
+
+    private PatternAutomaton anchoredAutomaton;
+
+    private long[] horizonAnywhere;
+
+    private long[] horizonAtStart;
+
+    private int[][] recordsByPattern;
+
+    private int[][] recordsByAnchoredPattern;
+
+    private PatternSearch search;
+
+    private PatternSearch anchoredSearch;
+
+    private AdaptiveRecordOrder recordOrder;
+
     public IncludeUserAgents(InputStream stream) throws IOException {
+        this(stream, MatchingEngine.DEFAULT);
+    }
+
+    public IncludeUserAgents(InputStream stream, MatchingEngine engine) throws IOException {
+        this(stream, engine, false);
+    }
+
+    /**
+     * @param adaptiveOrder whether the {@link MatchingEngine#LINEAR_SCAN} engine tries the records most often
+     *                      present first when any record present will do; ignored by the other engines
+     */
+    public IncludeUserAgents(InputStream stream, MatchingEngine engine, boolean adaptiveOrder) throws IOException {
+        this.engine = engine;
         try {
             parseRecords(stream);
         } finally {
             IOUtils.closeQuietly(stream);
         }
+        if (engine != MatchingEngine.LINEAR_SCAN) {
+            compile();
+        } else if (adaptiveOrder) {
+            recordOrder = new AdaptiveRecordOrder(records.size());
+        }
+    }
+
+    private IncludeUserAgents(MatchingEngine engine) {
+        this.engine = engine;
+    }
+
+    public void writeTo(SnapshotWriter out) {
+        out.writeInt(engine.ordinal()).writeInt(records.size());
+        for (IncludeRecord record : records) {
+            record.writeTo(out);
+        }
+        if (engine == MatchingEngine.AUTOMATON) {
+            automaton.writeTo(out);
+            anchoredAutomaton.writeTo(out);
+            out.writeLongs(horizonAnywhere).writeLongs(horizonAtStart);
+        }
+    }
+
+    /**
+     * @param engine        the engine to match the list with; the automatons written for
+     *                      {@link MatchingEngine#AUTOMATON} are read when both the list was exported with it and
+     *                      it is asked for, otherwise the list is compiled again from its records
+     * @param adaptiveOrder whether the {@link MatchingEngine#LINEAR_SCAN} engine tries the records in an
+     *                      {@link AdaptiveRecordOrder}, which is not part of the snapshot
+     * @throws IllegalArgumentException when the list was exported with an unknown engine
+     */
+    public static IncludeUserAgents readFrom(SnapshotReader in, MatchingEngine engine, boolean adaptiveOrder) {
+        MatchingEngine exportedWith = SnapshotFile.readEngine(in);
+        IncludeUserAgents agents = new IncludeUserAgents(engine);
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            agents.records.add(IncludeRecord.readFrom(in));
+        }
+        if (exportedWith == MatchingEngine.AUTOMATON) {
+            PatternAutomaton automaton = PatternAutomaton.readFrom(in);
+            PatternAutomaton anchoredAutomaton = PatternAutomaton.readFrom(in);
+            long[] horizonAnywhere = in.readLongs();
+            long[] horizonAtStart = in.readLongs();
+            if (engine == MatchingEngine.AUTOMATON) {
+                agents.automaton = automaton;
+                agents.anchoredAutomaton = anchoredAutomaton;
+                agents.horizonAnywhere = horizonAnywhere;
+                agents.horizonAtStart = horizonAtStart;
+                agents.recordsByPattern = agents.groupRecordsByPattern(false);
+                agents.recordsByAnchoredPattern = agents.groupRecordsByPattern(true);
+            }
+        }
+        if (engine != MatchingEngine.LINEAR_SCAN && agents.recordsByPattern == null) {
+            agents.compile();
+        } else if (engine == MatchingEngine.LINEAR_SCAN && adaptiveOrder) {
+            agents.recordOrder = new AdaptiveRecordOrder(agents.records.size());
+        }
+        return agents;
     }
 
     private void parseRecords(InputStream stream) throws IOException {
         CSVParser parser = IabFile.createParser(buffer(stream));
         for (CSVRecord record : parser) {
-            records.add(new IncludeRecord(record));
+            IncludeRecord includeRecord = new IncludeRecord(record);
+            if (includeRecord.isApplicable() && includeRecord.getUserAgentPattern() != null) {
+                records.add(includeRecord);
+            }
+        }
+    }
+
+    private void compile() {
+        recordsByPattern = groupRecordsByPattern(false);
+        recordsByAnchoredPattern = groupRecordsByPattern(true);
+        horizonAnywhere = horizons(recordsByPattern);
+        horizonAtStart = horizons(recordsByAnchoredPattern);
+        if (engine == MatchingEngine.AUTOMATON) {
+            automaton = PatternAutomaton.compile(patterns(recordsByPattern));
+            anchoredAutomaton = PatternAutomaton.compileAnchored(patterns(recordsByAnchoredPattern));
+        } else {
+            search = PatternSearch.create(patterns(recordsByPattern), false);
+            anchoredSearch = PatternSearch.create(patterns(recordsByAnchoredPattern), true);
+        }
+    }
+
+    /**
+     * @return the latest horizon of the records of every pattern
+     */
+    private long[] horizons(int[][] recordsByPattern) {
+        long[] result = new long[recordsByPattern.length];
+        for (int pattern = 0; pattern < result.length; pattern++) {
+            result[pattern] = NEVER;
+            for (int index : recordsByPattern[pattern]) {
+                result[pattern] = Math.max(result[pattern], horizon(records.get(index)));
+            }
+        }
+        return result;
+    }
+
+    private List<String> patterns(int[][] recordsByPattern) {
+        List<String> result = new ArrayList<>(recordsByPattern.length);
+        for (int[] recordIndexes : recordsByPattern) {
+            result.add(records.get(recordIndexes[0]).getUserAgentPattern());
+        }
+        return result;
+    }
+
+    /**
+     * @param startOfString whether to group the records matched at the start of the user agent or the others
+     * @return the indexes of the records of every pattern of the automaton, in file order; patterns are
+     * numbered by first appearance
+     */
+    private int[][] groupRecordsByPattern(boolean startOfString) {
+        Map<String, List<Integer>> recordLists = new LinkedHashMap<>();
+        for (int i = 0; i < records.size(); i++) {
+            IncludeRecord record = records.get(i);
+            if (record.isStartOfString() == startOfString) {
+                recordLists.computeIfAbsent(record.getUserAgentPattern(), pattern -> new ArrayList<>()).add(i);
+            }
+        }
+
+        int[][] result = new int[recordLists.size()][];
+        int pattern = 0;
+        for (List<Integer> recordList : recordLists.values()) {
+            result[pattern++] = recordList.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return result;
+    }
+
+    /**
+     * @return the time until which the record applies, exclusive
+     */
+    private static long horizon(IncludeRecord record) {
+        if (record.isActive()) {
+            return ALWAYS;
         }
+        long inactiveDate = record.getInactiveDate();
+        return inactiveDate == IabFile.NO_DATE ? NEVER : inactiveDate;
+    }
+
+    /**
+     * @return the distinct inactive dates of all records, in epoch milliseconds
+     */
+    public long[] getInactiveDates() {
+        return records.stream().mapToLong(IncludeRecord::getInactiveDate)
+                .filter(date -> date != IabFile.NO_DATE).distinct().toArray();
     }
 
     boolean present(String userAgent) {
         return present(userAgent, DateUtils.now());
     }
 
-    public boolean present(String userAgent, Date accurateAt) {
-        return presentLowerCase(IabFile.toLowerCase(userAgent), accurateAt);
+    public boolean present(CharSequence userAgent, Date accurateAt) {
+        return present(userAgent, accurateAt.getTime());
+    }
+
+    /**
+     * Checks the user agent in any case. With the {@link MatchingEngine#AUTOMATON} engine this allocates
+     * nothing for ISO-8859-1 user agents.
+     *
+     * @param accurateAt epoch milliseconds
+     */
+    public boolean present(CharSequence userAgent, long accurateAt) {
+        if (userAgent == null) {
+            return false;
+        }
+
+        if (engine != MatchingEngine.LINEAR_SCAN) {
+            return presentInPatterns(userAgent, accurateAt);
+        }
+        return presentInRecords(IabFile.toLowerCase(userAgent.toString()), accurateAt);
     }
 
     public boolean presentLowerCase(String userAgentLowerCase, Date accurateAt) {
+        if (engine != MatchingEngine.LINEAR_SCAN) {
+            return userAgentLowerCase != null && presentInPatterns(userAgentLowerCase, accurateAt.getTime());
+        }
+        return presentInRecords(userAgentLowerCase, accurateAt.getTime());
+    }
+
+    /**
+     * Same as {@link #present(CharSequence, long)}, but tells which record is present. This is slower than
+     * {@link #present(CharSequence, long)}, which only needs to know that some record is.
+     *
+     * @return index in {@link #getRecords()} of the first record present, or {@link #NO_RECORD}
+     */
+    public int presentRecord(CharSequence userAgent, long accurateAt) {
+        if (userAgent == null) {
+            return NO_RECORD;
+        }
+
+        if (engine != MatchingEngine.LINEAR_SCAN) {
+            return presentRecordInPatterns(userAgent, accurateAt);
+        }
+        String userAgentLowerCase = IabFile.toLowerCase(userAgent.toString());
+        for (int i = 0; i < records.size(); i++) {
+            IncludeRecord record = records.get(i);
+            if (record.isPresent(userAgentLowerCase) && appliesAt(record, accurateAt)) {
+                return i;
+            }
+        }
+        return NO_RECORD;
+    }
+
+    private int presentRecordInPatterns(CharSequence userAgent, long accurateAt) {
+        int first = presentRecord(scanAnchored(userAgent), recordsByAnchoredPattern, accurateAt, NO_RECORD);
+        return presentRecord(scan(userAgent), recordsByPattern, accurateAt, first);
+    }
+
+    private PatternAutomaton.Matches scan(CharSequence userAgent) {
+        return engine == MatchingEngine.AUTOMATON ? automaton.scan(userAgent) : search.scan(userAgent);
+    }
+
+    private PatternAutomaton.Matches scanAnchored(CharSequence userAgent) {
+        return engine == MatchingEngine.AUTOMATON ? anchoredAutomaton.scan(userAgent) : anchoredSearch.scan(userAgent);
+    }
+
+    private int presentRecord(PatternAutomaton.Matches matches, int[][] recordsByFoundPattern, long accurateAt,
+                              int first) {
+        for (int i = 0; i < matches.count(); i++) {
+            for (int index : recordsByFoundPattern[matches.get(i)]) {
+                if (first != NO_RECORD && index >= first) {
+                    break;
+                }
+                if (appliesAt(records.get(index), accurateAt)) {
+                    first = index;
+                    break;
+                }
+            }
+        }
+        return first;
+    }
+
+    private static boolean appliesAt(IncludeRecord record, long accurateAt) {
+        return record.isActive() || record.isBeforeInactiveDate(accurateAt);
+    }
+
+    /**
+     * @return the indexes in {@link #getRecords()} of the records in the order the
+     * {@link MatchingEngine#LINEAR_SCAN} engine currently tries them, or null when they are tried in file order
+     */
+    int[] getRecordOrder() {
+        return recordOrder == null ? null : recordOrder.get();
+    }
+
+    /**
+     * @return the applicable records, in file order
+     */
+    public List<IncludeRecord> getRecords() {
+        return Collections.unmodifiableList(records);
+    }
+
+    private boolean presentInRecords(String userAgentLowerCase, long accurateAt) {
+        if (recordOrder != null) {
+            for (int index : recordOrder.get()) {
+                IncludeRecord record = records.get(index);
+                if (record.isPresent(userAgentLowerCase) && appliesAt(record, accurateAt)) {
+                    recordOrder.found(index);
+                    return true;
+                }
+            }
+            return false;
+        }
+
         for (IncludeRecord record : records) {
             boolean present = record.isPresent(userAgentLowerCase);
-            if (present && (record.isActive() || record.isBeforeInactiveDate(accurateAt))) {
+            if (present && appliesAt(record, accurateAt)) {
                 return true;
             }
         }
@@ -64,4 +368,19 @@ public class IncludeUserAgents {
         return false;
     }
 
+    private boolean presentInPatterns(CharSequence userAgent, long accurateAt) {
+        return anyApplies(scanAnchored(userAgent), horizonAtStart, accurateAt)
+                || anyApplies(scan(userAgent), horizonAnywhere, accurateAt);
+    }
+
+    private static boolean anyApplies(PatternAutomaton.Matches matches, long[] horizons, long accurateAt) {
+        for (int i = 0; i < matches.count(); i++) {
+            long horizon = horizons[matches.get(i)];
+            if (horizon == ALWAYS || accurateAt < horizon) {
+                return true;
+            }
+        }
+        return false;
+    }
+
 }
@@ -13,6 +13,11 @@
 package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
 
 import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.IabFile;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.IntOpenHashSet;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.LongPairOpenHashSet;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotReader;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotWriter;
+import inet.ipaddr.IPAddress;
 import inet.ipaddr.IPAddressString;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
@@ -20,60 +25,173 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.Inet4Address;
 import java.net.InetAddress;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Arrays;
 
 import static org.apache.commons.io.IOUtils.buffer;
 
-
+/**
+ * The IP exclude list. Plain addresses are kept in primitive hash sets, IPv4 ranges are indexed as merged
+ * intervals in an {@link Ipv4IntervalIndex} and IPv6 ranges in an {@link Ipv6PrefixTrie}. IPv4-mapped IPv6 addresses
+ * ({@code ::ffff:0:0/96}), both in the list and in lookups, are treated as the IPv4 addresses they map, and an
+ * IPv6 range holding the whole IPv4-mapped block holds every IPv4 address.
+ * <p>
+ * Records are single addresses or ranges in CIDR notation; other records, ranges such as {@code 10.0.0.*}
+ * included, can't match any address.
+ */
 public class IpRanges {
 
-    private final Set<String> cidrAddresses = new HashSet<>();
+    private static final int IPV4_MAPPED_PREFIX_LENGTH = 96;
+
+    private static final long IPV4_MAPPED_MARKER = 0xFFFFL;
+
+    private final IntOpenHashSet ipv4PlainAddresses;
+
+    private final LongPairOpenHashSet ipv6PlainAddresses;
 
-    private final Set<String> plainAddresses = new HashSet<>();
+    private final Ipv4IntervalIndex ipv4Index;
+
+    private final Ipv6PrefixTrie ipv6Trie;
 
     public IpRanges(InputStream stream) throws IOException {
+        ipv4PlainAddresses = new IntOpenHashSet();
+        ipv6PlainAddresses = new LongPairOpenHashSet();
+        Ipv4IntervalIndex.Builder ipv4Builder = new Ipv4IntervalIndex.Builder();
+        Ipv6PrefixTrie.Builder ipv6Builder = new Ipv6PrefixTrie.Builder();
         try {
-            parseRecords(stream);
+            parseRecords(stream, ipv4Builder, ipv6Builder);
         } finally {
             IOUtils.closeQuietly(stream);
         }
+        ipv4Index = ipv4Builder.build();
+        ipv6Trie = ipv6Builder.build();
+    }
+
+    private IpRanges(IntOpenHashSet ipv4PlainAddresses, LongPairOpenHashSet ipv6PlainAddresses,
+                     Ipv4IntervalIndex ipv4Index, Ipv6PrefixTrie ipv6Trie) {
+        this.ipv4PlainAddresses = ipv4PlainAddresses;
+        this.ipv6PlainAddresses = ipv6PlainAddresses;
+        this.ipv4Index = ipv4Index;
+        this.ipv6Trie = ipv6Trie;
+    }
+
+    public void writeTo(SnapshotWriter out) {
+        ipv4PlainAddresses.writeTo(out);
+        ipv6PlainAddresses.writeTo(out);
+        ipv4Index.writeTo(out);
+        ipv6Trie.writeTo(out);
+    }
+
+    public static IpRanges readFrom(SnapshotReader in) {
+        return new IpRanges(IntOpenHashSet.readFrom(in), LongPairOpenHashSet.readFrom(in),
+                Ipv4IntervalIndex.readFrom(in), Ipv6PrefixTrie.readFrom(in));
     }
 
-    private void parseRecords(InputStream stream) throws IOException {
+    private void parseRecords(InputStream stream, Ipv4IntervalIndex.Builder ipv4Builder,
+                              Ipv6PrefixTrie.Builder ipv6Builder) throws IOException {
         LineIterator it = IOUtils.lineIterator(buffer(stream), IabFile.CHARSET);
         while (it.hasNext()) {
             String record = StringUtils.trimToNull(it.nextLine());
             if (record != null) {
-                if (isCidrNotation(record)) {
-                    cidrAddresses.add(record);
-                } else {
-                    plainAddresses.add(record);
-                }
+                addRecord(record, ipv4Builder, ipv6Builder);
             }
         }
     }
 
-    private static boolean isCidrNotation(String address) {
-        return address.contains("/");
-    }
+    private void addRecord(String record, Ipv4IntervalIndex.Builder ipv4Builder, Ipv6PrefixTrie.Builder ipv6Builder) {
+        IPAddress address = new IPAddressString(record).getAddress();
+        if (address == null || !isCidrNotation(record) && address.isMultiple()) {
+            // malformed records, and ranges not in CIDR notation such as 10.0.0.* or 10.0.0.1-9, can't match
+            // any address
+            return;
+        }
 
-    public boolean belong(InetAddress ipAddress) {
-        String hostAddress = ipAddress.getHostAddress();
-        IPAddressString ipAddressString = new IPAddressString(hostAddress);
+        IPAddress block = address.toPrefixBlock();
+        byte[] lower = block.getLower().getBytes();
+        byte[] upper = block.getUpper().getBytes();
+        boolean single = Arrays.equals(lower, upper);
 
-        if (plainAddresses.contains(hostAddress)) {
-            return true;
+        if (address.isIPv4()) {
+            if (single) {
+                ipv4PlainAddresses.add(Ipv4IntervalIndex.toInt(lower));
+            } else {
+                ipv4Builder.add(Ipv4IntervalIndex.toInt(lower), Ipv4IntervalIndex.toInt(upper));
+            }
+            return;
         }
 
-        IPAddressString subnet;
-        for (String address : cidrAddresses) {
-            subnet = new IPAddressString(address);
-            if (subnet.getAddress().toPrefixBlock().contains(ipAddressString.getAddress())) {
-                return true;
+        long high = Ipv6PrefixTrie.high(lower);
+        long low = Ipv6PrefixTrie.low(lower);
+
+        if (single && isIpv4Mapped(high, low)) {
+            ipv4PlainAddresses.add((int) low);
+        } else if (single) {
+            ipv6PlainAddresses.add(high, low);
+        } else if (isIpv4Mapped(high, low) && block.getNetworkPrefixLength() >= IPV4_MAPPED_PREFIX_LENGTH) {
+            ipv4Builder.add((int) low, Ipv4IntervalIndex.toInt(upper, 12));
+        } else {
+            int length = block.getNetworkPrefixLength();
+            ipv6Builder.add(high, low, length);
+            if (length < IPV4_MAPPED_PREFIX_LENGTH && holdsIpv4MappedBlock(high, low, length)) {
+                // mapped addresses are looked up in the IPv4 structures only
+                ipv4Builder.add(0, -1);
             }
         }
-        return false;
     }
+
+    private static boolean isCidrNotation(String record) {
+        return record.contains("/");
+    }
+
+    private static boolean isIpv4Mapped(long high, long low) {
+        return high == 0 && low >>> 32 == IPV4_MAPPED_MARKER;
+    }
+
+    /**
+     * @param high   the first 64 bits of the lowest address of the prefix
+     * @param low    the last 64 bits of the lowest address of the prefix
+     * @param length shorter than the IPv4-mapped prefix
+     */
+    private static boolean holdsIpv4MappedBlock(long high, long low, int length) {
+        long lowMask = length <= Long.SIZE ? 0 : -1L << (2 * Long.SIZE - length);
+        return high == 0 && (IPV4_MAPPED_MARKER << 32 & lowMask) == low;
+    }
+
+    /**
+     * @return the number of single addresses, merged IPv4 intervals and IPv6 prefixes
+     */
+    public int size() {
+        return ipv4PlainAddresses.size() + ipv6PlainAddresses.size() + ipv4Index.size() + ipv6Trie.prefixCount();
+    }
+
+    public boolean belong(InetAddress ipAddress) {
+        if (ipAddress instanceof Inet4Address) {
+            return belongIpv4(Ipv4IntervalIndex.toInt(ipAddress.getAddress()));
+        }
+
+        byte[] address = ipAddress.getAddress();
+        return belongIpv6(Ipv6PrefixTrie.high(address), Ipv6PrefixTrie.low(address));
+    }
+
+    /**
+     * An IPv4-mapped address is checked as the IPv4 address it maps, as {@link InetAddress} resolves it.
+     *
+     * @param high the first 64 bits of the IPv6 address
+     * @param low  the last 64 bits of the IPv6 address
+     */
+    public boolean belongIpv6(long high, long low) {
+        if (isIpv4Mapped(high, low)) {
+            return belongIpv4((int) low);
+        }
+        return ipv6PlainAddresses.contains(high, low) || ipv6Trie.contains(high, low);
+    }
+
+    /**
+     * @param address IPv4 address as an unsigned 32 bit value
+     */
+    public boolean belongIpv4(int address) {
+        return ipv4PlainAddresses.contains(address) || ipv4Index.contains(address);
+    }
+
 }
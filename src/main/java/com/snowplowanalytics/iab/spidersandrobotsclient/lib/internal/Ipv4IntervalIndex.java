@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotReader;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotWriter;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * IPv4 address ranges merged into sorted, non-overlapping intervals and looked up by binary search.
+ * <p>
+ * Addresses are unsigned 32 bit values; they are stored with the sign bit flipped so that plain signed
+ * comparisons order them correctly. The intervals are int buffers, used in place when read from a mapped
+ * snapshot.
+ */
+public final class Ipv4IntervalIndex {
+
+    private static final int SIGN_BIT = 0x80000000;
+
+    private final IntBuffer starts;
+
+    private final IntBuffer ends;
+
+    private Ipv4IntervalIndex(IntBuffer starts, IntBuffer ends) {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    public boolean contains(int address) {
+        int key = address ^ SIGN_BIT;
+        int low = 0;
+        int high = starts.limit() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (starts.get(middle) <= key) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high >= 0 && key <= ends.get(high);
+    }
+
+    public int size() {
+        return starts.limit();
+    }
+
+    public void writeTo(SnapshotWriter out) {
+        out.writeInts(starts).writeInts(ends);
+    }
+
+    public static Ipv4IntervalIndex readFrom(SnapshotReader in) {
+        return new Ipv4IntervalIndex(in.readIntBuffer(), in.readIntBuffer());
+    }
+
+    public static int toInt(byte[] address) {
+        return toInt(address, 0);
+    }
+
+    public static int toInt(byte[] address, int offset) {
+        return (address[offset] & 0xFF) << 24 | (address[offset + 1] & 0xFF) << 16 |
+                (address[offset + 2] & 0xFF) << 8 | address[offset + 3] & 0xFF;
+    }
+
+    public static final class Builder {
+
+        private long[] intervals = new long[16];
+
+        private int size;
+
+        /**
+         * Adds the inclusive range of unsigned addresses [start, end].
+         */
+        public Builder add(int start, int end) {
+            if (size == intervals.length) {
+                intervals = Arrays.copyOf(intervals, size * 2);
+            }
+            // the start is the high half, so sorting orders the intervals by start
+            intervals[size++] = (long) (start ^ SIGN_BIT) << 32 | (end ^ SIGN_BIT) & 0xFFFFFFFFL;
+            return this;
+        }
+
+        public Ipv4IntervalIndex build() {
+            long[] sorted = Arrays.copyOf(intervals, size);
+            Arrays.sort(sorted);
+
+            int[] starts = new int[size];
+            int[] ends = new int[size];
+            int count = 0;
+            for (long interval : sorted) {
+                int start = (int) (interval >> 32);
+                int end = (int) interval;
+                if (count > 0 && start <= (long) ends[count - 1] + 1) {
+                    ends[count - 1] = Math.max(ends[count - 1], end);
+                } else {
+                    starts[count] = start;
+                    ends[count] = end;
+                    count++;
+                }
+            }
+            return new Ipv4IntervalIndex(IntBuffer.wrap(Arrays.copyOf(starts, count)),
+                    IntBuffer.wrap(Arrays.copyOf(ends, count)));
+        }
+
+    }
+
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotReader;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotWriter;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * IPv6 prefixes in a binary radix (Patricia) trie. Addresses are 128 bit values split into the high and
+ * the low 64 bits. Nodes only exist where prefixes end or branch, so a lookup visits at most one node per
+ * distinct prefix length on the path of the address, never more than 129.
+ * <p>
+ * The trie is flattened into parallel buffers once built, used in place when read from a mapped snapshot;
+ * node 0 is the root, the empty prefix.
+ */
+public final class Ipv6PrefixTrie {
+
+    private static final int ADDRESS_BITS = 128;
+
+    private static final int NO_CHILD = -1;
+
+    private final LongBuffer highs;
+
+    private final LongBuffer lows;
+
+    private final IntBuffer lengths;
+
+    private final ByteBuffer terminals;
+
+    private final IntBuffer zeroChildren;
+
+    private final IntBuffer oneChildren;
+
+    private Ipv6PrefixTrie(LongBuffer highs, LongBuffer lows, IntBuffer lengths, ByteBuffer terminals,
+                           IntBuffer zeroChildren, IntBuffer oneChildren) {
+        this.highs = highs;
+        this.lows = lows;
+        this.lengths = lengths;
+        this.terminals = terminals;
+        this.zeroChildren = zeroChildren;
+        this.oneChildren = oneChildren;
+    }
+
+    public boolean contains(long high, long low) {
+        int node = 0;
+        while (node != NO_CHILD) {
+            int length = lengths.get(node);
+            if (!samePrefix(high, low, highs.get(node), lows.get(node), length)) {
+                return false;
+            }
+            if (terminals.get(node) != 0) {
+                return true;
+            }
+            if (length == ADDRESS_BITS) {
+                return false;
+            }
+            node = bitAt(high, low, length) == 0 ? zeroChildren.get(node) : oneChildren.get(node);
+        }
+        return false;
+    }
+
+    public int size() {
+        return lengths.limit();
+    }
+
+    /**
+     * @return the number of distinct prefixes, unlike {@link #size()} which also counts branching nodes
+     */
+    public int prefixCount() {
+        int count = 0;
+        for (int node = 0; node < terminals.limit(); node++) {
+            if (terminals.get(node) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public void writeTo(SnapshotWriter out) {
+        out.writeLongs(highs).writeLongs(lows).writeInts(lengths).writeBooleans(terminals)
+                .writeInts(zeroChildren).writeInts(oneChildren);
+    }
+
+    public static Ipv6PrefixTrie readFrom(SnapshotReader in) {
+        return new Ipv6PrefixTrie(in.readLongBuffer(), in.readLongBuffer(), in.readIntBuffer(),
+                in.readBooleanBuffer(), in.readIntBuffer(), in.readIntBuffer());
+    }
+
+    public static long high(byte[] address) {
+        return toLong(address, 0);
+    }
+
+    public static long low(byte[] address) {
+        return toLong(address, 8);
+    }
+
+    private static long toLong(byte[] address, int offset) {
+        long result = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            result = result << 8 | address[i] & 0xFF;
+        }
+        return result;
+    }
+
+    private static int bitAt(long high, long low, int index) {
+        return index < 64 ? (int) (high >>> 63 - index) & 1 : (int) (low >>> 127 - index) & 1;
+    }
+
+    private static long highMask(int length) {
+        return length == 0 ? 0 : length >= 64 ? -1L : -1L << 64 - length;
+    }
+
+    private static long lowMask(int length) {
+        return length <= 64 ? 0 : length == ADDRESS_BITS ? -1L : -1L << ADDRESS_BITS - length;
+    }
+
+    private static boolean samePrefix(long high, long low, long prefixHigh, long prefixLow, int length) {
+        return ((high ^ prefixHigh) & highMask(length)) == 0 && ((low ^ prefixLow) & lowMask(length)) == 0;
+    }
+
+    private static int commonPrefixLength(long high, long low, long otherHigh, long otherLow, int limit) {
+        long highDiff = high ^ otherHigh;
+        int common = highDiff != 0 ? Long.numberOfLeadingZeros(highDiff) :
+                64 + Long.numberOfLeadingZeros(low ^ otherLow);
+        return Math.min(common, limit);
+    }
+
+    public static final class Builder {
+
+        private final Node root = new Node(0, 0, 0);
+
+        /**
+         * Adds the prefix of the given length; bits past the length are ignored.
+         */
+        public Builder add(long high, long low, int length) {
+            high &= highMask(length);
+            low &= lowMask(length);
+
+            Node node = root;
+            while (true) {
+                if (node.terminal) {
+                    // already covered by a shorter prefix
+                    return this;
+                }
+                if (node.length == length) {
+                    node.terminal = true;
+                    node.children[0] = null;
+                    node.children[1] = null;
+                    return this;
+                }
+
+                int bit = bitAt(high, low, node.length);
+                Node child = node.children[bit];
+                if (child == null) {
+                    node.children[bit] = Node.terminal(high, low, length);
+                    return this;
+                }
+
+                int common = commonPrefixLength(high, low, child.high, child.low, Math.min(length, child.length));
+                if (common == child.length) {
+                    node = child;
+                    continue;
+                }
+
+                Node split = new Node(high & highMask(common), low & lowMask(common), common);
+                split.children[bitAt(child.high, child.low, common)] = child;
+                if (common == length) {
+                    split.terminal = true;
+                    split.children[0] = null;
+                    split.children[1] = null;
+                } else {
+                    split.children[bitAt(high, low, common)] = Node.terminal(high, low, length);
+                }
+                node.children[bit] = split;
+                return this;
+            }
+        }
+
+        public Ipv6PrefixTrie build() {
+            List<Node> nodes = new ArrayList<>();
+            number(root, nodes);
+
+            int size = nodes.size();
+            long[] highs = new long[size];
+            long[] lows = new long[size];
+            int[] lengths = new int[size];
+            byte[] terminals = new byte[size];
+            int[] zeroChildren = new int[size];
+            int[] oneChildren = new int[size];
+            for (int i = 0; i < size; i++) {
+                Node node = nodes.get(i);
+                highs[i] = node.high;
+                lows[i] = node.low;
+                lengths[i] = node.length;
+                terminals[i] = (byte) (node.terminal ? 1 : 0);
+                zeroChildren[i] = node.children[0] == null ? NO_CHILD : node.children[0].index;
+                oneChildren[i] = node.children[1] == null ? NO_CHILD : node.children[1].index;
+            }
+            return new Ipv6PrefixTrie(LongBuffer.wrap(highs), LongBuffer.wrap(lows), IntBuffer.wrap(lengths),
+                    ByteBuffer.wrap(terminals), IntBuffer.wrap(zeroChildren), IntBuffer.wrap(oneChildren));
+        }
+
+        private static void number(Node node, List<Node> nodes) {
+            node.index = nodes.size();
+            nodes.add(node);
+            for (Node child : node.children) {
+                if (child != null) {
+                    number(child, nodes);
+                }
+            }
+        }
+
+    }
+
+    private static final class Node {
+
+        private final long high;
+
+        private final long low;
+
+        private final int length;
+
+        private final Node[] children = new Node[2];
+
+        private boolean terminal;
+
+        private int index;
+
+        private Node(long high, long low, int length) {
+            this.high = high;
+            this.low = low;
+            this.length = length;
+        }
+
+        private static Node terminal(long high, long low, int length) {
+            Node node = new Node(high, low, length);
+            node.terminal = true;
+            return node;
+        }
+
+    }
+
+}
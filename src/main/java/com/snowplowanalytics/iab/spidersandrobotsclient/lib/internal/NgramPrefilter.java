@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.PrefilterStats;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.IabFile;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.Latin1Text;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rules out user agents in which no pattern of a list can be present, before the list is matched.
+ * <p>
+ * One 3-gram is taken from every pattern, the one which occurs least in common browser user agents, and the
+ * 3-grams taken are kept in a bitset. A user agent in which none of them occurs can contain no pattern, so
+ * it is rejected; any other is passed on to the exact matching, which alone decides. The bitset is indexed
+ * by the 3-gram itself, over an alphabet of the chars of the 3-grams taken (every other char shares class
+ * 0), so it has no false positives and takes at most 2^(3 * 8) bits, usually 32 KiB.
+ * <p>
+ * ISO-8859-1 chars are lower cased by the class table; a user agent with any other char is passed on, as
+ * lower casing it may change its length. A pattern with such a char can't be present in a user agent
+ * without one, so it needs no 3-gram. A pattern shorter than 3 chars has none, so a list with one passes
+ * every user agent on.
+ */
+public final class NgramPrefilter {
+
+    static final int GRAM_LENGTH = 3;
+
+    private static final int LATIN_1_SIZE = 256;
+
+    /**
+     * User agents of the most used browsers, whose 3-grams are the ones not to take.
+     */
+    private static final String[] COMMON_USER_AGENTS = {
+            "mozilla/5.0 (windows nt 10.0; win64; x64) applewebkit/537.36 (khtml, like gecko) chrome/124.0.0.0 "
+                    + "safari/537.36 edg/124.0.2478.51",
+            "mozilla/5.0 (macintosh; intel mac os x 10_15_7) applewebkit/605.1.15 (khtml, like gecko) "
+                    + "version/17.4.1 safari/605.1.15",
+            "mozilla/5.0 (iphone; cpu iphone os 17_4_1 like mac os x) applewebkit/605.1.15 (khtml, like gecko) "
+                    + "version/17.4.1 mobile/15e148 safari/604.1",
+            "mozilla/5.0 (linux; android 10; k) applewebkit/537.36 (khtml, like gecko) chrome/124.0.0.0 "
+                    + "mobile safari/537.36 samsungbrowser/24.0",
+            "mozilla/5.0 (x11; linux x86_64; rv:125.0) gecko/20100101 firefox/125.0",
+            "mozilla/5.0 (ipad; cpu os 16_7 like mac os x) applewebkit/605.1.15 (khtml, like gecko) crios/123.0 "
+                    + "mobile/15e148 safari/604.1 opr/109.0.0.0",
+            "mozilla/5.0 (windows nt 6.1; wow64; trident/7.0; rv:11.0) like gecko"
+    };
+
+    private final int bitsPerChar;
+
+    private final int gramMask;
+
+    private final int[] latin1Classes;
+
+    private final long[] grams;
+
+    private final int gramCount;
+
+    private final int unfilterablePatterns;
+
+    private final LongAdder checks = new LongAdder();
+
+    private final LongAdder passed = new LongAdder();
+
+    private NgramPrefilter(int bitsPerChar, int[] latin1Classes, long[] grams, int gramCount,
+                           int unfilterablePatterns) {
+        this.bitsPerChar = bitsPerChar;
+        this.gramMask = (1 << (GRAM_LENGTH * bitsPerChar)) - 1;
+        this.latin1Classes = latin1Classes;
+        this.grams = grams;
+        this.gramCount = gramCount;
+        this.unfilterablePatterns = unfilterablePatterns;
+    }
+
+    /**
+     * @param patterns lower case patterns, as those of the records of a list
+     */
+    public static NgramPrefilter build(List<String> patterns) {
+        Map<String, Integer> commonCounts = new HashMap<>();
+        for (String userAgent : COMMON_USER_AGENTS) {
+            for (int i = 0; i + GRAM_LENGTH <= userAgent.length(); i++) {
+                commonCounts.merge(userAgent.substring(i, i + GRAM_LENGTH), 1, Integer::sum);
+            }
+        }
+
+        Map<String, Boolean> taken = new HashMap<>();
+        int unfilterable = 0;
+        for (String pattern : patterns) {
+            if (!isLatin1(pattern)) {
+                continue;
+            }
+            if (pattern.length() < GRAM_LENGTH) {
+                unfilterable++;
+                continue;
+            }
+            String rarest = null;
+            int rarestCount = Integer.MAX_VALUE;
+            for (int i = 0; i + GRAM_LENGTH <= pattern.length() && rarestCount > 0; i++) {
+                String gram = pattern.substring(i, i + GRAM_LENGTH);
+                int count = commonCounts.getOrDefault(gram, 0);
+                if (count < rarestCount) {
+                    rarest = gram;
+                    rarestCount = count;
+                }
+            }
+            taken.put(rarest, Boolean.TRUE);
+        }
+
+        int[] latin1Classes = new int[LATIN_1_SIZE];
+        int classCount = 1;
+        for (String gram : taken.keySet()) {
+            for (int i = 0; i < GRAM_LENGTH; i++) {
+                char c = gram.charAt(i);
+                if (latin1Classes[c] == 0) {
+                    latin1Classes[c] = classCount++;
+                }
+            }
+        }
+        // upper case characters share the class of their lower case
+        for (char c = 0; c < LATIN_1_SIZE; c++) {
+            char lowerCase = IabFile.toLowerCaseLatin1(c);
+            if (lowerCase != c && latin1Classes[c] == 0) {
+                latin1Classes[c] = latin1Classes[lowerCase];
+            }
+        }
+
+        int bitsPerChar = Math.max(1, 32 - Integer.numberOfLeadingZeros(classCount - 1));
+        long[] grams = new long[Math.max(1, (1 << (GRAM_LENGTH * bitsPerChar)) >>> 6)];
+        for (String gram : taken.keySet()) {
+            int index = 0;
+            for (int i = 0; i < GRAM_LENGTH; i++) {
+                index = (index << bitsPerChar) | latin1Classes[gram.charAt(i)];
+            }
+            grams[index >>> 6] |= 1L << index;
+        }
+        return new NgramPrefilter(bitsPerChar, latin1Classes, grams, taken.size(), unfilterable);
+    }
+
+    /**
+     * @return false when no pattern can be present in the user agent, true when one may be
+     */
+    public boolean mayMatch(CharSequence userAgent) {
+        checks.increment();
+        if (unfilterablePatterns == 0 && !containsGram(userAgent)) {
+            return false;
+        }
+        passed.increment();
+        return true;
+    }
+
+    private boolean containsGram(CharSequence userAgent) {
+        if (userAgent instanceof Latin1Text) {
+            Latin1Text bytes = (Latin1Text) userAgent;
+            return containsGram(bytes.bytes(), bytes.offset(), bytes.length());
+        }
+
+        int length = userAgent.length();
+        int index = 0;
+        for (int i = 0; i < length; i++) {
+            char c = userAgent.charAt(i);
+            if (!IabFile.isLatin1(c)) {
+                return true;
+            }
+            index = ((index << bitsPerChar) | latin1Classes[c]) & gramMask;
+            if (i >= GRAM_LENGTH - 1 && (grams[index >>> 6] & (1L << index)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean containsGram(byte[] userAgent, int offset, int length) {
+        int index = 0;
+        for (int i = 0; i < length; i++) {
+            index = ((index << bitsPerChar) | latin1Classes[userAgent[offset + i] & 0xFF]) & gramMask;
+            if (i >= GRAM_LENGTH - 1 && (grams[index >>> 6] & (1L << index)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public PrefilterStats stats() {
+        return new PrefilterStats(checks.sum(), passed.sum(), gramCount, unfilterablePatterns);
+    }
+
+    private static boolean isLatin1(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if (!IabFile.isLatin1(pattern.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.IabFile;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.Latin1Text;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotReader;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotWriter;
+
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.TreeSet;
+
+/**
+ * Aho-Corasick automaton over a fixed set of lower case patterns, matched case insensitively.
+ * <p>
+ * The automaton is compiled once into a dense transition table over an alphabet of character classes
+ * (every character which doesn't occur in any pattern shares class 0), so a scan is a single pass over
+ * the text with one table lookup per character. A scan reports every pattern found in the text.
+ * <p>
+ * An {@link #compileAnchored(List) anchored} automaton only finds patterns at position 0: it is the plain
+ * trie of the patterns, with no failure links, and its scan stops at the first character no pattern
+ * continues with, so it reads at most as many characters as the longest pattern has.
+ * <p>
+ * ISO-8859-1 characters are lower cased by the class table itself, so text made only of them is scanned
+ * as is. Lower casing other characters may change the length of the text, so when the scan meets one it
+ * starts over on {@link IabFile#toLowerCase(String) the lower case copy} of the text. A {@link Latin1Text}
+ * is scanned straight from its bytes, each one folded through the 256 entry class table, and never needs
+ * the copy.
+ * <p>
+ * The transition table and the outputs, nearly all of the automaton, are int buffers: an automaton read from
+ * a mapped snapshot uses them in place, and one compiled from the patterns wraps its arrays.
+ * <p>
+ * Instances are immutable and can be shared between threads; the {@link Matches} returned by
+ * {@link #scan(CharSequence)} are thread confined and reused by the next scan on the same thread.
+ */
+public final class PatternAutomaton {
+
+    private static final int ROOT = 0;
+
+    private static final int LATIN_1_SIZE = 256;
+
+    private static final int NO_DEAD_STATE = -1;
+
+    private final int patternCount;
+
+    private final int[] latin1Classes;
+
+    private final char[] extraChars;
+
+    private final int[] extraClasses;
+
+    private final int classCount;
+
+    private final IntBuffer transitions;
+
+    private final IntBuffer outputOffsets;
+
+    private final IntBuffer outputs;
+
+    private final int deadState;
+
+    private final ThreadLocal<Matches> matches;
+
+    private PatternAutomaton(int patternCount, int[] latin1Classes, char[] extraChars, int[] extraClasses,
+                             int classCount, IntBuffer transitions, IntBuffer outputOffsets, IntBuffer outputs,
+                             int deadState) {
+        this.patternCount = patternCount;
+        this.latin1Classes = latin1Classes;
+        this.extraChars = extraChars;
+        this.extraClasses = extraClasses;
+        this.classCount = classCount;
+        this.transitions = transitions;
+        this.outputOffsets = outputOffsets;
+        this.outputs = outputs;
+        this.deadState = deadState;
+        this.matches = ThreadLocal.withInitial(() -> new Matches(patternCount));
+    }
+
+    /**
+     * Compiles the patterns; a pattern's id is its index in the list.
+     */
+    public static PatternAutomaton compile(List<String> patterns) {
+        return new Builder(patterns, false).build();
+    }
+
+    /**
+     * Compiles the patterns into an automaton which only finds them at the start of the text; a pattern's id
+     * is its index in the list.
+     */
+    public static PatternAutomaton compileAnchored(List<String> patterns) {
+        return new Builder(patterns, true).build();
+    }
+
+    public int patternCount() {
+        return patternCount;
+    }
+
+    public void writeTo(SnapshotWriter out) {
+        out.writeInt(patternCount).writeInts(latin1Classes).writeChars(extraChars).writeInts(extraClasses)
+                .writeInt(classCount).writeInts(transitions).writeInts(outputOffsets).writeInts(outputs)
+                .writeInt(deadState);
+    }
+
+    public static PatternAutomaton readFrom(SnapshotReader in) {
+        return new PatternAutomaton(in.readInt(), in.readInts(), in.readChars(), in.readInts(), in.readInt(),
+                in.readIntBuffer(), in.readIntBuffer(), in.readIntBuffer(), in.readInt());
+    }
+
+    /**
+     * Scans the text once and returns the patterns found in it. The result is only valid until the next
+     * scan performed by the current thread.
+     */
+    public Matches scan(CharSequence text) {
+        Matches result = matches.get();
+        if (text instanceof Latin1Text) {
+            Latin1Text bytes = (Latin1Text) text;
+            scanBytes(bytes.bytes(), bytes.offset(), bytes.length(), result);
+        } else if (!scanLatin1(text, result)) {
+            scanLowerCase(IabFile.toLowerCase(text.toString()), result);
+        }
+        return result;
+    }
+
+    private void scanBytes(byte[] text, int offset, int length, Matches result) {
+        result.reset();
+        int state = ROOT;
+        addOutputs(result, state);
+
+        for (int i = offset; i < offset + length; i++) {
+            state = transitions.get(state * classCount + latin1Classes[text[i] & 0xFF]);
+            if (state == deadState) {
+                return;
+            }
+            addOutputs(result, state);
+        }
+    }
+
+    private boolean scanLatin1(CharSequence text, Matches result) {
+        result.reset();
+        int state = ROOT;
+        addOutputs(result, state);
+
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (!IabFile.isLatin1(c)) {
+                return false;
+            }
+            state = transitions.get(state * classCount + latin1Classes[c]);
+            if (state == deadState) {
+                return true;
+            }
+            addOutputs(result, state);
+        }
+        return true;
+    }
+
+    private void scanLowerCase(String text, Matches result) {
+        result.reset();
+        int state = ROOT;
+        addOutputs(result, state);
+
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            state = transitions.get(state * classCount + classOf(text.charAt(i)));
+            if (state == deadState) {
+                return;
+            }
+            addOutputs(result, state);
+        }
+    }
+
+    private void addOutputs(Matches result, int state) {
+        int end = outputOffsets.get(state + 1);
+        for (int i = outputOffsets.get(state); i < end; i++) {
+            result.add(outputs.get(i));
+        }
+    }
+
+    private int classOf(char c) {
+        if (c < LATIN_1_SIZE) {
+            return latin1Classes[c];
+        }
+        int index = Arrays.binarySearch(extraChars, c);
+        return index < 0 ? 0 : extraClasses[index];
+    }
+
+    /**
+     * Patterns found by a single scan.
+     */
+    public static final class Matches {
+
+        private final int[] found;
+
+        private final int[] ids;
+
+        private int count;
+
+        private int stamp;
+
+        Matches(int patternCount) {
+            found = new int[patternCount];
+            ids = new int[patternCount];
+        }
+
+        void reset() {
+            count = 0;
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(found, 0);
+                stamp = 1;
+            }
+        }
+
+        void add(int pattern) {
+            if (found[pattern] != stamp) {
+                found[pattern] = stamp;
+                ids[count++] = pattern;
+            }
+        }
+
+        /**
+         * @return number of distinct patterns found
+         */
+        public int count() {
+            return count;
+        }
+
+        /**
+         * @return id of the i-th distinct pattern found, in order of first occurrence
+         */
+        public int get(int i) {
+            return ids[i];
+        }
+
+        public boolean contains(int pattern) {
+            return found[pattern] == stamp;
+        }
+
+    }
+
+    private static final class Builder {
+
+        private final List<String> patterns;
+
+        private final boolean anchored;
+
+        private final List<int[]> children = new ArrayList<>();
+
+        private final List<List<Integer>> ownOutputs = new ArrayList<>();
+
+        private int[] latin1Classes;
+
+        private char[] extraChars;
+
+        private int[] extraClasses;
+
+        private int classCount;
+
+        private Builder(List<String> patterns, boolean anchored) {
+            this.patterns = patterns;
+            this.anchored = anchored;
+        }
+
+        private PatternAutomaton build() {
+            buildAlphabet();
+            buildTrie();
+            if (anchored) {
+                return buildAnchored();
+            }
+
+            int stateCount = children.size();
+            int[] transitions = new int[stateCount * classCount];
+            int[] failures = new int[stateCount];
+            List<List<Integer>> allOutputs = new ArrayList<>(ownOutputs);
+
+            Queue<Integer> queue = new ArrayDeque<>();
+            for (int c = 0; c < classCount; c++) {
+                int child = children.get(ROOT)[c];
+                if (child > 0) {
+                    transitions[c] = child;
+                    failures[child] = ROOT;
+                    queue.add(child);
+                }
+            }
+
+            while (!queue.isEmpty()) {
+                int state = queue.remove();
+                List<Integer> outputs = new ArrayList<>(ownOutputs.get(state));
+                outputs.addAll(allOutputs.get(failures[state]));
+                allOutputs.set(state, outputs);
+
+                for (int c = 0; c < classCount; c++) {
+                    int child = children.get(state)[c];
+                    int fallback = transitions[failures[state] * classCount + c];
+                    if (child > 0) {
+                        transitions[state * classCount + c] = child;
+                        failures[child] = fallback;
+                        queue.add(child);
+                    } else {
+                        transitions[state * classCount + c] = fallback;
+                    }
+                }
+            }
+
+            return build(transitions, allOutputs, NO_DEAD_STATE);
+        }
+
+        /**
+         * Keeps the trie as is, sending every missing transition to an extra dead state.
+         */
+        private PatternAutomaton buildAnchored() {
+            int deadState = children.size();
+            int[] transitions = new int[(deadState + 1) * classCount];
+            Arrays.fill(transitions, deadState);
+            for (int state = 0; state < deadState; state++) {
+                for (int c = 0; c < classCount; c++) {
+                    int child = children.get(state)[c];
+                    if (child > 0) {
+                        transitions[state * classCount + c] = child;
+                    }
+                }
+            }
+            List<List<Integer>> allOutputs = new ArrayList<>(ownOutputs);
+            allOutputs.add(new ArrayList<>());
+            return build(transitions, allOutputs, deadState);
+        }
+
+        private PatternAutomaton build(int[] transitions, List<List<Integer>> allOutputs, int deadState) {
+            int stateCount = allOutputs.size();
+            int[] outputOffsets = new int[stateCount + 1];
+            for (int state = 0; state < stateCount; state++) {
+                outputOffsets[state + 1] = outputOffsets[state] + allOutputs.get(state).size();
+            }
+            int[] outputs = new int[outputOffsets[stateCount]];
+            for (int state = 0; state < stateCount; state++) {
+                int offset = outputOffsets[state];
+                for (int pattern : allOutputs.get(state)) {
+                    outputs[offset++] = pattern;
+                }
+            }
+
+            return new PatternAutomaton(patterns.size(), latin1Classes, extraChars, extraClasses,
+                    classCount, IntBuffer.wrap(transitions), IntBuffer.wrap(outputOffsets), IntBuffer.wrap(outputs),
+                    deadState);
+        }
+
+        private void buildAlphabet() {
+            TreeSet<Character> alphabet = new TreeSet<>();
+            for (String pattern : patterns) {
+                for (int i = 0; i < pattern.length(); i++) {
+                    alphabet.add(pattern.charAt(i));
+                }
+            }
+
+            latin1Classes = new int[LATIN_1_SIZE];
+            List<Character> extra = new ArrayList<>();
+            int nextClass = 1;
+            for (char c : alphabet) {
+                if (c < LATIN_1_SIZE) {
+                    latin1Classes[c] = nextClass++;
+                } else {
+                    extra.add(c);
+                }
+            }
+            // upper case characters share the class of their lower case
+            for (char c = 0; c < LATIN_1_SIZE; c++) {
+                char lowerCase = IabFile.toLowerCaseLatin1(c);
+                if (lowerCase != c && latin1Classes[c] == 0) {
+                    latin1Classes[c] = latin1Classes[lowerCase];
+                }
+            }
+
+            extraChars = new char[extra.size()];
+            extraClasses = new int[extra.size()];
+            for (int i = 0; i < extra.size(); i++) {
+                extraChars[i] = extra.get(i);
+                extraClasses[i] = nextClass++;
+            }
+            classCount = nextClass;
+        }
+
+        private void buildTrie() {
+            newState();
+            for (int id = 0; id < patterns.size(); id++) {
+                String pattern = patterns.get(id);
+                int state = ROOT;
+                for (int i = 0; i < pattern.length(); i++) {
+                    int c = classOf(pattern.charAt(i));
+                    int next = children.get(state)[c];
+                    if (next == 0) {
+                        next = newState();
+                        children.get(state)[c] = next;
+                    }
+                    state = next;
+                }
+                ownOutputs.get(state).add(id);
+            }
+        }
+
+        private int newState() {
+            children.add(new int[classCount]);
+            ownOutputs.add(new ArrayList<>());
+            return children.size() - 1;
+        }
+
+        private int classOf(char c) {
+            return c < LATIN_1_SIZE ? latin1Classes[c] : extraClasses[Arrays.binarySearch(extraChars, c)];
+        }
+
+    }
+
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.MatchingEngine;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.IabFile;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.Latin1Text;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds which of a set of patterns are present in a text, the way {@link MatchingEngine#VECTOR} matches the
+ * lists. The text is copied once into a byte array and lower cased; then this scalar implementation looks for
+ * every pattern in turn: the positions holding both its first char and its last char at the right distance are
+ * the candidates, and only those are compared with the whole pattern.
+ * <p>
+ * {@link #create(List, boolean)} returns a subclass which lower cases the text and finds the candidate
+ * positions of all the patterns at once with the Vector API when the {@value #VECTOR_MODULE} module is
+ * available, that is when the JVM was started with {@code --add-modules jdk.incubator.vector}; otherwise this
+ * scalar implementation, which gives the same answers. A text with a char beyond ISO-8859-1 is lower cased as
+ * a string and searched with {@link String#contains(CharSequence)}; the bytes of a {@link Latin1Text} are
+ * copied as they are. Patterns matched at the start of the text are compared with it one after the other in
+ * both implementations.
+ * <p>
+ * Instances are immutable and can be shared between threads; like those of a {@link PatternAutomaton}, the
+ * {@link PatternAutomaton.Matches} returned by {@link #scan(CharSequence)} are thread confined and reused by
+ * the next scan on the same thread.
+ */
+public class PatternSearch {
+
+    static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final String VECTOR_SEARCH_CLASS =
+            "com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.vector.VectorPatternSearch";
+
+    private static final int LATIN_1_SIZE = 256;
+
+    private final String[] patterns;
+
+    private final byte[][] latin1Patterns;
+
+    private final boolean anchored;
+
+    private final int maxPatternLength;
+
+    private final ThreadLocal<Scratch> scratch;
+
+    /**
+     * @param patterns lower case patterns; a pattern's id is its index in the list
+     * @param anchored whether the patterns are only found at the start of the text
+     */
+    protected PatternSearch(List<String> patterns, boolean anchored) {
+        this.patterns = patterns.toArray(new String[0]);
+        this.latin1Patterns = new byte[this.patterns.length][];
+        this.anchored = anchored;
+        int maxLength = 0;
+        for (int i = 0; i < this.patterns.length; i++) {
+            // a pattern beyond ISO-8859-1 can't be present in a text within it, which lower cases within it
+            latin1Patterns[i] = toLatin1(this.patterns[i]);
+            maxLength = Math.max(maxLength, this.patterns[i].length());
+        }
+        this.maxPatternLength = maxLength;
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(this.patterns.length));
+    }
+
+    /**
+     * @param patterns lower case patterns; a pattern's id is its index in the list
+     * @param anchored whether the patterns are only found at the start of the text
+     * @return a search using the Vector API when it is available, otherwise a scalar one
+     */
+    public static PatternSearch create(List<String> patterns, boolean anchored) {
+        if (isVectorAvailable()) {
+            try {
+                return (PatternSearch) Class.forName(VECTOR_SEARCH_CLASS)
+                        .getConstructor(List.class, boolean.class).newInstance(patterns, anchored);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // the module is there but unusable, e.g. with another API than compiled against
+            }
+        }
+        return new PatternSearch(patterns, anchored);
+    }
+
+    /**
+     * @return whether the {@value #VECTOR_MODULE} module has been added to the JVM
+     */
+    public static boolean isVectorAvailable() {
+        return ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent();
+    }
+
+    /**
+     * @return whether this search uses the Vector API
+     */
+    public boolean isVectorized() {
+        return false;
+    }
+
+    public int patternCount() {
+        return patterns.length;
+    }
+
+    /**
+     * Searches the text for every pattern and returns the patterns found in it. The result is only valid
+     * until the next scan performed by the current thread.
+     */
+    public PatternAutomaton.Matches scan(CharSequence text) {
+        Scratch current = scratch.get();
+        PatternAutomaton.Matches result = current.matches;
+        result.reset();
+
+        // an anchored pattern can't reach past the longest one
+        int length = anchored ? Math.min(text.length(), maxPatternLength) : text.length();
+        byte[] bytes = current.bytes(length + padding());
+        if (text instanceof Latin1Text) {
+            Latin1Text latin1 = (Latin1Text) text;
+            System.arraycopy(latin1.bytes(), latin1.offset(), bytes, 0, length);
+        } else if (!copyLatin1(text, length, bytes)) {
+            scanLowerCase(IabFile.toLowerCase(text.toString()), result);
+            return result;
+        }
+
+        lowerCase(bytes, length);
+        if (anchored) {
+            for (int i = 0; i < latin1Patterns.length; i++) {
+                byte[] pattern = latin1Patterns[i];
+                if (pattern != null && startsWith(bytes, length, pattern)) {
+                    result.add(i);
+                }
+            }
+        } else {
+            findAll(bytes, length, result);
+        }
+        return result;
+    }
+
+    private void scanLowerCase(String text, PatternAutomaton.Matches result) {
+        for (int i = 0; i < patterns.length; i++) {
+            if (anchored ? text.startsWith(patterns[i]) : text.contains(patterns[i])) {
+                result.add(i);
+            }
+        }
+    }
+
+    /**
+     * @return number of bytes past the text which {@link #lowerCase(byte[], int)} and
+     * {@link #findAll(byte[], int, PatternAutomaton.Matches)} may read and write
+     */
+    protected int padding() {
+        return 0;
+    }
+
+    /**
+     * Lower cases the first {@code length} ISO-8859-1 chars of the text, as
+     * {@link IabFile#toLowerCaseLatin1(char)} does.
+     */
+    protected void lowerCase(byte[] text, int length) {
+        for (int i = 0; i < length; i++) {
+            text[i] = (byte) IabFile.toLowerCaseLatin1((char) (text[i] & 0xFF));
+        }
+    }
+
+    /**
+     * Adds the ids of the patterns present anywhere in the text to the result, looking for them one after the
+     * other.
+     *
+     * @param text   lower case text followed by {@link #padding()} bytes
+     * @param length length of the text
+     */
+    protected void findAll(byte[] text, int length, PatternAutomaton.Matches result) {
+        for (int i = 0; i < latin1Patterns.length; i++) {
+            byte[] pattern = latin1Patterns[i];
+            if (pattern != null && contains(text, length, pattern)) {
+                result.add(i);
+            }
+        }
+    }
+
+    /**
+     * @param text   lower case text
+     * @param length length of the text
+     * @return whether the pattern is present in the text
+     */
+    protected static boolean contains(byte[] text, int length, byte[] pattern) {
+        int last = pattern.length - 1;
+        if (last < 0) {
+            return true;
+        }
+        byte firstByte = pattern[0];
+        byte lastByte = pattern[last];
+        for (int i = 0; i + last < length; i++) {
+            if (text[i] == firstByte && text[i + last] == lastByte && matchesAt(text, i, pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the pattern is found at the position, whose first and last chars are known to match
+     */
+    private static boolean matchesAt(byte[] text, int position, byte[] pattern) {
+        return pattern.length <= 2
+                || Arrays.equals(text, position + 1, position + pattern.length - 1, pattern, 1, pattern.length - 1);
+    }
+
+    /**
+     * Lets a subclass add a pattern found to a result; a pattern already found is ignored.
+     */
+    protected static void addFound(PatternAutomaton.Matches result, int pattern) {
+        result.add(pattern);
+    }
+
+    private static boolean startsWith(byte[] text, int length, byte[] pattern) {
+        return pattern.length <= length && Arrays.equals(text, 0, pattern.length, pattern, 0, pattern.length);
+    }
+
+    private static boolean copyLatin1(CharSequence text, int length, byte[] bytes) {
+        int chars = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            chars |= c;
+            bytes[i] = (byte) c;
+        }
+        return chars < LATIN_1_SIZE;
+    }
+
+    /**
+     * @return the pattern's chars as ISO-8859-1 bytes, or null when it has a char beyond ISO-8859-1
+     */
+    protected static byte[] toLatin1(String pattern) {
+        byte[] bytes = new byte[pattern.length()];
+        return copyLatin1(pattern, pattern.length(), bytes) ? bytes : null;
+    }
+
+    private static final class Scratch {
+
+        private final PatternAutomaton.Matches matches;
+
+        private byte[] bytes = new byte[0];
+
+        private Scratch(int patternCount) {
+            matches = new PatternAutomaton.Matches(patternCount);
+        }
+
+        private byte[] bytes(int capacity) {
+            if (bytes.length < capacity) {
+                bytes = new byte[Math.max(capacity, 2 * bytes.length)];
+            }
+            return bytes;
+        }
+
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.RecordHit;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.RecordHitsReport;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.UserAgentList;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.IabFile;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.StripedCounters;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Counts how many checks found each record of the include and exclude lists. Records are identified by their
+ * index, as returned by {@link IncludeUserAgents#presentRecord(CharSequence, long)} and
+ * {@link ExcludeUserAgents#presentRecord(CharSequence)}, so the counters don't depend on the matching engine.
+ */
+public final class RecordHitCounters {
+
+    private static final String[] NO_PATTERNS = new String[0];
+
+    private final long listsVersion;
+
+    private final IncludeUserAgents includeUserAgents;
+
+    private final ExcludeUserAgents excludeUserAgents;
+
+    private final StripedCounters includeHits;
+
+    private final StripedCounters excludeHits;
+
+    private volatile long sinceMillis = System.currentTimeMillis();
+
+    public RecordHitCounters(long listsVersion, IncludeUserAgents includeUserAgents,
+                             ExcludeUserAgents excludeUserAgents) {
+        this.listsVersion = listsVersion;
+        this.includeUserAgents = includeUserAgents;
+        this.excludeUserAgents = excludeUserAgents;
+        this.includeHits = new StripedCounters(includeUserAgents.getRecords().size());
+        this.excludeHits = new StripedCounters(excludeUserAgents.getRecords().size());
+    }
+
+    /**
+     * @param includeRecord the include record found, or {@link IncludeUserAgents#NO_RECORD}
+     * @param excludeRecord the exclude record found, or {@link ExcludeUserAgents#NO_RECORD}
+     */
+    public void count(int includeRecord, int excludeRecord) {
+        if (includeRecord != IncludeUserAgents.NO_RECORD) {
+            includeHits.increment(includeRecord);
+        }
+        if (excludeRecord != ExcludeUserAgents.NO_RECORD) {
+            excludeHits.increment(excludeRecord);
+        }
+    }
+
+    public void reset() {
+        sinceMillis = System.currentTimeMillis();
+        includeHits.reset();
+        excludeHits.reset();
+    }
+
+    public RecordHitsReport report() {
+        List<RecordHit> hits = new ArrayList<>(includeHits.size() + excludeHits.size());
+        List<IncludeRecord> includeRecords = includeUserAgents.getRecords();
+        for (int i = 0; i < includeRecords.size(); i++) {
+            IncludeRecord record = includeRecords.get(i);
+            hits.add(new RecordHit(UserAgentList.INCLUDE, i, record.getUserAgentPattern(), record.isActive(),
+                    record.isStartOfString(), NO_PATTERNS, null, toDate(record.getInactiveDate()),
+                    includeHits.sum(i)));
+        }
+        List<ExcludeRecord> excludeRecords = excludeUserAgents.getRecords();
+        for (int i = 0; i < excludeRecords.size(); i++) {
+            ExcludeRecord record = excludeRecords.get(i);
+            hits.add(new RecordHit(UserAgentList.EXCLUDE, i, record.getUserAgentPattern(), record.isActive(),
+                    record.isStartOfString(), record.getExceptionPatterns(), record.getPrimaryImpact(),
+                    toDate(record.getInactiveDate()), excludeHits.sum(i)));
+        }
+        return new RecordHitsReport(listsVersion, sinceMillis, hits);
+    }
+
+    private static Date toDate(long millis) {
+        return millis == IabFile.NO_DATE ? null : new Date(millis);
+    }
+
+}
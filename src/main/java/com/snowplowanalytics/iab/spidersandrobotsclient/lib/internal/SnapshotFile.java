@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.MatchingEngine;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotReader;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.IabClientErrors.invalidSnapshotError;
+import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.IabClientErrors.unknownMatchingEngineError;
+
+/**
+ * The file holding a compiled snapshot of the lists:
+ * <pre>
+ * int   magic "IABS"
+ * int   format version
+ * long  payload length in bytes
+ * long  CRC32C of the payload
+ * byte[] payload, see {@link SnapshotWriter}
+ * </pre>
+ * The header is a multiple of 8 bytes long, so the arrays {@link SnapshotWriter aligned} in the payload are
+ * aligned in a mapping of the file too. The format version changes whenever the layout of any compiled
+ * structure does; a file of another version is rejected rather than converted.
+ */
+public final class SnapshotFile {
+
+    private static final int MAGIC = 0x49414253;
+
+    public static final int FORMAT_VERSION = 2;
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + 2 * Long.BYTES;
+
+    private SnapshotFile() {
+
+    }
+
+    /**
+     * Writes the file through a temporary file in the same directory, so the file is replaced atomically
+     * and readers never see a partial snapshot.
+     */
+    public static void write(File file, SnapshotWriter payload) throws IOException {
+        byte[] bytes = payload.toByteArray();
+        CRC32C checksum = new CRC32C();
+        checksum.update(bytes);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                .putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(bytes.length)
+                .putLong(checksum.getValue());
+        header.flip();
+
+        Path target = file.getAbsoluteFile().toPath();
+        Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer body = ByteBuffer.wrap(bytes);
+                while (header.hasRemaining() || body.hasRemaining()) {
+                    channel.write(new ByteBuffer[]{header, body});
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Maps the file read only and verifies its header and checksum. The structures read from the payload view
+     * their large arrays in place rather than copy them, so the pages of the file are shared by every JVM
+     * mapping it, and the mapping stays alive as long as any of those structures.
+     *
+     * @return a reader positioned at the start of the payload
+     */
+    public static SnapshotReader map(File file) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw invalidSnapshotError(file, "too short");
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (mapped.getInt() != MAGIC) {
+            throw invalidSnapshotError(file, "not a snapshot file");
+        }
+        int formatVersion = mapped.getInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw invalidSnapshotError(file, "format version " + formatVersion + " instead of " + FORMAT_VERSION);
+        }
+        long length = mapped.getLong();
+        long expectedChecksum = mapped.getLong();
+        if (length != mapped.remaining()) {
+            throw invalidSnapshotError(file, "truncated");
+        }
+
+        ByteBuffer payload = mapped.slice();
+        CRC32C checksum = new CRC32C();
+        checksum.update(payload.duplicate());
+        if (checksum.getValue() != expectedChecksum) {
+            throw invalidSnapshotError(file, "checksum mismatch");
+        }
+        return new SnapshotReader(payload);
+    }
+
+    /**
+     * @return the engine a list was exported with
+     * @throws IllegalArgumentException when the ordinal read is of no engine
+     */
+    static MatchingEngine readEngine(SnapshotReader in) {
+        int ordinal = in.readInt();
+        MatchingEngine[] engines = MatchingEngine.values();
+        if (ordinal < 0 || ordinal >= engines.length) {
+            throw unknownMatchingEngineError(ordinal);
+        }
+        return engines[ordinal];
+    }
+
+}
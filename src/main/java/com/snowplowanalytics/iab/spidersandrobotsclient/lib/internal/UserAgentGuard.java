@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.OversizeUserAgentListener;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.MatchingEngine;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.OversizeUserAgentStats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds the part of a user agent the lists are matched against. A user agent longer than the maximum
+ * length is checked as if it were its first maxLength chars, so patterns found only past them are missed;
+ * a surrogate pair is never split.
+ * <p>
+ * A guard is only used with the {@link MatchingEngine#AUTOMATON} engine, which scans a user agent once for all
+ * the patterns of a list, so it bounds the cost of a check to linear in the maximum length whatever the user
+ * agents sent. The other engines may compare every pattern at every position, and a check would still cost up
+ * to the maximum length times the number of patterns: the configuration rejects them with a maximum length.
+ */
+public final class UserAgentGuard {
+
+    private final int maxLength;
+
+    private final OversizeUserAgentListener listener;
+
+    private final int sampleEvery;
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final LongAdder truncatedChars = new LongAdder();
+
+    private final LongAccumulator longestLength = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param listener called for one oversize user agent in sampleEvery, may be null
+     */
+    public UserAgentGuard(int maxLength, OversizeUserAgentListener listener, int sampleEvery) {
+        this.maxLength = maxLength;
+        this.listener = listener;
+        this.sampleEvery = sampleEvery;
+    }
+
+    /**
+     * @return the user agent itself, or its examined part when it is longer than the maximum length
+     */
+    public String examine(String userAgent) {
+        if (userAgent == null || userAgent.length() <= maxLength) {
+            return userAgent;
+        }
+        return (String) truncate(userAgent);
+    }
+
+    /**
+     * Same as {@link #examine(String)} for any character sequence; the examined part is then a
+     * {@link CharSequence#subSequence(int, int) sub-sequence}.
+     */
+    public CharSequence examine(CharSequence userAgent) {
+        if (userAgent == null || userAgent.length() <= maxLength) {
+            return userAgent;
+        }
+        return truncate(userAgent);
+    }
+
+    private CharSequence truncate(CharSequence userAgent) {
+        long n = count.getAndIncrement();
+        truncatedChars.add(userAgent.length() - maxLength);
+        longestLength.accumulate(userAgent.length());
+        if (listener != null && n % sampleEvery == 0) {
+            try {
+                listener.onOversizeUserAgent(userAgent.toString());
+            } catch (RuntimeException e) {
+                // a failing listener must not fail the check
+            }
+        }
+
+        int end = Character.isHighSurrogate(userAgent.charAt(maxLength - 1)) ? maxLength - 1 : maxLength;
+        return userAgent.subSequence(0, end);
+    }
+
+    public OversizeUserAgentStats stats() {
+        return new OversizeUserAgentStats(maxLength, count.get(), truncatedChars.sum(),
+                (int) longestLength.get());
+    }
+
+}
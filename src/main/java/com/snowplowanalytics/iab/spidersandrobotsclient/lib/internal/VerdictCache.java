@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.VerdictCacheStats;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of user agent verdicts.
+ * <p>
+ * The cache is split into lock striped segments, each a segmented LRU: new user agents enter the
+ * probation segment and are promoted to the protected segment (at most 80% of the weight) on their
+ * second hit, so one-off user agents can't flush the frequent ones. Entries are weighed by an estimate
+ * of their heap size.
+ * <p>
+ * A verdict is stored together with the time bucket it was computed for; a lookup for another bucket is
+ * a miss and the following put replaces the entry.
+ */
+public final class VerdictCache<V> {
+
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private static final int PROTECTED_PERCENT = 80;
+
+    private static final long MIN_SEGMENT_WEIGHT = 16 * 1024;
+
+    private final Segment<V>[] segments;
+
+    private final int segmentMask;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public VerdictCache(long maxWeight) {
+        int segmentCount = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4);
+        while (segmentCount > 1 && maxWeight / segmentCount < MIN_SEGMENT_WEIGHT) {
+            segmentCount >>= 1;
+        }
+
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(maxWeight / segmentCount);
+        }
+        segmentMask = segmentCount - 1;
+    }
+
+    public V get(String userAgent, int bucket) {
+        V verdict = segmentFor(userAgent).get(userAgent, bucket);
+        if (verdict == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return verdict;
+    }
+
+    public void put(String userAgent, int bucket, V verdict) {
+        int evicted = segmentFor(userAgent).put(userAgent, new Entry<>(bucket, verdict, weigh(userAgent)));
+        if (evicted > 0) {
+            evictions.add(evicted);
+        }
+    }
+
+    public void clear() {
+        for (Segment<V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public VerdictCacheStats stats() {
+        long entries = 0;
+        long weight = 0;
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                entries += segment.probation.size() + segment.protectedEntries.size();
+                weight += segment.probationWeight + segment.protectedWeight;
+            }
+        }
+        return new VerdictCacheStats(hits.sum(), misses.sum(), evictions.sum(), entries, weight);
+    }
+
+    private Segment<V> segmentFor(String userAgent) {
+        int h = userAgent.hashCode() * 0x9E3779B9;
+        return segments[(h ^ h >>> 16) & segmentMask];
+    }
+
+    private static int weigh(String userAgent) {
+        return ENTRY_OVERHEAD + 2 * userAgent.length();
+    }
+
+    private static final class Entry<V> {
+
+        private final int bucket;
+
+        private final V verdict;
+
+        private final int weight;
+
+        private Entry(int bucket, V verdict, int weight) {
+            this.bucket = bucket;
+            this.verdict = verdict;
+            this.weight = weight;
+        }
+
+    }
+
+    private static final class Segment<V> {
+
+        private final long maxWeight;
+
+        private final long maxProtectedWeight;
+
+        private final LinkedHashMap<String, Entry<V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+
+        private final LinkedHashMap<String, Entry<V>> protectedEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+        private long probationWeight;
+
+        private long protectedWeight;
+
+        private Segment(long maxWeight) {
+            this.maxWeight = maxWeight;
+            this.maxProtectedWeight = maxWeight * PROTECTED_PERCENT / 100;
+        }
+
+        private synchronized V get(String userAgent, int bucket) {
+            Entry<V> entry = protectedEntries.get(userAgent);
+            if (entry != null) {
+                return entry.bucket == bucket ? entry.verdict : null;
+            }
+
+            entry = probation.get(userAgent);
+            if (entry == null || entry.bucket != bucket) {
+                return null;
+            }
+
+            probation.remove(userAgent);
+            probationWeight -= entry.weight;
+            protectedEntries.put(userAgent, entry);
+            protectedWeight += entry.weight;
+            demoteProtected();
+            return entry.verdict;
+        }
+
+        private synchronized int put(String userAgent, Entry<V> entry) {
+            if (entry.weight > maxWeight) {
+                return 0;
+            }
+
+            Entry<V> previous = protectedEntries.get(userAgent);
+            if (previous != null) {
+                protectedEntries.put(userAgent, entry);
+                protectedWeight += entry.weight - previous.weight;
+                return 0;
+            }
+
+            previous = probation.put(userAgent, entry);
+            probationWeight += entry.weight - (previous == null ? 0 : previous.weight);
+            return evict();
+        }
+
+        private void demoteProtected() {
+            Iterator<Map.Entry<String, Entry<V>>> it = protectedEntries.entrySet().iterator();
+            while (protectedWeight > maxProtectedWeight && it.hasNext()) {
+                Map.Entry<String, Entry<V>> eldest = it.next();
+                it.remove();
+                protectedWeight -= eldest.getValue().weight;
+                probation.put(eldest.getKey(), eldest.getValue());
+                probationWeight += eldest.getValue().weight;
+            }
+        }
+
+        private int evict() {
+            int evicted = 0;
+            evicted += evictEldest(probation, true);
+            evicted += evictEldest(protectedEntries, false);
+            return evicted;
+        }
+
+        private int evictEldest(LinkedHashMap<String, Entry<V>> entries, boolean probationSegment) {
+            int evicted = 0;
+            Iterator<Entry<V>> it = entries.values().iterator();
+            while (probationWeight + protectedWeight > maxWeight && it.hasNext()) {
+                Entry<V> eldest = it.next();
+                it.remove();
+                if (probationSegment) {
+                    probationWeight -= eldest.weight;
+                } else {
+                    protectedWeight -= eldest.weight;
+                }
+                evicted++;
+            }
+            return evicted;
+        }
+
+        private synchronized void clear() {
+            probation.clear();
+            protectedEntries.clear();
+            probationWeight = 0;
+            protectedWeight = 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.SettingDefinition;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * A check of an IabClient, committed when it is slower than the {@code threshold} setting and picked by the
+ * {@code sampleEvery} setting. Both are standard JFR settings, set in a .jfc file or when starting the
+ * recording, for example {@code -XX:StartFlightRecording:settings=iab.jfc}.
+ * <p>
+ * The event is disabled by default, so a recording with the JDK's default.jfc or profile.jfc settings leaves
+ * it off; it has to be enabled by name. While it is disabled, a check only reads whether its event type is
+ * enabled, and creates no event.
+ */
+@Name(CheckEvent.NAME)
+@Label("IAB Check")
+@Category({"Snowplow", "IAB Spiders and Robots"})
+@Description("A check of a user agent and IP address against the IAB lists")
+@Enabled(false)
+@Threshold("1 ms")
+@StackTrace(false)
+public final class CheckEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "com.snowplowanalytics.iab.Check";
+
+    @Label("Lists Version")
+    public long listsVersion;
+
+    @Label("User Agent")
+    public String userAgent;
+
+    @Label("User Agent Length")
+    @Description("Length of the user agent in chars, -1 when there is none")
+    public int userAgentLength;
+
+    @Label("Custom Lists Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    public long customListsDuration;
+
+    @Label("IP Ranges Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    public long ipRangesDuration;
+
+    @Label("User Agent Lists Duration")
+    @Description("Time spent on the include and exclude lists, or in the verdict cache")
+    @Timespan(Timespan.NANOSECONDS)
+    public long userAgentListsDuration;
+
+    @Label("Spider or Robot")
+    public boolean spiderOrRobot;
+
+    @Label("Category")
+    public String category;
+
+    @Label("Reason")
+    public String reason;
+
+    @Label("Primary Impact")
+    public String primaryImpact;
+
+    @Label("Sample Every")
+    @Description("Commit one check in this many, at random; 1 commits every check over the threshold")
+    @SettingDefinition
+    @Name("sampleEvery")
+    protected boolean sampleEvery(SamplingControl control) {
+        return control.sample();
+    }
+
+}
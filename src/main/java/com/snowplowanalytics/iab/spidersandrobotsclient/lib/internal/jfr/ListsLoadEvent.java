@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The loading of the lists of an IabClient, from the IAB files or from a snapshot file, with the time spent
+ * on each list and their sizes. Committed whether or not the lists are then published.
+ */
+@Name(ListsLoadEvent.NAME)
+@Label("IAB Lists Load")
+@Category({"Snowplow", "IAB Spiders and Robots"})
+@Description("Parsing and compiling of the IAB lists, or mapping of a snapshot of them")
+@StackTrace(false)
+public final class ListsLoadEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "com.snowplowanalytics.iab.ListsLoad";
+
+    @Label("Lists Version")
+    public long listsVersion;
+
+    @Label("From Snapshot")
+    @Description("Whether the lists were mapped from a snapshot file rather than parsed from the IAB files")
+    public boolean fromSnapshot;
+
+    @Label("IP Ranges Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    public long ipRangesDuration;
+
+    @Label("Exclude User Agents Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    public long excludeUserAgentsDuration;
+
+    @Label("Include User Agents Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    public long includeUserAgentsDuration;
+
+    @Label("Custom Lists Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    public long customListsDuration;
+
+    @Label("IP Ranges")
+    @Description("Addresses, merged IPv4 intervals and IPv6 prefixes")
+    public int ipRanges;
+
+    @Label("Exclude Records")
+    public int excludeRecords;
+
+    @Label("Include Records")
+    public int includeRecords;
+
+    @Label("Custom Exclude Patterns")
+    public int customExcludePatterns;
+
+    @Label("Custom Include Patterns")
+    public int customIncludePatterns;
+
+}
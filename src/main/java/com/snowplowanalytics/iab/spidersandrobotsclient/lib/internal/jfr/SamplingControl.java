@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.jfr;
+
+import jdk.jfr.SettingControl;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The {@code sampleEvery} setting of {@link CheckEvent}: a positive number N so that one event in N, at
+ * random, is committed. When several recordings set it, the most frequent sampling wins.
+ */
+public final class SamplingControl extends SettingControl {
+
+    private static final long EVERY_EVENT = 1;
+
+    private volatile long every = EVERY_EVENT;
+
+    @Override
+    public String combine(Set<String> settingValues) {
+        long smallest = Long.MAX_VALUE;
+        for (String value : settingValues) {
+            smallest = Math.min(smallest, parse(value));
+        }
+        return Long.toString(smallest == Long.MAX_VALUE ? EVERY_EVENT : smallest);
+    }
+
+    @Override
+    public void setValue(String settingValue) {
+        every = parse(settingValue);
+    }
+
+    @Override
+    public String getValue() {
+        return Long.toString(every);
+    }
+
+    boolean sample() {
+        long n = every;
+        return n <= EVERY_EVENT || ThreadLocalRandom.current().nextLong(n) == 0;
+    }
+
+    private static long parse(String value) {
+        try {
+            return Math.max(EVERY_EVENT, Long.parseLong(value.trim()));
+        } catch (NumberFormatException | NullPointerException e) {
+            return EVERY_EVENT;
+        }
+    }
+
+}
@@ -30,6 +30,11 @@ public final class IabFile {
 
     public static final Charset CHARSET = StandardCharsets.ISO_8859_1;
 
+    /**
+     * Marks a missing or malformed date where dates are kept as epoch milliseconds.
+     */
+    public static final long NO_DATE = Long.MIN_VALUE;
+
     private static final Locale LOCALE = Locale.ENGLISH;
 
     private static final String FALSE_STRING = "0";
@@ -43,6 +48,16 @@ public final class IabFile {
     private static final CSVFormat DEFAULT_FORMAT = CSVFormat.DEFAULT.withDelimiter(PIPE)
             .withCommentMarker(COMMENT);
 
+    private static final int LATIN_1_SIZE = 256;
+
+    private static final char[] LATIN_1_LOWER_CASE = new char[LATIN_1_SIZE];
+
+    static {
+        for (char c = 0; c < LATIN_1_SIZE; c++) {
+            LATIN_1_LOWER_CASE[c] = String.valueOf(c).toLowerCase(LOCALE).charAt(0);
+        }
+    }
+
     private IabFile() {
 
     }
@@ -76,8 +91,25 @@ public final class IabFile {
         return DateUtils.parseQuietly(date, INACTIVE_DATE_FORMAT);
     }
 
+    public static long parseDateMillis(String date) {
+        Date result = parseDate(date);
+        return result == null ? NO_DATE : result.getTime();
+    }
+
     public static String toLowerCase(String value) {
         return StringUtils.lowerCase(value, LOCALE);
     }
 
+    public static boolean isLatin1(char c) {
+        return c < LATIN_1_SIZE;
+    }
+
+    /**
+     * Lower cases a single ISO-8859-1 character. For text made only of such characters this gives the same
+     * result, character by character, as {@link #toLowerCase(String)}.
+     */
+    public static char toLowerCaseLatin1(char c) {
+        return LATIN_1_LOWER_CASE[c];
+    }
+
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util;
+
+import java.nio.IntBuffer;
+
+/**
+ * Set of {@code int} values in a single open addressing table with linear probing. Slot value 0 marks an
+ * empty slot, so the value 0 itself is kept in a separate flag.
+ * <p>
+ * A set {@link #readFrom(SnapshotReader) read} from a mapped snapshot probes the table in place, and is read
+ * only.
+ */
+public final class IntOpenHashSet {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private IntBuffer slots = IntBuffer.allocate(MIN_CAPACITY);
+
+    private boolean containsZero;
+
+    private int size;
+
+    public void add(int value) {
+        if (value == 0) {
+            if (!containsZero) {
+                containsZero = true;
+                size++;
+            }
+            return;
+        }
+
+        if ((size + 1) * 2 > slots.limit()) {
+            resize(slots.limit() * 2);
+        }
+        if (insert(slots, value)) {
+            size++;
+        }
+    }
+
+    public boolean contains(int value) {
+        if (value == 0) {
+            return containsZero;
+        }
+
+        int mask = slots.limit() - 1;
+        for (int i = hash(value) & mask; ; i = i + 1 & mask) {
+            int slot = slots.get(i);
+            if (slot == value) {
+                return true;
+            }
+            if (slot == 0) {
+                return false;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void writeTo(SnapshotWriter out) {
+        out.writeInts(slots).writeBoolean(containsZero).writeInt(size);
+    }
+
+    public static IntOpenHashSet readFrom(SnapshotReader in) {
+        IntOpenHashSet set = new IntOpenHashSet();
+        set.slots = in.readIntBuffer();
+        set.containsZero = in.readBoolean();
+        set.size = in.readInt();
+        return set;
+    }
+
+    private void resize(int capacity) {
+        IntBuffer resized = IntBuffer.allocate(capacity);
+        for (int i = 0; i < slots.limit(); i++) {
+            int value = slots.get(i);
+            if (value != 0) {
+                insert(resized, value);
+            }
+        }
+        slots = resized;
+    }
+
+    private static boolean insert(IntBuffer slots, int value) {
+        int mask = slots.limit() - 1;
+        for (int i = hash(value) & mask; ; i = i + 1 & mask) {
+            if (slots.get(i) == value) {
+                return false;
+            }
+            if (slots.get(i) == 0) {
+                slots.put(i, value);
+                return true;
+            }
+        }
+    }
+
+    private static int hash(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ h >>> 16;
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util;
+
+/**
+ * A range of ISO-8859-1 bytes seen as chars, without decoding them. The matchers recognise it and read the
+ * bytes themselves, folding each through their 256 entry tables; anything else sees the chars. The view can
+ * be pointed at another range, so a batch allocates one per thread rather than one per row; it must then not
+ * be kept past the check it was given to.
+ */
+public final class Latin1Text implements CharSequence {
+
+    private byte[] bytes;
+
+    private int offset;
+
+    private int length;
+
+    public Latin1Text(byte[] bytes, int offset, int length) {
+        set(bytes, offset, length);
+    }
+
+    public Latin1Text set(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes[offset + index] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new Latin1Text(bytes, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, offset, length, IabFile.CHARSET);
+    }
+
+}
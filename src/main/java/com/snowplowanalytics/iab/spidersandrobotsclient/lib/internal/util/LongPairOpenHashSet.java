@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util;
+
+import java.nio.LongBuffer;
+
+/**
+ * Set of pairs of {@code long} values, such as 128 bit IPv6 addresses, in an open addressing table with
+ * linear probing. The first and second values of a slot are interleaved in one array. The pair (0, 0)
+ * marks an empty slot, so that pair itself is kept in a separate flag.
+ * <p>
+ * A set {@link #readFrom(SnapshotReader) read} from a mapped snapshot probes the table in place, and is read
+ * only.
+ */
+public final class LongPairOpenHashSet {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private LongBuffer slots = LongBuffer.allocate(MIN_CAPACITY * 2);
+
+    private boolean containsZero;
+
+    private int size;
+
+    public void add(long first, long second) {
+        if (first == 0 && second == 0) {
+            if (!containsZero) {
+                containsZero = true;
+                size++;
+            }
+            return;
+        }
+
+        if ((size + 1) * 4 > slots.limit()) {
+            resize(slots.limit());
+        }
+        if (insert(slots, first, second)) {
+            size++;
+        }
+    }
+
+    public boolean contains(long first, long second) {
+        if (first == 0 && second == 0) {
+            return containsZero;
+        }
+
+        int mask = slots.limit() / 2 - 1;
+        for (int i = hash(first, second) & mask; ; i = i + 1 & mask) {
+            long slotFirst = slots.get(i * 2);
+            long slotSecond = slots.get(i * 2 + 1);
+            if (slotFirst == first && slotSecond == second) {
+                return true;
+            }
+            if (slotFirst == 0 && slotSecond == 0) {
+                return false;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void writeTo(SnapshotWriter out) {
+        out.writeLongs(slots).writeBoolean(containsZero).writeInt(size);
+    }
+
+    public static LongPairOpenHashSet readFrom(SnapshotReader in) {
+        LongPairOpenHashSet set = new LongPairOpenHashSet();
+        set.slots = in.readLongBuffer();
+        set.containsZero = in.readBoolean();
+        set.size = in.readInt();
+        return set;
+    }
+
+    private void resize(int capacity) {
+        LongBuffer resized = LongBuffer.allocate(capacity * 2);
+        for (int i = 0; i < slots.limit(); i += 2) {
+            if (slots.get(i) != 0 || slots.get(i + 1) != 0) {
+                insert(resized, slots.get(i), slots.get(i + 1));
+            }
+        }
+        slots = resized;
+    }
+
+    private static boolean insert(LongBuffer slots, long first, long second) {
+        int mask = slots.limit() / 2 - 1;
+        for (int i = hash(first, second) & mask; ; i = i + 1 & mask) {
+            if (slots.get(i * 2) == first && slots.get(i * 2 + 1) == second) {
+                return false;
+            }
+            if (slots.get(i * 2) == 0 && slots.get(i * 2 + 1) == 0) {
+                slots.put(i * 2, first);
+                slots.put(i * 2 + 1, second);
+                return true;
+            }
+        }
+    }
+
+    private static int hash(long first, long second) {
+        long h = (first * 0x9E3779B97F4A7C15L ^ second) * 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ h >>> 32);
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs an action over the index range of a batch, split in halves across a {@link ForkJoinPool} until
+ * the ranges are small enough to be worth a task of their own.
+ */
+public final class ParallelRanges {
+
+    /**
+     * Batches of at most this many rows are run on the calling thread.
+     */
+    public static final int LEAF_SIZE = 1024;
+
+    private ParallelRanges() {
+
+    }
+
+    public interface RangeAction {
+
+        /**
+         * @param from first index, inclusive
+         * @param to   last index, exclusive
+         */
+        void apply(int from, int to);
+
+    }
+
+    public static void forEach(ForkJoinPool pool, int size, RangeAction action) {
+        if (size <= LEAF_SIZE) {
+            action.apply(0, size);
+        } else {
+            pool.invoke(new RangeTask(action, 0, size));
+        }
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+
+        private final RangeAction action;
+
+        private final int from;
+
+        private final int to;
+
+        private RangeTask(RangeAction action, int from, int to) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                action.apply(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(action, from, middle), new RangeTask(action, middle, to));
+        }
+
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Reads a payload written by {@link SnapshotWriter}. Arrays are either bulk copied out of the buffer, or
+ * viewed in place by the {@code read...Buffer} methods: views of a mapped file read its pages straight
+ * from the page cache, shared by every process mapping the file, and keep the mapping alive as long as they
+ * are reachable.
+ */
+public final class SnapshotReader {
+
+    private static final int NULL_LENGTH = -1;
+
+    private final ByteBuffer buffer;
+
+    /**
+     * @param buffer the payload, from its first byte, which {@link SnapshotWriter#ALIGNMENT aligns} the arrays
+     */
+    public SnapshotReader(ByteBuffer buffer) {
+        this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public int readInt() {
+        return buffer.getInt();
+    }
+
+    public long readLong() {
+        return buffer.getLong();
+    }
+
+    public boolean readBoolean() {
+        return buffer.get() != 0;
+    }
+
+    public String readString() {
+        int length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        return new String(readChars(length));
+    }
+
+    public String[] readStrings() {
+        String[] values = new String[buffer.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readString();
+        }
+        return values;
+    }
+
+    public int[] readInts() {
+        int[] values = new int[buffer.getInt()];
+        align();
+        buffer.asIntBuffer().get(values);
+        skip(values.length * Integer.BYTES);
+        return values;
+    }
+
+    /**
+     * @return a read only view of the values in the buffer, with no copy
+     */
+    public IntBuffer readIntBuffer() {
+        int length = buffer.getInt();
+        return view(length * Integer.BYTES).asIntBuffer();
+    }
+
+    public long[] readLongs() {
+        long[] values = new long[buffer.getInt()];
+        align();
+        buffer.asLongBuffer().get(values);
+        skip(values.length * Long.BYTES);
+        return values;
+    }
+
+    /**
+     * @return a read only view of the values in the buffer, with no copy
+     */
+    public LongBuffer readLongBuffer() {
+        int length = buffer.getInt();
+        return view(length * Long.BYTES).asLongBuffer();
+    }
+
+    public char[] readChars() {
+        return readChars(buffer.getInt());
+    }
+
+    /**
+     * @return a read only view of the values in the buffer, with no copy: one byte per value, 0 for false
+     */
+    public ByteBuffer readBooleanBuffer() {
+        int length = buffer.getInt();
+        return view(length);
+    }
+
+    public int[][] readIntRows() {
+        int[][] rows = new int[buffer.getInt()][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = readInts();
+        }
+        return rows;
+    }
+
+    public boolean hasRemaining() {
+        return buffer.hasRemaining();
+    }
+
+    private char[] readChars(int length) {
+        char[] values = new char[length];
+        buffer.asCharBuffer().get(values);
+        skip(length * Character.BYTES);
+        return values;
+    }
+
+    private ByteBuffer view(int bytes) {
+        align();
+        ByteBuffer view = buffer.slice(buffer.position(), bytes).asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+        skip(bytes);
+        return view;
+    }
+
+    private void align() {
+        skip(-buffer.position() & SnapshotWriter.ALIGNMENT - 1);
+    }
+
+    private void skip(int bytes) {
+        buffer.position(buffer.position() + bytes);
+    }
+
+}
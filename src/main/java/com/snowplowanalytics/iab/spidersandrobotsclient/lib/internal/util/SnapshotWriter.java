@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Writes the payload of a compiled snapshot in memory, as little endian primitives and length prefixed
+ * arrays, to be read back by {@link SnapshotReader}. The values of an int, long or boolean array start at a
+ * multiple of 8 bytes from the start of the payload, so that a reader can view them in place; little endian
+ * is the native order of x86 and of nearly every ARM platform, on which such views read as fast as arrays.
+ */
+public final class SnapshotWriter {
+
+    private static final int NULL_LENGTH = -1;
+
+    static final int ALIGNMENT = Long.BYTES;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+    public SnapshotWriter writeInt(int value) {
+        ensureRemaining(Integer.BYTES).putInt(value);
+        return this;
+    }
+
+    public SnapshotWriter writeLong(long value) {
+        ensureRemaining(Long.BYTES).putLong(value);
+        return this;
+    }
+
+    public SnapshotWriter writeBoolean(boolean value) {
+        ensureRemaining(1).put((byte) (value ? 1 : 0));
+        return this;
+    }
+
+    /**
+     * @param value may be null
+     */
+    public SnapshotWriter writeString(String value) {
+        if (value == null) {
+            return writeInt(NULL_LENGTH);
+        }
+        writeInt(value.length());
+        ensureRemaining(value.length() * Character.BYTES).asCharBuffer().put(value);
+        buffer.position(buffer.position() + value.length() * Character.BYTES);
+        return this;
+    }
+
+    public SnapshotWriter writeStrings(String[] values) {
+        writeInt(values.length);
+        for (String value : values) {
+            writeString(value);
+        }
+        return this;
+    }
+
+    public SnapshotWriter writeInts(int[] values) {
+        return writeInts(IntBuffer.wrap(values));
+    }
+
+    /**
+     * Writes the values from the first to the limit of the buffer, whose position is left unchanged.
+     */
+    public SnapshotWriter writeInts(IntBuffer values) {
+        int length = values.limit();
+        writeInt(length);
+        align();
+        ensureRemaining(length * Integer.BYTES).asIntBuffer().put(values.duplicate().rewind());
+        buffer.position(buffer.position() + length * Integer.BYTES);
+        return this;
+    }
+
+    public SnapshotWriter writeLongs(long[] values) {
+        return writeLongs(LongBuffer.wrap(values));
+    }
+
+    /**
+     * Writes the values from the first to the limit of the buffer, whose position is left unchanged.
+     */
+    public SnapshotWriter writeLongs(LongBuffer values) {
+        int length = values.limit();
+        writeInt(length);
+        align();
+        ensureRemaining(length * Long.BYTES).asLongBuffer().put(values.duplicate().rewind());
+        buffer.position(buffer.position() + length * Long.BYTES);
+        return this;
+    }
+
+    public SnapshotWriter writeChars(char[] values) {
+        writeInt(values.length);
+        ensureRemaining(values.length * Character.BYTES).asCharBuffer().put(values);
+        buffer.position(buffer.position() + values.length * Character.BYTES);
+        return this;
+    }
+
+    /**
+     * Writes one byte per value, 1 for true and 0 for false.
+     */
+    public SnapshotWriter writeBooleans(ByteBuffer values) {
+        int length = values.limit();
+        writeInt(length);
+        align();
+        ensureRemaining(length).put(values.duplicate().rewind());
+        return this;
+    }
+
+    public SnapshotWriter writeIntRows(int[][] rows) {
+        writeInt(rows.length);
+        for (int[] row : rows) {
+            writeInts(row);
+        }
+        return this;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private void align() {
+        int padding = -buffer.position() & ALIGNMENT - 1;
+        ensureRemaining(padding).position(buffer.position() + padding);
+    }
+
+    private ByteBuffer ensureRemaining(int bytes) {
+        if (buffer.remaining() < bytes) {
+            long capacity = Math.max((long) buffer.capacity() * 2, (long) buffer.position() + bytes);
+            ByteBuffer grown = ByteBuffer.allocate(Math.toIntExact(capacity)).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+        return buffer;
+    }
+
+}
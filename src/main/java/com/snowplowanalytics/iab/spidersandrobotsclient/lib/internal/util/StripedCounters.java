@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed number of counters, each split into stripes which threads increment depending on their id, so that
+ * threads counting the same hot counter mostly update different cache lines. The stripes of a counter are
+ * summed when it is read.
+ */
+public final class StripedCounters {
+
+    private static final int MAX_STRIPES = 16;
+
+    /**
+     * Longs per cache line pair, so that neighbouring stripes never share a line.
+     */
+    private static final int PADDING = 16;
+
+    private static final int STRIPES = Math.min(MAX_STRIPES,
+            Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1);
+
+    private final int size;
+
+    private final int stride;
+
+    private final AtomicLongArray cells;
+
+    public StripedCounters(int size) {
+        this.size = size;
+        this.stride = (size + PADDING - 1) / PADDING * PADDING + PADDING;
+        this.cells = new AtomicLongArray(STRIPES * stride);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void increment(int index) {
+        cells.getAndIncrement(stripe() * stride + index);
+    }
+
+    public long sum(int index) {
+        long sum = 0;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            sum += cells.get(stripe * stride + index);
+        }
+        return sum;
+    }
+
+    /**
+     * Sets every counter to 0. Increments made meanwhile may be kept or lost.
+     */
+    public void reset() {
+        for (int i = 0; i < cells.length(); i++) {
+            cells.set(i, 0);
+        }
+    }
+
+    private static int stripe() {
+        int hash = System.identityHashCode(Thread.currentThread()) * 0x9E3779B9;
+        return (hash >>> 16) & (STRIPES - 1);
+    }
+
+}
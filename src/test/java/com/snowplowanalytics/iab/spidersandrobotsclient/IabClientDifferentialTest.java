@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.MatchingEngine;
+import com.snowplowanalytics.iab.spidersandrobotsclient.test.FuzzLists;
+import com.snowplowanalytics.iab.spidersandrobotsclient.test.TestResources;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Checks that every way of running a check gives the response of a plain check with the reference
+ * {@link MatchingEngine#LINEAR_SCAN} engine, on lists and events generated by {@link FuzzLists}: the
+ * automaton and vector engines, the verdict cache and record hits, clients mapped from snapshots exported
+ * with their own engine or another one, and the batch checks, of strings and of ISO-8859-1 bytes. Run with
+ * -Piab.fuzz.seed and -Piab.fuzz.rounds to explore further; a failure reports the seed of its round.
+ */
+public class IabClientDifferentialTest {
+
+    private static final long SEED = Long.getLong("iab.fuzz.seed", 20170323L);
+
+    private static final int ROUNDS = Integer.getInteger("iab.fuzz.rounds", 20);
+
+    private static final int EVENTS_PER_ROUND = 400;
+
+    @Test
+    public void responsesAgreeWithReference() throws IOException {
+        for (int round = 0; round < ROUNDS; round++) {
+            long seed = SEED + round;
+            FuzzLists fuzz = new FuzzLists(seed);
+            String ipList = fuzz.ipList(1 + round / 2);
+            String excludeList = fuzz.excludeList(1 + round);
+            String includeList = fuzz.includeList(1 + round);
+            List<String> customExclude = fuzz.customList(round % 3);
+            List<String> customInclude = fuzz.customList(round % 2);
+
+            IabClient reference = client(ipList, excludeList, includeList, customExclude, customInclude,
+                    IabClientConfig.builder().matchingEngine(MatchingEngine.LINEAR_SCAN).build());
+            IabClient automaton = client(ipList, excludeList, includeList, customExclude, customInclude,
+                    IabClientConfig.defaults());
+            IabClient cached = client(ipList, excludeList, includeList, customExclude, customInclude,
+                    IabClientConfig.builder().verdictCache(1 << 20).recordHits().build());
+            File snapshotFile = Files.createTempFile("iab", ".snapshot").toFile();
+            snapshotFile.deleteOnExit();
+            automaton.exportSnapshot(snapshotFile);
+            IabClient mapped = IabClient.fromSnapshot(snapshotFile);
+            IabClient vector = client(ipList, excludeList, includeList, customExclude, customInclude,
+                    IabClientConfig.builder().matchingEngine(MatchingEngine.VECTOR).build());
+            File vectorSnapshotFile = Files.createTempFile("iab", ".snapshot").toFile();
+            vectorSnapshotFile.deleteOnExit();
+            vector.exportSnapshot(vectorSnapshotFile);
+            IabClient mappedVector = IabClient.fromSnapshot(vectorSnapshotFile,
+                    IabClientConfig.builder().matchingEngine(MatchingEngine.VECTOR).build());
+            IabClient automatonFromVector = IabClient.fromSnapshot(vectorSnapshotFile);
+            IabClient vectorFromAutomaton = IabClient.fromSnapshot(snapshotFile,
+                    IabClientConfig.builder().matchingEngine(MatchingEngine.VECTOR).build());
+            IabClient linearFromAutomaton = IabClient.fromSnapshot(snapshotFile,
+                    IabClientConfig.builder().matchingEngine(MatchingEngine.LINEAR_SCAN).build());
+
+            String[] userAgents = new String[EVENTS_PER_ROUND];
+            InetAddress[] ipAddresses = new InetAddress[EVENTS_PER_ROUND];
+            byte[] families = new byte[EVENTS_PER_ROUND];
+            int[] ipv4 = new int[EVENTS_PER_ROUND];
+            long[] ipv6High = new long[EVENTS_PER_ROUND];
+            long[] ipv6Low = new long[EVENTS_PER_ROUND];
+            long[] accurateAt = new long[EVENTS_PER_ROUND];
+            IabResponse[] expected = new IabResponse[EVENTS_PER_ROUND];
+            for (int i = 0; i < EVENTS_PER_ROUND; i++) {
+                userAgents[i] = fuzz.userAgent();
+                BigInteger address = fuzz.ipAddress();
+                if (i % 3 != 0) {
+                    ipAddresses[i] = FuzzLists.toInetAddress(address);
+                    families[i] = FuzzLists.isIpv4Mapped(address) && i % 2 == 0 ?
+                            IpAddressColumns.IPV4 : IpAddressColumns.IPV6;
+                    ipv4[i] = (int) FuzzLists.low(address);
+                    ipv6High[i] = FuzzLists.high(address);
+                    ipv6Low[i] = FuzzLists.low(address);
+                }
+                accurateAt[i] = fuzz.accurateAt();
+                expected[i] = reference.checkAt(userAgents[i], ipAddresses[i], accurateAt[i]);
+
+                String event = userAgents[i] + ", " + ipAddresses[i] + " at " + accurateAt[i];
+                assertAgree(seed, event, expected[i], automaton.checkAt(userAgents[i], ipAddresses[i], accurateAt[i]));
+                assertAgree(seed, event, expected[i], cached.checkAt(userAgents[i], ipAddresses[i], accurateAt[i]));
+                assertAgree(seed, event, expected[i], cached.checkAt(userAgents[i], ipAddresses[i], accurateAt[i]));
+                assertAgree(seed, event, expected[i], mapped.checkAt(userAgents[i], ipAddresses[i], accurateAt[i]));
+                assertAgree(seed, event, expected[i], vector.checkAt(userAgents[i], ipAddresses[i], accurateAt[i]));
+                assertAgree(seed, event, expected[i],
+                        mappedVector.checkAt(userAgents[i], ipAddresses[i], accurateAt[i]));
+                assertAgree(seed, event, expected[i],
+                        automatonFromVector.checkAt(userAgents[i], ipAddresses[i], accurateAt[i]));
+                assertAgree(seed, event, expected[i],
+                        vectorFromAutomaton.checkAt(userAgents[i], ipAddresses[i], accurateAt[i]));
+                assertAgree(seed, event, expected[i],
+                        linearFromAutomaton.checkAt(userAgents[i], ipAddresses[i], accurateAt[i]));
+            }
+
+            IabResponse[] batch = automaton.checkAll(userAgents, ipAddresses, accurateAt);
+            int[] codes = new int[EVENTS_PER_ROUND];
+            IpAddressColumns ipColumns = IpAddressColumns.of(families, ipv4, ipv6High, ipv6Low);
+            automaton.checkColumns(userAgents, ipColumns, accurateAt, codes);
+            // the user agents as ISO-8859-1 bytes, for every engine
+            UserAgentColumns latin1Column = TestResources.latin1Columns(userAgents);
+            int[] latin1Codes = new int[EVENTS_PER_ROUND];
+            automaton.checkColumns(latin1Column, ipColumns, accurateAt, latin1Codes);
+            int[] vectorCodes = new int[EVENTS_PER_ROUND];
+            vector.checkColumns(latin1Column, ipColumns, accurateAt, vectorCodes);
+            int[] referenceCodes = new int[EVENTS_PER_ROUND];
+            reference.checkColumns(latin1Column, ipColumns, accurateAt, referenceCodes);
+            for (int i = 0; i < EVENTS_PER_ROUND; i++) {
+                String event = "row " + i + ": " + userAgents[i] + ", " + ipAddresses[i] + " at " + accurateAt[i];
+                assertAgree(seed, event, expected[i], batch[i]);
+                assertAgree(seed, event, expected[i], IabResponse.fromCode(codes[i]));
+
+                IabResponse expectedLatin1 = reference.checkAt(TestResources.latin1(userAgents[i]), ipAddresses[i],
+                        accurateAt[i]);
+                assertAgree(seed, event, expectedLatin1, IabResponse.fromCode(latin1Codes[i]));
+                assertAgree(seed, event, expectedLatin1, IabResponse.fromCode(vectorCodes[i]));
+                assertAgree(seed, event, expectedLatin1, IabResponse.fromCode(referenceCodes[i]));
+            }
+        }
+    }
+
+    private static IabClient client(String ipList, String excludeList, String includeList,
+                                    List<String> customExclude, List<String> customInclude,
+                                    IabClientConfig config) throws IOException {
+        return new IabClient(FuzzLists.asLatin1Stream(ipList), FuzzLists.asLatin1Stream(excludeList),
+                FuzzLists.asLatin1Stream(includeList), customExclude, customInclude, config);
+    }
+
+    private static void assertAgree(long seed, String event, IabResponse expected, IabResponse actual) {
+        if (expected != actual) {
+            throw new AssertionError("Seed " + seed + ", event '" + event + "': expected " + describe(expected)
+                    + " as the reference, but was " + describe(actual));
+        }
+    }
+
+    private static String describe(IabResponse response) {
+        return response.getCategory() + "/" + response.getReason() + "/" + response.getPrimaryImpact();
+    }
+
+}
@@ -13,21 +13,49 @@
 package com.snowplowanalytics.iab.spidersandrobotsclient;
 
 import com.snowplowanalytics.iab.spidersandrobotsclient.lib.CheckReason;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.CheckStage;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.ListsSnapshotInfo;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.MatchingEngine;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.MetricsSnapshot;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.OversizeUserAgentStats;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.PrefilterStats;
 import com.snowplowanalytics.iab.spidersandrobotsclient.lib.PrimaryImpact;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.RecordHit;
 import com.snowplowanalytics.iab.spidersandrobotsclient.lib.UserAgentCategory;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.UserAgentList;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.VerdictCacheStats;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.jfr.CheckEvent;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.jfr.ListsLoadEvent;
 import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.DateUtils;
 import com.snowplowanalytics.iab.spidersandrobotsclient.test.TestResources;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.assertj.core.api.ThrowableAssert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.CheckReason.FAILED_IP_EXCLUDE;
 import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.CheckReason.FAILED_UA_EXCLUDE;
@@ -46,6 +74,7 @@ import static com.snowplowanalytics.iab.spidersandrobotsclient.test.TestResource
 import static org.apache.commons.lang3.StringUtils.EMPTY;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.fail;
 
 public class IabClientTest {
 
@@ -300,6 +329,542 @@ public class IabClientTest {
         );
     }
 
+    @Test
+    public void verdictCacheKeepsInactiveDates() throws IOException {
+        IabClientConfig config = IabClientConfig.builder().verdictCache(1024 * 1024).build();
+        IabClient client = new IabClient(
+                TestResources.ipExcludeCurrentFile(),
+                TestResources.excludeCurrentFile(),
+                TestResources.includeCurrentFile(),
+                Collections.<String>emptyList(),
+                Collections.<String>emptyList(),
+                config
+        );
+
+        final InetAddress ipAddressNull = null;
+        for (int i = 0; i < 3; i++) {
+            assertBrowserResponse(
+                    client.checkAt("Some Inactive Browser", ipAddressNull, DateUtils.date(2017, 3, 29))
+            );
+            assertIncludeUaResponse(
+                    client.checkAt("Some Inactive Browser", ipAddressNull, DateUtils.date(2017, 3, 30))
+            );
+            assertIpCheckResponse(
+                    client.check("tricky robot", InetAddress.getByName("192.127.245.128"))
+            );
+            assertExcludeUaResponse(
+                    client.check("user agent at the start only", ipAddressNull),
+                    PAGE_AND_AD_IMPRESSIONS
+            );
+        }
+
+        // the inactive browser alternates between two time buckets, so it is never a hit
+        VerdictCacheStats stats = client.getVerdictCacheStats();
+        assertThat(stats.getMisses()).isEqualTo(7L);
+        assertThat(stats.getHits()).isEqualTo(2L);
+        assertThat(stats.getEntries()).isEqualTo(2L);
+    }
+
+    @Test
+    public void checkCodeMatchesResponse() throws IOException {
+        IabClient client = new IabClient(
+                TestResources.ipExcludeCurrentFile(),
+                TestResources.excludeCurrentFile(),
+                TestResources.includeCurrentFile()
+        );
+
+        final InetAddress ipAddressNull = null;
+        long accurateAt = DateUtils.date(2017, 3, 30).getTime();
+        for (String userAgent : Arrays.asList("Some Inactive Browser", "USER AGENT AT THE START ONLY", "robot")) {
+            IabResponse response = client.checkAt(userAgent, ipAddressNull, accurateAt);
+            int code = client.checkCode(userAgent, ipAddressNull, accurateAt);
+
+            assertThat(IabResponse.fromCode(code)).isSameAs(response);
+            assertThat(IabResponseCodes.category(code)).isEqualTo(response.getCategory());
+            assertThat(IabResponseCodes.reason(code)).isEqualTo(response.getReason());
+            assertThat(IabResponseCodes.primaryImpact(code)).isEqualTo(response.getPrimaryImpact());
+            assertThat(IabResponseCodes.isSpiderOrRobot(code)).isEqualTo(response.isSpiderOrRobot());
+        }
+    }
+
+    @Test
+    public void checkAllMatchesCheck() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            IabClient client = new IabClient(
+                    TestResources.ipExcludeCurrentFile(),
+                    TestResources.excludeCurrentFile(),
+                    TestResources.includeCurrentFile(),
+                    Collections.<String>emptyList(),
+                    Arrays.asList("TrustedBot"),
+                    IabClientConfig.builder().batchPool(pool).build()
+            );
+
+            List<String> userAgents = Arrays.asList("Some Inactive Browser", "user agent at the start only",
+                    "tricky robot", "TrustedBot", null);
+            List<InetAddress> ipAddresses = Arrays.asList(InetAddress.getByName("192.127.245.128"),
+                    InetAddress.getByName("192.127.245.129"), null);
+            long[] times = {DateUtils.date(2017, 3, 29).getTime(), DateUtils.date(2017, 3, 30).getTime()};
+
+            int size = 5000;
+            String[] userAgentColumn = new String[size];
+            InetAddress[] ipAddressColumn = new InetAddress[size];
+            long[] timeColumn = new long[size];
+            for (int i = 0; i < size; i++) {
+                userAgentColumn[i] = userAgents.get(i % userAgents.size());
+                ipAddressColumn[i] = userAgentColumn[i] == null ? localHost : ipAddresses.get(i % ipAddresses.size());
+                timeColumn[i] = times[i % times.length];
+            }
+
+            IabResponse[] results = client.checkAll(userAgentColumn, ipAddressColumn, timeColumn);
+
+            for (int i = 0; i < size; i++) {
+                assertThat(results[i]).isSameAs(client.checkAt(userAgentColumn[i], ipAddressColumn[i], timeColumn[i]));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void checkColumnsMatchesCheck() throws IOException {
+        IabClient client = new IabClient(
+                TestResources.ipExcludeCurrentFile(),
+                TestResources.excludeCurrentFile(),
+                TestResources.includeCurrentFile()
+        );
+
+        List<InetAddress> ipAddresses = Arrays.asList(InetAddress.getByName("192.127.245.128"),
+                InetAddress.getByName("::ffff:192.127.245.128"), InetAddress.getByName("192.127.245.129"),
+                InetAddress.getByName("2001:db8::1"), null);
+        CharSequence[] userAgents = {"Some Inactive Browser", new StringBuilder("USER AGENT AT THE START ONLY"),
+                "tricky robot", null, "Tricky Robot \u00C9T\u00C9"};
+        long[] times = {DateUtils.date(2017, 3, 29).getTime(), DateUtils.date(2017, 3, 30).getTime()};
+
+        int size = 3000;
+        CharSequence[] userAgentColumn = new CharSequence[size];
+        InetAddress[] ipAddressColumn = new InetAddress[size];
+        byte[] families = new byte[size];
+        int[] ipv4 = new int[size];
+        long[] ipv6High = new long[size];
+        long[] ipv6Low = new long[size];
+        long[] timeColumn = new long[size];
+        for (int i = 0; i < size; i++) {
+            userAgentColumn[i] = userAgents[i % userAgents.length];
+            ipAddressColumn[i] = userAgentColumn[i] == null ? localHost : ipAddresses.get(i % ipAddresses.size());
+            timeColumn[i] = times[i % times.length];
+
+            InetAddress ipAddress = ipAddressColumn[i];
+            if (ipAddress instanceof Inet4Address) {
+                families[i] = IpAddressColumns.IPV4;
+                ipv4[i] = IpAddressColumns.packIpv4(ipAddress.getAddress());
+            } else if (ipAddress != null) {
+                families[i] = IpAddressColumns.IPV6;
+                ipv6High[i] = IpAddressColumns.packIpv6High(ipAddress.getAddress());
+                ipv6Low[i] = IpAddressColumns.packIpv6Low(ipAddress.getAddress());
+            }
+        }
+
+        int[] codes = new int[size];
+        byte[] byteCodes = new byte[size];
+        IpAddressColumns ipColumns = IpAddressColumns.of(families, ipv4, ipv6High, ipv6Low);
+        client.checkColumns(userAgentColumn, ipColumns, timeColumn, codes);
+        client.checkColumns(userAgentColumn, ipColumns, timeColumn, byteCodes);
+        int[] latin1Codes = new int[size];
+        byte[] latin1ByteCodes = new byte[size];
+        UserAgentColumns latin1Column = TestResources.latin1Columns(userAgentColumn);
+        client.checkColumns(latin1Column, ipColumns, timeColumn, latin1Codes);
+        client.checkColumns(latin1Column, ipColumns, timeColumn, latin1ByteCodes);
+
+        for (int i = 0; i < size; i++) {
+            String userAgent = userAgentColumn[i] == null ? null : userAgentColumn[i].toString();
+            IabResponse response = client.checkAt(userAgent, ipAddressColumn[i], timeColumn[i]);
+            assertThat(codes[i]).isEqualTo(response.getCode());
+            assertThat((int) byteCodes[i]).isEqualTo(response.getCode());
+            assertThat(latin1Codes[i]).isEqualTo(response.getCode());
+            assertThat((int) latin1ByteCodes[i]).isEqualTo(response.getCode());
+        }
+    }
+
+    @Test
+    public void checkAllColumnLengthsDiffer() throws IOException {
+        final IabClient client = emptyClient();
+        assertThatThrownBy(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                client.checkAll(new String[2], null, new long[1]);
+            }
+        }).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void reloadAsyncSwapsListsOrKeepsThem() throws Exception {
+        File ipFile = tempFile(ipFilePrefix(EMPTY));
+        File excludeFile = tempFile(dummyRecordPrefix("robot|1||0|2|0"));
+        File includeFile = tempFile(dummyRecordPrefix("browser|1|0"));
+        IabClient client = new IabClient(ipFile, excludeFile, includeFile);
+        final InetAddress ipAddressNull = null;
+
+        File crawlerExcludeFile = tempFile(dummyRecordPrefix("crawler|1||0|2|0"));
+        ListsSnapshotInfo info = client.reloadAsync(ipFile, crawlerExcludeFile, includeFile)
+                .get(10, TimeUnit.SECONDS);
+        assertThat(info.getVersion()).isEqualTo(2L);
+        assertThat(client.getSnapshotInfo()).isSameAs(info);
+        assertThat(client.check("browser crawler", ipAddressNull).isSpiderOrRobot()).isTrue();
+
+        File malformedExcludeFile = tempFile(dummyRecordPrefix("robot|1||0|illegal impact|0"));
+        for (File excludeUserAgentFile : Arrays.asList(malformedExcludeFile, new File(ipFile + ".missing"))) {
+            try {
+                client.reloadAsync(ipFile, excludeUserAgentFile, includeFile).get(10, TimeUnit.SECONDS);
+                fail("reload of " + excludeUserAgentFile + " succeeded");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(excludeUserAgentFile == malformedExcludeFile ?
+                        IllegalArgumentException.class : IOException.class);
+            }
+        }
+        assertThat(client.getSnapshotInfo()).isSameAs(info);
+        assertThat(client.check("browser crawler", ipAddressNull).isSpiderOrRobot()).isTrue();
+    }
+
+    @Test
+    public void reloadSwapsLists() throws IOException {
+        IabClient client = new IabClient(
+                asInputStream(ipFilePrefix(EMPTY)),
+                asInputStream(dummyRecordPrefix(EMPTY)),
+                asInputStream(dummyRecordPrefix("Browser|1|0")),
+                Collections.<String>emptyList(),
+                Arrays.asList("TrustedBot"),
+                IabClientConfig.builder().verdictCache(1024 * 1024).build()
+        );
+        assertThat(client.getSnapshotInfo().getVersion()).isEqualTo(1L);
+        assertBrowserResponse(client.check("browser", localHost));
+        assertIncludeUaResponse(client.check("robot", localHost));
+
+        ListsSnapshotInfo info = client.reload(
+                asInputStream(ipFilePrefix(LOCAL_HOST_STR)),
+                asInputStream(dummyRecordPrefix(EMPTY)),
+                asInputStream(dummyRecordPrefix("robot|1|0")),
+                Collections.<String>emptyList(),
+                Arrays.asList("TrustedBot")
+        );
+
+        assertThat(info.getVersion()).isEqualTo(2L);
+        assertThat(client.getSnapshotInfo()).isSameAs(info);
+        assertThat(client.getVerdictCacheStats().getEntries()).isEqualTo(0L);
+        assertThat(client.getVerdictCacheStats().getMisses()).isEqualTo(2L);
+        assertIpCheckResponse(client.check("browser", localHost));
+        final InetAddress ipAddressNull = null;
+        assertIncludeUaResponse(client.check("browser", ipAddressNull));
+        assertBrowserResponse(client.check("robot", ipAddressNull));
+        assertBrowserResponse(client.check("TrustedBot", localHost));
+    }
+
+    @Test
+    public void snapshotGivesSameResponses() throws IOException {
+        IabClient client = new IabClient(
+                TestResources.ipExcludeCurrentFile(),
+                TestResources.excludeCurrentFile(),
+                TestResources.includeCurrentFile(),
+                Arrays.asList("BadBot"),
+                Arrays.asList("TrustedBot")
+        );
+        File snapshotFile = Files.createTempFile("iab", ".snapshot").toFile();
+        snapshotFile.deleteOnExit();
+        client.exportSnapshot(snapshotFile);
+        IabClient mapped = IabClient.fromSnapshot(snapshotFile);
+
+        List<String> userAgents = Arrays.asList("Some Inactive Browser", "user agent at the start only",
+                "user agent at the start only User Agent Exclude", "agent xcho some string", "tricky robot",
+                "TrustedBot", "BadBot", null);
+        List<InetAddress> ipAddresses = Arrays.asList(InetAddress.getByName("192.127.245.128"),
+                InetAddress.getByName("12.1.2.3"), InetAddress.getByName("::ffff:12.1.2.3"),
+                InetAddress.getByName("2001:db8::1"), localHost);
+        for (String userAgent : userAgents) {
+            for (InetAddress ipAddress : ipAddresses) {
+                for (Date accurateAt : Arrays.asList(DateUtils.date(2017, 3, 29), DateUtils.date(2017, 3, 30))) {
+                    assertThat(mapped.checkAt(userAgent, ipAddress, accurateAt))
+                            .isSameAs(client.checkAt(userAgent, ipAddress, accurateAt));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void snapshotIsVerified() throws IOException {
+        final File snapshotFile = Files.createTempFile("iab", ".snapshot").toFile();
+        snapshotFile.deleteOnExit();
+        emptyClient().exportSnapshot(snapshotFile);
+        byte[] bytes = Files.readAllBytes(snapshotFile.toPath());
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(snapshotFile.toPath(), bytes);
+
+        assertThatThrownBy(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                IabClient.fromSnapshot(snapshotFile);
+            }
+        }).isInstanceOf(IOException.class).hasMessageContaining("checksum");
+    }
+
+    @Test
+    public void metricsCountChecks() throws IOException {
+        IabClient client = new IabClient(
+                asInputStream(ipFilePrefix(LOCAL_HOST_STR)),
+                asInputStream(dummyRecordPrefix("robot|1||0|2|0")),
+                asInputStream(dummyRecordPrefix("browser|1|0")),
+                Collections.<String>emptyList(),
+                Collections.<String>emptyList(),
+                IabClientConfig.builder().metrics().build()
+        );
+        final InetAddress ipAddressNull = null;
+        client.check("browser", localHost);
+        client.check("browser", ipAddressNull);
+        client.check("browser robot", ipAddressNull);
+        client.check("unknown", ipAddressNull);
+        client.checkAll(new String[]{"browser", "unknown"}, null, new long[]{0, 0});
+
+        MetricsSnapshot metrics = client.getMetrics();
+        assertThat(metrics.getChecks()).isEqualTo(6L);
+        assertThat(metrics.getChecks(FAILED_IP_EXCLUDE)).isEqualTo(1L);
+        assertThat(metrics.getChecks(FAILED_UA_INCLUDE)).isEqualTo(2L);
+        assertThat(metrics.getChecks(FAILED_UA_EXCLUDE)).isEqualTo(1L);
+        assertThat(metrics.getChecks(PASSED_ALL)).isEqualTo(2L);
+        assertThat(metrics.getChecks(BROWSER)).isEqualTo(2L);
+        assertThat(metrics.getChecks(ACTIVE_SPIDER_OR_ROBOT)).isEqualTo(1L);
+        assertThat(metrics.getLatency(CheckStage.TOTAL).getCount()).isEqualTo(6L);
+        assertThat(metrics.getLatency(CheckStage.IP_RANGES).getCount()).isEqualTo(1L);
+        assertThat(metrics.getLatency(CheckStage.INCLUDE_USER_AGENTS).getCount()).isEqualTo(5L);
+        assertThat(metrics.getLatency(CheckStage.EXCLUDE_USER_AGENTS).getCount()).isEqualTo(3L);
+        assertThat(metrics.getLatency(CheckStage.TOTAL).getPercentileNanos(100))
+                .isEqualTo(metrics.getLatency(CheckStage.TOTAL).getMaxNanos());
+
+        IabClient disabled = emptyClient();
+        disabled.check("browser", localHost);
+        assertThat(disabled.getMetrics().getChecks()).isEqualTo(0L);
+        assertThat(disabled.getMetrics().getLatency(CheckStage.TOTAL)).isNull();
+    }
+
+    @Test
+    public void recordHitsCountRecords() throws IOException {
+        IabClient client = new IabClient(
+                asInputStream(ipFilePrefix(LOCAL_HOST_STR)),
+                asInputStream(dummyRecordPrefix("robot|1||0|2|0\nspider|1||0|1|0")),
+                asInputStream(dummyRecordPrefix("browser|1|0\nrobot|1|0")),
+                Collections.<String>emptyList(),
+                Collections.<String>emptyList(),
+                IabClientConfig.builder().verdictCache(1 << 20).recordHits().build()
+        );
+        final InetAddress ipAddressNull = null;
+        client.check("browser", localHost);
+        client.check("browser", ipAddressNull);
+        client.check("browser robot", ipAddressNull);
+        client.check("browser robot", ipAddressNull);
+        client.check("spider", ipAddressNull);
+        client.check("robot", ipAddressNull);
+        client.checkAll(new String[]{"browser", "browser robot", "browser robot"}, null, new long[]{0, 0, 0});
+
+        List<RecordHit> records = client.getRecordHits().getRecords();
+        assertThat(records).hasSize(4);
+        assertRecordHit(records.get(0), UserAgentList.INCLUDE, "browser", 6L);
+        assertRecordHit(records.get(1), UserAgentList.EXCLUDE, "robot", 5L);
+        assertRecordHit(records.get(2), UserAgentList.INCLUDE, "robot", 1L);
+        assertThat(records.get(3).getHits()).isZero();
+        assertThat(records.get(1).getPrimaryImpact()).isEqualTo(PAGE_AND_AD_IMPRESSIONS);
+        assertThat(records.get(0).getPrimaryImpact()).isNull();
+
+        StringBuilder csv = new StringBuilder();
+        client.getRecordHits().writeCsv(csv);
+        assertThat(csv.toString()).startsWith("list,index,user_agent_pattern");
+        assertThat(csv.toString()).contains("EXCLUDE,0,robot,true,false,,PAGE_AND_AD_IMPRESSIONS,,5");
+
+        client.resetRecordHits();
+        assertThat(client.getRecordHits().getRecords().get(0).getHits()).isZero();
+        client.check("browser robot", ipAddressNull);
+        assertThat(client.getRecordHits().getRecords().get(0).getHits()).isEqualTo(1L);
+
+        assertThat(emptyClient().getRecordHits()).isNull();
+    }
+
+    @Test
+    public void checkEventIsOffInDefaultRecordings() throws IOException, ParseException {
+        IabClient client = new IabClient(
+                asInputStream(ipFilePrefix(LOCAL_HOST_STR)),
+                asInputStream(dummyRecordPrefix("robot|1||0|2|0")),
+                asInputStream(dummyRecordPrefix("browser|1|0"))
+        );
+        final InetAddress ipAddressNull = null;
+        long accurateAt = System.currentTimeMillis();
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        try (Recording recording = new Recording(Configuration.getConfiguration("default"))) {
+            recording.start();
+            for (int i = 0; i < 20000; i++) {
+                client.checkCode("some browser", ipAddressNull, accurateAt);
+            }
+            int checks = 10000;
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < checks; i++) {
+                client.checkCode("some browser", ipAddressNull, accurateAt);
+            }
+            long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+            // less than one byte per check: no event, nor anything else, is created by a check
+            assertThat(allocated).isLessThan(checks);
+            recording.stop();
+        }
+    }
+
+    @Test
+    public void flightRecorderEvents() throws IOException {
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(ListsLoadEvent.NAME);
+            recording.enable(CheckEvent.NAME).withThreshold(Duration.ZERO);
+            recording.start();
+
+            IabClient client = new IabClient(
+                    asInputStream(ipFilePrefix(LOCAL_HOST_STR)),
+                    asInputStream(dummyRecordPrefix("robot|1||0|2|0")),
+                    asInputStream(dummyRecordPrefix("browser|1|0")),
+                    Collections.<String>emptyList(),
+                    Collections.singletonList("custom")
+            );
+            final InetAddress ipAddressNull = null;
+            client.check("browser", localHost);
+            client.check("browser robot", ipAddressNull);
+            recording.stop();
+
+            File file = Files.createTempFile("iab", ".jfr").toFile();
+            file.deleteOnExit();
+            recording.dump(file.toPath());
+            events = RecordingFile.readAllEvents(file.toPath());
+        }
+
+        RecordedEvent load = null;
+        List<RecordedEvent> checks = new ArrayList<>();
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(ListsLoadEvent.NAME)) {
+                load = event;
+            } else if (event.getEventType().getName().equals(CheckEvent.NAME)) {
+                checks.add(event);
+            }
+        }
+        assertThat(load).isNotNull();
+        assertThat(load.getBoolean("fromSnapshot")).isFalse();
+        assertThat(load.getInt("ipRanges")).isEqualTo(2);
+        assertThat(load.getInt("excludeRecords")).isEqualTo(1);
+        assertThat(load.getInt("includeRecords")).isEqualTo(1);
+        assertThat(load.getInt("customIncludePatterns")).isEqualTo(1);
+
+        assertThat(checks).hasSize(2);
+        assertThat(checks.get(0).getString("reason")).isEqualTo(FAILED_IP_EXCLUDE.name());
+        assertThat(checks.get(0).getLong("userAgentListsDuration")).isZero();
+        assertThat(checks.get(1).getString("userAgent")).isEqualTo("browser robot");
+        assertThat(checks.get(1).getInt("userAgentLength")).isEqualTo(13);
+        assertThat(checks.get(1).getString("reason")).isEqualTo(FAILED_UA_EXCLUDE.name());
+        assertThat(checks.get(1).getBoolean("spiderOrRobot")).isTrue();
+    }
+
+    @Test
+    public void oversizeUserAgentsAreTruncated() throws IOException {
+        final List<String> sampled = new ArrayList<>();
+        IabClient client = new IabClient(
+                asInputStream(ipFilePrefix(LOCAL_HOST_STR)),
+                asInputStream(dummyRecordPrefix("robot|1||0|2|0")),
+                asInputStream(dummyRecordPrefix("browser|1|0")),
+                Collections.<String>emptyList(),
+                Collections.<String>emptyList(),
+                IabClientConfig.builder().maxUserAgentLength(13, sampled::add, 2).build()
+        );
+        final InetAddress ipAddressNull = null;
+        String longUserAgent = "browser robot and more";
+        assertExcludeUaResponse(client.check("browser robot", ipAddressNull), PAGE_AND_AD_IMPRESSIONS);
+        assertExcludeUaResponse(client.check(longUserAgent, ipAddressNull), PAGE_AND_AD_IMPRESSIONS);
+        assertBrowserResponse(client.check("browser and a robot", ipAddressNull));
+        assertBrowserResponse(client.checkAll(new String[]{"browser and a robot"}, null, new long[]{0})[0]);
+        int[] codes = new int[1];
+        client.checkColumns(new CharSequence[]{"browser and a robot"}, null, new long[]{0}, codes);
+        assertBrowserResponse(IabResponse.fromCode(codes[0]));
+        client.checkColumns(TestResources.latin1Columns(new CharSequence[]{"browser and a robot"}), null,
+                new long[]{0}, codes);
+        assertBrowserResponse(IabResponse.fromCode(codes[0]));
+
+        OversizeUserAgentStats stats = client.getOversizeUserAgentStats();
+        assertThat(stats.getMaxLength()).isEqualTo(13);
+        assertThat(stats.getCount()).isEqualTo(5L);
+        assertThat(stats.getTruncatedChars()).isEqualTo(9L + 4 * 6);
+        assertThat(stats.getLongestLength()).isEqualTo(longUserAgent.length());
+        assertThat(sampled).containsExactly(longUserAgent, "browser and a robot", "browser and a robot");
+
+        assertThat(emptyClient().getOversizeUserAgentStats()).isNull();
+        assertThatThrownBy(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                IabClientConfig.builder().maxUserAgentLength(0);
+            }
+        }).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(new ThrowableAssert.ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                IabClientConfig.builder().maxUserAgentLength(13).matchingEngine(MatchingEngine.LINEAR_SCAN).build();
+            }
+        }).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void excludePrefilterRejectsUserAgentsWithoutAnyPattern() throws IOException {
+        IabClient client = new IabClient(
+                asInputStream(ipFilePrefix(EMPTY)),
+                asInputStream(dummyRecordPrefix("crawler|1||0|2|0")),
+                asInputStream(dummyRecordPrefix("mozilla|1|0")),
+                Collections.<String>emptyList(),
+                Collections.<String>emptyList(),
+                IabClientConfig.builder().excludePrefilter().build()
+        );
+        final InetAddress ipAddressNull = null;
+        assertExcludeUaResponse(client.check("Mozilla Crawler", ipAddressNull), PAGE_AND_AD_IMPRESSIONS);
+        assertBrowserResponse(client.check("Mozilla Browser", ipAddressNull));
+
+        PrefilterStats stats = client.getExcludePrefilterStats();
+        assertThat(stats.getChecks()).isEqualTo(2L);
+        assertThat(stats.getPassed()).isEqualTo(1L);
+        assertThat(stats.getPassThroughRate()).isEqualTo(0.5);
+        assertThat(emptyClient().getExcludePrefilterStats()).isNull();
+    }
+
+    @Test
+    public void metricsArePublished() throws Exception {
+        final BlockingQueue<MetricsSnapshot> published = new LinkedBlockingQueue<>();
+        IabClient client = new IabClient(
+                asInputStream(ipFilePrefix(EMPTY)),
+                asInputStream(dummyRecordPrefix(EMPTY)),
+                asInputStream(dummyRecordPrefix(EMPTY)),
+                Collections.<String>emptyList(),
+                Collections.<String>emptyList(),
+                IabClientConfig.builder().metrics(new MetricsSink() {
+                    @Override
+                    public void publish(MetricsSnapshot metrics) {
+                        published.add(metrics);
+                    }
+                }, 10).build()
+        );
+        client.check("browser", localHost);
+
+        MetricsSnapshot metrics = published.poll(10, TimeUnit.SECONDS);
+        assertThat(metrics).isNotNull();
+        client.publishMetrics();
+        MetricsSnapshot last = null;
+        while (!published.isEmpty()) {
+            last = published.poll();
+        }
+        assertThat(last.getChecks()).isEqualTo(1L);
+    }
+
+    private static void assertRecordHit(RecordHit record, UserAgentList list, String pattern, long hits) {
+        assertThat(record.getList()).isEqualTo(list);
+        assertThat(record.getUserAgentPattern()).isEqualTo(pattern);
+        assertThat(record.getHits()).isEqualTo(hits);
+    }
+
     private static void assertIpCheckResponse(IabResponse response) {
         assertResponse(
                 response,
@@ -387,4 +952,11 @@ public class IabClientTest {
                 includeUserAgents);
     }
 
+    private static File tempFile(String content) throws IOException {
+        File file = Files.createTempFile("iab", ".txt").toFile();
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.ISO_8859_1));
+        return file;
+    }
+
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
+
+import static com.snowplowanalytics.iab.spidersandrobotsclient.test.TestResources.dummyRecordPrefix;
+import static com.snowplowanalytics.iab.spidersandrobotsclient.test.TestResources.ipFilePrefix;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IabListsWatcherTest {
+
+    private static final long SETTLE_MILLIS = 300;
+
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    private static final InetAddress IP_ADDRESS_NULL = null;
+
+    private Path directory;
+
+    private File ipFile;
+
+    private File excludeUserAgentFile;
+
+    private File includeUserAgentFile;
+
+    private IabClient client;
+
+    private IabListsWatcher watcher;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("iab");
+        ipFile = write("ip.txt", ipFilePrefix("127.0.0.1"));
+        excludeUserAgentFile = write("exclude.txt", dummyRecordPrefix("robot|1||0|2|0"));
+        includeUserAgentFile = write("include.txt", dummyRecordPrefix("browser|1|0"));
+        client = new IabClient(ipFile, excludeUserAgentFile, includeUserAgentFile);
+        watcher = IabListsWatcher.start(client, ipFile, excludeUserAgentFile, includeUserAgentFile, SETTLE_MILLIS);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        watcher.close();
+        for (File file : new File[]{ipFile, excludeUserAgentFile, includeUserAgentFile}) {
+            Files.deleteIfExists(file.toPath());
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void changesAreReloadedOnceSettled() throws Exception {
+        long version = client.getSnapshotInfo().getVersion();
+
+        write("exclude.txt", dummyRecordPrefix("robot|1||0|2|0"));
+        Thread.sleep(SETTLE_MILLIS / 4);
+        write("ip.txt", ipFilePrefix("127.0.0.1"));
+        Thread.sleep(SETTLE_MILLIS / 4);
+        write("exclude.txt", dummyRecordPrefix("crawler|1||0|2|0"));
+
+        assertThat(await(() -> client.getSnapshotInfo().getVersion() != version)).isTrue();
+        Thread.sleep(3 * SETTLE_MILLIS);
+        assertThat(client.getSnapshotInfo().getVersion()).isEqualTo(version + 1);
+        assertThat(client.check("browser crawler", IP_ADDRESS_NULL).isSpiderOrRobot()).isTrue();
+        assertThat(client.check("browser robot", IP_ADDRESS_NULL).isSpiderOrRobot()).isFalse();
+        assertThat(watcher.getLastError()).isNull();
+    }
+
+    @Test
+    public void malformedFileKeepsCurrentLists() throws Exception {
+        long version = client.getSnapshotInfo().getVersion();
+
+        write("exclude.txt", dummyRecordPrefix("crawler|1||0|illegal impact|0"));
+
+        assertThat(await(() -> watcher.getLastError() != null)).isTrue();
+        assertThat(watcher.getLastError()).isInstanceOf(IllegalArgumentException.class);
+        assertThat(client.getSnapshotInfo().getVersion()).isEqualTo(version);
+        assertThat(client.check("browser robot", IP_ADDRESS_NULL).isSpiderOrRobot()).isTrue();
+        assertThat(watcher.isRunning()).isTrue();
+    }
+
+    @Test
+    public void closeStopsWatching() throws Exception {
+        assertThat(watcher.isRunning()).isTrue();
+
+        watcher.close();
+
+        assertThat(await(() -> !watcher.isRunning())).isTrue();
+    }
+
+    @Test
+    public void deletedDirectoryStopsWatching() throws Exception {
+        for (File file : new File[]{ipFile, excludeUserAgentFile, includeUserAgentFile}) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(directory);
+
+        assertThat(await(() -> !watcher.isRunning())).isTrue();
+        assertThat(watcher.getLastError()).isInstanceOf(IOException.class);
+        assertThat(watcher.getLastError().getMessage()).contains("can no longer be watched");
+    }
+
+    private File write(String name, String content) throws IOException {
+        return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.ISO_8859_1)).toFile();
+    }
+
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+}
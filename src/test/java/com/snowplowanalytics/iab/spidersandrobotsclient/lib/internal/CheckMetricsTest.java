@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.IabResponseCodes;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.CheckReason;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.CheckStage;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.LatencyDistribution;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.MetricsSnapshot;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.PrimaryImpact;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.UserAgentCategory;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CheckMetricsTest {
+
+    @Test
+    public void percentilesAreWithinOneSixteenth() {
+        CheckMetrics metrics = new CheckMetrics();
+        for (long nanos = 1; nanos <= 100000; nanos++) {
+            metrics.recordStage(CheckStage.IP_RANGES, nanos);
+        }
+
+        LatencyDistribution latency = metrics.snapshot().getLatency(CheckStage.IP_RANGES);
+        assertThat(latency.getCount()).isEqualTo(100000L);
+        assertThat(latency.getMaxNanos()).isEqualTo(100000L);
+        assertThat(latency.getMeanNanos()).isEqualTo(50000.5);
+        assertThat(latency.getPercentileNanos(50)).isBetween(50000, 50000 + 50000 / 16);
+        assertThat(latency.getPercentileNanos(99)).isBetween(99000, 99000 + 99000 / 16);
+        assertThat(latency.getPercentileNanos(100)).isEqualTo(100000L);
+        assertThat(metrics.snapshot().getLatency(CheckStage.TOTAL).getPercentileNanos(50)).isEqualTo(0L);
+    }
+
+    @Test
+    public void largeLatenciesAreCounted() {
+        CheckMetrics metrics = new CheckMetrics();
+        metrics.recordStage(CheckStage.TOTAL, Long.MAX_VALUE);
+        metrics.recordStage(CheckStage.TOTAL, -1);
+
+        LatencyDistribution latency = metrics.snapshot().getLatency(CheckStage.TOTAL);
+        assertThat(latency.getCount()).isEqualTo(2L);
+        assertThat(latency.getPercentileNanos(50)).isEqualTo(0L);
+        assertThat(latency.getPercentileNanos(100)).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void checksAreCountedPerReasonAndCategory() {
+        CheckMetrics metrics = new CheckMetrics();
+        metrics.recordCheck(IabResponseCodes.encode(UserAgentCategory.BROWSER, CheckReason.PASSED_ALL,
+                PrimaryImpact.NONE), 10);
+        metrics.recordCheck(IabResponseCodes.encode(UserAgentCategory.ACTIVE_SPIDER_OR_ROBOT,
+                CheckReason.FAILED_UA_EXCLUDE, PrimaryImpact.AD_IMPRESSIONS), 20);
+        metrics.recordCheck(IabResponseCodes.encode(UserAgentCategory.ACTIVE_SPIDER_OR_ROBOT,
+                CheckReason.FAILED_UA_EXCLUDE, PrimaryImpact.PAGE_IMPRESSIONS), 30);
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertThat(snapshot.getChecks()).isEqualTo(3L);
+        assertThat(snapshot.getChecks(CheckReason.FAILED_UA_EXCLUDE)).isEqualTo(2L);
+        assertThat(snapshot.getChecks(CheckReason.FAILED_IP_EXCLUDE)).isEqualTo(0L);
+        assertThat(snapshot.getChecks(UserAgentCategory.ACTIVE_SPIDER_OR_ROBOT)).isEqualTo(2L);
+        assertThat(snapshot.getLatency(CheckStage.TOTAL).getSumNanos()).isEqualTo(60L);
+    }
+
+}
@@ -12,12 +12,17 @@
  */
 package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
 
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.MatchingEngine;
 import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.DateUtils;
 import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.IabFile;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotReader;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotWriter;
 import com.snowplowanalytics.iab.spidersandrobotsclient.test.TestResources;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Date;
 
 import static com.snowplowanalytics.iab.spidersandrobotsclient.lib.PrimaryImpact.AD_IMPRESSIONS;
@@ -152,6 +157,22 @@ public class ExcludeUserAgentsTest {
         primaryImpact("agent", "illegal impact").check("agent");
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void primaryImpactIllegalIsRejectedAtLoad() throws IOException {
+        records("agent|1||0|illegal impact|0");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownEngineIsRejectedFromSnapshot() {
+        SnapshotReader in = new SnapshotReader(ByteBuffer.wrap(new SnapshotWriter().writeInt(7).toByteArray()));
+        ExcludeUserAgents.readFrom(in, MatchingEngine.AUTOMATON, false);
+    }
+
+    @Test
+    public void primaryImpactIllegalOfInapplicableRecord() throws IOException {
+        assertThat(records("agent|0||0|illegal impact|0").check("agent").isPresent()).isFalse();
+    }
+
     @Test
     public void checkRecordsFromFile() throws IOException {
         ExcludeUserAgents agents = new ExcludeUserAgents(TestResources.excludeCurrent());
@@ -173,6 +194,97 @@ public class ExcludeUserAgentsTest {
                 .isEqualTo(PAGE_AND_AD_IMPRESSIONS);
     }
 
+    @Test
+    public void checkFirstRecordWins() throws IOException {
+        ExcludeUserAgents agents = records(
+                "bot|1||0|0|0",
+                "robot|1||0|1|0",
+                "crawler|1|friendly crawler|0|2|0",
+                "crawler|1||0|1|0",
+                "spider|1||0|2|1"
+        );
+
+        assertThat(agents.check("some robot").getPrimaryImpact()).isEqualTo(PAGE_IMPRESSIONS);
+        assertThat(agents.check("robot, not a bot").getPrimaryImpact()).isEqualTo(PAGE_IMPRESSIONS);
+        assertThat(agents.check("some crawler").getPrimaryImpact()).isEqualTo(PAGE_AND_AD_IMPRESSIONS);
+        assertThat(agents.check("friendly crawler").getPrimaryImpact()).isEqualTo(AD_IMPRESSIONS);
+        assertThat(agents.check("spider crawler").getPrimaryImpact()).isEqualTo(PAGE_AND_AD_IMPRESSIONS);
+        assertThat(agents.check("friendly crawler spider").getPrimaryImpact()).isEqualTo(AD_IMPRESSIONS);
+        assertThat(agents.check("a spider").isPresent()).isFalse();
+    }
+
+    @Test
+    public void checkOverlappingPatterns() throws IOException {
+        ExcludeUserAgents agents = records(
+                "abcd|1|bcd|0|0|0",
+                "bc|1||0|1|1",
+                "c|1|abc|0|2|0"
+        );
+
+        assertThat(agents.check("abcd").isPresent()).isFalse();
+        assertThat(agents.check("bcd").getPrimaryImpact()).isEqualTo(AD_IMPRESSIONS);
+        assertThat(agents.check("xbc").getPrimaryImpact()).isEqualTo(PAGE_AND_AD_IMPRESSIONS);
+        assertThat(agents.check("xabc").isPresent()).isFalse();
+    }
+
+    @Test
+    public void checkPatternAtStartAndAnywhere() throws IOException {
+        ExcludeUserAgents agents = records(
+                "bot|1||0|0|1",
+                "bot|1|good bot|0|1|0",
+                "bo|1||0|2|1"
+        );
+
+        assertThat(agents.presentRecord("bot/1.0")).isEqualTo(0);
+        assertThat(agents.presentRecord("bot, good bot")).isEqualTo(0);
+        assertThat(agents.presentRecord("a bot")).isEqualTo(1);
+        assertThat(agents.presentRecord("a good bot")).isEqualTo(ExcludeUserAgents.NO_RECORD);
+        assertThat(agents.presentRecord("BOx")).isEqualTo(2);
+        assertThat(agents.presentRecord("b")).isEqualTo(ExcludeUserAgents.NO_RECORD);
+        assertThat(agents.presentRecord("\u0130 bot")).isEqualTo(1);
+    }
+
+    @Test
+    public void checkUserAgentsInAnyCase() throws IOException {
+        ExcludeUserAgents agents = records(
+                "kelvin|1||0|0|0",
+                "bot|1||0|1|1",
+                "spider|1||0|2|0"
+        );
+
+        assertThat(agents.check("\u212Aelvin").getPrimaryImpact()).isEqualTo(PAGE_IMPRESSIONS);
+        assertThat(agents.check("BOT \u212A").getPrimaryImpact()).isEqualTo(AD_IMPRESSIONS);
+        assertThat(agents.check("\u0130 BOT").isPresent()).isFalse();
+        assertThat(agents.check("\u00c9T\u00c9 SPIDER \u0130").getPrimaryImpact()).isEqualTo(PAGE_AND_AD_IMPRESSIONS);
+        assertThat(agents.check(new StringBuilder("BoT")).getPrimaryImpact()).isEqualTo(AD_IMPRESSIONS);
+    }
+
+    @Test
+    public void presentRecordIsSameWithBothEngines() throws IOException {
+        String file = TestResources.dummyRecordPrefix(StringUtils.join(new String[]{
+                "bot|1||0|0|0",
+                "robot|1||0|1|0",
+                "crawler|1|friendly crawler|0|2|0",
+                "crawler|1||0|1|0",
+                "spider|1||0|2|1"
+        }, StringUtils.LF));
+        ExcludeUserAgents linear = new ExcludeUserAgents(TestResources.asInputStream(file), MatchingEngine.LINEAR_SCAN);
+        ExcludeUserAgents automaton = new ExcludeUserAgents(TestResources.asInputStream(file), MatchingEngine.AUTOMATON);
+
+        String[] userAgents = {"some robot", "robot, not a bot", "friendly crawler", "friendly crawler spider",
+                "a spider", "spider crawler", "browser"};
+        for (String userAgent : userAgents) {
+            assertThat(automaton.presentRecord(userAgent)).isEqualTo(linear.presentRecord(userAgent));
+        }
+
+        assertThat(automaton.presentRecord("some robot")).isEqualTo(0);
+        assertThat(automaton.presentRecord("friendly crawler")).isEqualTo(3);
+        assertThat(automaton.presentRecord("spider crawler")).isEqualTo(2);
+        assertThat(automaton.presentRecord("a spider")).isEqualTo(ExcludeUserAgents.NO_RECORD);
+        assertThat(automaton.checkResult(automaton.presentRecord("a spider")).isPresent()).isFalse();
+        assertThat(automaton.presentRecord("browser")).isEqualTo(ExcludeUserAgents.NO_RECORD);
+    }
+
     private static ExcludeCheckResult present(ExcludeCheckResult result) {
         assertThat(result.isPresent()).isTrue();
         return result;
@@ -212,6 +324,12 @@ public class ExcludeUserAgentsTest {
                 null, null, primaryImpactFlag, IabFile.toBooleanStr(startOfString), null);
     }
 
+    private static ExcludeUserAgents records(String... lines) throws IOException {
+        return new ExcludeUserAgents(
+                TestResources.asInputStream(TestResources.dummyRecordPrefix(StringUtils.join(lines, StringUtils.LF)))
+        );
+    }
+
     private static ExcludeUserAgents record(String... values) throws IOException {
         return new ExcludeUserAgents(TestResources.firstDummyRecordAndRecord(values));
     }
@@ -12,9 +12,11 @@
  */
 package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
 
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.MatchingEngine;
 import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.DateUtils;
 import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.IabFile;
 import com.snowplowanalytics.iab.spidersandrobotsclient.test.TestResources;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
 
 import java.io.IOException;
@@ -90,6 +92,66 @@ public class IncludeUserAgentsTest {
         assertThat(agents.present("Commented browser")).isFalse();
     }
 
+    @Test
+    public void checkEnginesAgree() throws IOException {
+        String file = TestResources.dummyRecordPrefix(StringUtils.join(new String[]{
+                "mozilla|0|1|03/23/2017",
+                "mozilla|0|0|03/20/2017",
+                "opera|1|1",
+                "opera mini|0|0",
+                "lynx|0|0|03/21/2017"
+        }, StringUtils.LF));
+
+        IncludeUserAgents linear = new IncludeUserAgents(TestResources.asInputStream(file), MatchingEngine.LINEAR_SCAN);
+        IncludeUserAgents automaton = new IncludeUserAgents(TestResources.asInputStream(file), MatchingEngine.AUTOMATON);
+
+        String[] userAgents = {"mozilla/5.0", "x mozilla/5.0", "opera", "x opera mini", "lynx", "x lynx", "curl"};
+        for (int day = 18; day <= 25; day++) {
+            Date accurateAt = DateUtils.date(2017, 3, day);
+            for (String userAgent : userAgents) {
+                assertThat(automaton.present(userAgent, accurateAt))
+                        .isEqualTo(linear.present(userAgent, accurateAt));
+                assertThat(automaton.presentRecord(userAgent, accurateAt.getTime()))
+                        .isEqualTo(linear.presentRecord(userAgent, accurateAt.getTime()));
+            }
+        }
+
+        assertThat(automaton.present("mozilla/5.0", DateUtils.date(2017, 3, 22))).isTrue();
+        assertThat(automaton.present("x mozilla/5.0", DateUtils.date(2017, 3, 20))).isFalse();
+        assertThat(automaton.present("x mozilla/5.0", DateUtils.date(2017, 3, 19))).isTrue();
+        assertThat(automaton.present("x opera mini", DateUtils.date(2017, 3, 19))).isFalse();
+        assertThat(automaton.presentRecord("x mozilla/5.0", DateUtils.date(2017, 3, 19).getTime())).isEqualTo(1);
+        assertThat(automaton.presentRecord("curl", DateUtils.date(2017, 3, 19).getTime()))
+                .isEqualTo(IncludeUserAgents.NO_RECORD);
+    }
+
+    @Test
+    public void adaptiveOrderTriesFrequentRecordsFirst() throws IOException {
+        String file = TestResources.dummyRecordPrefix(StringUtils.join(new String[]{
+                "opera|1|0",
+                "lynx|0|0|03/21/2017",
+                "mozilla|1|0"
+        }, StringUtils.LF));
+        IncludeUserAgents agents = new IncludeUserAgents(TestResources.asInputStream(file),
+                MatchingEngine.LINEAR_SCAN, true);
+        assertThat(agents.getRecordOrder()).containsExactly(0, 1, 2);
+
+        Date accurateAt = DateUtils.date(2017, 3, 20);
+        for (int i = 0; i < 4 * AdaptiveRecordOrder.SAMPLE_EVERY * AdaptiveRecordOrder.SAMPLES_PER_PUBLISH; i++) {
+            assertThat(agents.present("mozilla/5.0", accurateAt)).isTrue();
+            if (i % 8 == 0) {
+                assertThat(agents.present("x lynx", accurateAt)).isTrue();
+            }
+        }
+
+        assertThat(agents.getRecordOrder()).containsExactly(2, 1, 0);
+        assertThat(agents.present("opera", accurateAt)).isTrue();
+        assertThat(agents.present("x lynx", DateUtils.date(2017, 3, 21))).isFalse();
+        assertThat(agents.presentRecord("opera mozilla", accurateAt.getTime())).isEqualTo(0);
+        assertThat(new IncludeUserAgents(TestResources.asInputStream(file), MatchingEngine.AUTOMATON, true)
+                .getRecordOrder()).isNull();
+    }
+
     private static IncludeUserAgents active(String userAgentPattern,
                                             boolean active, String inactiveDate) throws IOException {
         final boolean startOfString = false;
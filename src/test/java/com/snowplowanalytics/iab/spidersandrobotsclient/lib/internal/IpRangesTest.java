@@ -12,11 +12,16 @@
  */
 package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
 
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotReader;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.SnapshotWriter;
 import com.snowplowanalytics.iab.spidersandrobotsclient.test.TestResources;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.net.Inet6Address;
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -87,4 +92,145 @@ public class IpRangesTest {
     private static boolean belong(String ipRecord, String ipAddress) throws IOException {
        return new IpRanges(TestResources.asInputStream(ipRecord)).belong(InetAddress.getByName(ipAddress));
     }
+
+    @Test
+    public void belongToMergedRanges() throws IOException {
+        IpRanges ranges = new IpRanges(TestResources.asInputStream(
+                "10.0.0.0/8\n10.1.0.0/16\n11.0.0.0/8\n200.1.1.1\n200.1.1.2\n255.255.255.255\n128.0.0.0/31\nnot an address"
+        ));
+
+        assertThat(belong(ranges, "9.255.255.255")).isFalse();
+        assertThat(belong(ranges, "10.0.0.0")).isTrue();
+        assertThat(belong(ranges, "10.1.2.3")).isTrue();
+        assertThat(belong(ranges, "11.255.255.255")).isTrue();
+        assertThat(belong(ranges, "12.0.0.0")).isFalse();
+        assertThat(belong(ranges, "127.255.255.255")).isFalse();
+        assertThat(belong(ranges, "128.0.0.1")).isTrue();
+        assertThat(belong(ranges, "128.0.0.2")).isFalse();
+        assertThat(belong(ranges, "200.1.1.0")).isFalse();
+        assertThat(belong(ranges, "200.1.1.1")).isTrue();
+        assertThat(belong(ranges, "200.1.1.2")).isTrue();
+        assertThat(belong(ranges, "200.1.1.3")).isFalse();
+        assertThat(belong(ranges, "255.255.255.254")).isFalse();
+        assertThat(belong(ranges, "255.255.255.255")).isTrue();
+    }
+
+    @Test
+    public void belongToIpv6Prefixes() throws IOException {
+        IpRanges ranges = new IpRanges(TestResources.asInputStream(
+                "2001:db8::/32\n2001:db8:1::/48\n2001:db9:0:1::/64\n2001:db9:0:1:2::/80\n"
+                        + "2001:dba::1/128\n::ffff:10.0.0.0/104\n::ffff:192.0.2.1"
+        ));
+
+        assertThat(belong(ranges, "2001:db8::1")).isTrue();
+        assertThat(belong(ranges, "2001:db8:ffff:ffff:ffff:ffff:ffff:ffff")).isTrue();
+        assertThat(belong(ranges, "2001:db7:ffff:ffff:ffff:ffff:ffff:ffff")).isFalse();
+        assertThat(belong(ranges, "2001:db9:0:1:ffff::")).isTrue();
+        assertThat(belong(ranges, "2001:db9:0:2::")).isFalse();
+        assertThat(belong(ranges, "2001:dba::1")).isTrue();
+        assertThat(belong(ranges, "2001:dba::2")).isFalse();
+
+        assertThat(belong(ranges, "10.1.2.3")).isTrue();
+        assertThat(belong(ranges, "11.1.2.3")).isFalse();
+        assertThat(belong(ranges, "192.0.2.1")).isTrue();
+        assertThat(ranges.belong(ipv4Mapped(10, 1, 2, 3))).isTrue();
+        assertThat(ranges.belong(ipv4Mapped(11, 1, 2, 3))).isFalse();
+    }
+
+    @Test
+    public void belongInPlaceOfASnapshotBuffer() throws IOException {
+        IpRanges compiled = new IpRanges(TestResources.asInputStream(
+                "10.0.0.0/8\n200.1.1.1\n0.0.0.0\n2001:db8::/32\n2001:dba::1\n::\n::ffff:192.0.2.0/120"
+        ));
+        // the leading boolean makes the writer pad the arrays
+        SnapshotWriter out = new SnapshotWriter().writeBoolean(true);
+        compiled.writeTo(out);
+        byte[] bytes = out.toByteArray();
+        ByteBuffer payload = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        SnapshotReader in = new SnapshotReader(payload);
+        assertThat(in.readBoolean()).isTrue();
+        IpRanges ranges = IpRanges.readFrom(in);
+
+        assertThat(in.hasRemaining()).isFalse();
+        for (String address : Arrays.asList("10.1.2.3", "11.1.2.3", "200.1.1.1", "200.1.1.2", "0.0.0.0",
+                "192.0.2.7", "192.0.3.7", "2001:db8::1", "2001:db9::1", "2001:dba::1", "2001:dba::2", "::", "::1")) {
+            assertThat(belong(ranges, address)).isEqualTo(belong(compiled, address));
+        }
+        assertThat(belong(ranges, "10.1.2.3")).isTrue();
+        assertThat(belong(ranges, "2001:dba::1")).isTrue();
+    }
+
+    @Test
+    public void ipv4MappedAddressesAreCheckedAsIpv4() throws IOException {
+        IpRanges ranges = new IpRanges(TestResources.asInputStream("::/96\n10.0.0.0/8"));
+
+        assertThat(belong(ranges, "::1")).isTrue();
+        assertThat(ranges.belongIpv6(0, 0x0A010203L)).isTrue();
+        assertThat(ranges.belongIpv6(0, 0xFFFF0A010203L)).isTrue();
+        assertThat(ranges.belongIpv6(0, 0xFFFF0B010203L)).isFalse();
+        assertThat(belong(ranges, "11.1.2.3")).isFalse();
+    }
+
+    @Test
+    public void ipv6PrefixesHoldingTheIpv4MappedBlockHoldEveryIpv4Address() throws IOException {
+        for (String record : Arrays.asList("::ffff:0:0/95", "::fffe:0:0/95", "::/64", "::/1", "::/0")) {
+            IpRanges ranges = new IpRanges(TestResources.asInputStream(record));
+
+            assertThat(belong(ranges, "10.1.2.3")).isTrue();
+            assertThat(belong(ranges, "255.255.255.255")).isTrue();
+            assertThat(ranges.belong(ipv4Mapped(10, 1, 2, 3))).isTrue();
+            assertThat(ranges.belongIpv6(0, 0xFFFF00000000L)).isTrue();
+            assertThat(ranges.belongIpv6(0, 0xFFFE00000001L)).isTrue();
+        }
+
+        for (String record : Arrays.asList("::fffc:0:0/95", "::1:0:0:0/80", "8000::/1")) {
+            IpRanges ranges = new IpRanges(TestResources.asInputStream(record));
+
+            assertThat(belong(ranges, "10.1.2.3")).isFalse();
+            assertThat(ranges.belong(ipv4Mapped(10, 1, 2, 3))).isFalse();
+        }
+    }
+
+    @Test
+    public void rangesNotInCidrNotationMatchNothing() throws IOException {
+        IpRanges ranges = new IpRanges(TestResources.asInputStream(
+                "10.0.0.*\n10.1.0.0-255\n2001:db8::*\n2001:db8::1-ff\n10.2.0.0/16"
+        ));
+
+        assertThat(belong(ranges, "10.0.0.0")).isFalse();
+        assertThat(belong(ranges, "10.0.0.1")).isFalse();
+        assertThat(belong(ranges, "10.1.0.0")).isFalse();
+        assertThat(belong(ranges, "10.1.0.5")).isFalse();
+        assertThat(belong(ranges, "2001:db8::")).isFalse();
+        assertThat(belong(ranges, "2001:db8::1")).isFalse();
+        assertThat(belong(ranges, "2001:db8::5")).isFalse();
+        assertThat(belong(ranges, "10.2.3.4")).isTrue();
+        assertThat(ranges.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void belongToPlainAddressesInAnyNotation() throws IOException {
+        IpRanges ranges = new IpRanges(TestResources.asInputStream(
+                "1000:abcd:0:6119::0:0\n2001:0db8:0000:0000:0000:0000:0000:0001\n::\n0.0.0.0\n10.0.0.1/32"
+        ));
+
+        assertThat(belong(ranges, "1000:abcd:0:6119:0:0:0:0")).isTrue();
+        assertThat(belong(ranges, "1000:abcd:0:6119:0:0:0:1")).isFalse();
+        assertThat(belong(ranges, "2001:db8::1")).isTrue();
+        assertThat(belong(ranges, "::")).isTrue();
+        assertThat(belong(ranges, "::1")).isFalse();
+        assertThat(belong(ranges, "0.0.0.0")).isTrue();
+        assertThat(belong(ranges, "10.0.0.1")).isTrue();
+        assertThat(belong(ranges, "10.0.0.2")).isFalse();
+    }
+
+    private static InetAddress ipv4Mapped(int... ipv4) throws IOException {
+        byte[] address = new byte[16];
+        address[10] = (byte) 0xFF;
+        address[11] = (byte) 0xFF;
+        for (int i = 0; i < 4; i++) {
+            address[12 + i] = (byte) ipv4[i];
+        }
+        return Inet6Address.getByAddress(null, address, null);
+    }
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.MatchingEngine;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.IabFile;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.Latin1Text;
+import com.snowplowanalytics.iab.spidersandrobotsclient.test.FuzzLists;
+import com.snowplowanalytics.iab.spidersandrobotsclient.test.ReferenceIpRanges;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Checks the optimized matchers against the reference ones, {@link MatchingEngine#LINEAR_SCAN} for the
+ * user agent lists and {@link ReferenceIpRanges} for the IP list, on lists and inputs generated by
+ * {@link FuzzLists}. Run with -Piab.fuzz.seed and -Piab.fuzz.rounds to explore further; a failure reports
+ * the seed of its round.
+ */
+public class MatchingEnginesDifferentialTest {
+
+    private static final long SEED = Long.getLong("iab.fuzz.seed", 20170323L);
+
+    private static final int ROUNDS = Integer.getInteger("iab.fuzz.rounds", 40);
+
+    private static final int INPUTS_PER_ROUND = 300;
+
+    @Test
+    public void excludeUserAgentsAgree() throws IOException {
+        for (int round = 0; round < ROUNDS; round++) {
+            long seed = SEED + round;
+            FuzzLists fuzz = new FuzzLists(seed);
+            // every other list has no pattern too short for the prefilter, which would pass every user agent on
+            String list = fuzz.excludeList(1 + round, round % 2 == 0 ? 0 : NgramPrefilter.GRAM_LENGTH);
+            ExcludeUserAgents reference = new ExcludeUserAgents(FuzzLists.asLatin1Stream(list),
+                    MatchingEngine.LINEAR_SCAN);
+            ExcludeUserAgents automaton = new ExcludeUserAgents(FuzzLists.asLatin1Stream(list),
+                    MatchingEngine.AUTOMATON);
+            ExcludeUserAgents prefiltered = new ExcludeUserAgents(FuzzLists.asLatin1Stream(list),
+                    MatchingEngine.AUTOMATON, true);
+            ExcludeUserAgents vector = new ExcludeUserAgents(FuzzLists.asLatin1Stream(list),
+                    MatchingEngine.VECTOR);
+
+            for (int i = 0; i < INPUTS_PER_ROUND; i++) {
+                String userAgent = fuzz.userAgent();
+                int expected = reference.presentRecord(userAgent);
+                assertAgree(seed, userAgent, expected, automaton.presentRecord(userAgent));
+                assertAgree(seed, userAgent, expected, prefiltered.presentRecord(userAgent));
+                assertAgree(seed, userAgent, expected, vector.presentRecord(userAgent));
+                String lowerCase = IabFile.toLowerCase(userAgent);
+                assertAgree(seed, userAgent, reference.checkLowerCase(lowerCase).getPrimaryImpact(),
+                        automaton.checkLowerCase(lowerCase).getPrimaryImpact());
+                assertAgree(seed, userAgent, reference.checkLowerCase(lowerCase).getPrimaryImpact(),
+                        prefiltered.checkLowerCase(lowerCase).getPrimaryImpact());
+                assertAgree(seed, userAgent, reference.checkLowerCase(lowerCase).getPrimaryImpact(),
+                        vector.checkLowerCase(lowerCase).getPrimaryImpact());
+
+                Latin1Text latin1 = latin1(userAgent);
+                int expectedLatin1 = reference.presentRecord(latin1.toString());
+                assertAgree(seed, userAgent, expectedLatin1, reference.presentRecord(latin1));
+                assertAgree(seed, userAgent, expectedLatin1, automaton.presentRecord(latin1));
+                assertAgree(seed, userAgent, expectedLatin1, prefiltered.presentRecord(latin1));
+                assertAgree(seed, userAgent, expectedLatin1, vector.presentRecord(latin1));
+            }
+        }
+    }
+
+    @Test
+    public void includeUserAgentsAgree() throws IOException {
+        for (int round = 0; round < ROUNDS; round++) {
+            long seed = SEED + round;
+            FuzzLists fuzz = new FuzzLists(seed);
+            String list = fuzz.includeList(1 + round);
+            IncludeUserAgents reference = new IncludeUserAgents(FuzzLists.asLatin1Stream(list),
+                    MatchingEngine.LINEAR_SCAN);
+            IncludeUserAgents adaptive = new IncludeUserAgents(FuzzLists.asLatin1Stream(list),
+                    MatchingEngine.LINEAR_SCAN, true);
+            IncludeUserAgents automaton = new IncludeUserAgents(FuzzLists.asLatin1Stream(list),
+                    MatchingEngine.AUTOMATON);
+            IncludeUserAgents vector = new IncludeUserAgents(FuzzLists.asLatin1Stream(list),
+                    MatchingEngine.VECTOR);
+
+            for (int i = 0; i < INPUTS_PER_ROUND; i++) {
+                String userAgent = fuzz.userAgent();
+                long accurateAt = fuzz.accurateAt();
+                String input = userAgent + " at " + accurateAt;
+                assertAgree(seed, input, reference.presentRecord(userAgent, accurateAt),
+                        automaton.presentRecord(userAgent, accurateAt));
+                assertAgree(seed, input, reference.present(userAgent, accurateAt),
+                        automaton.present(userAgent, accurateAt));
+                assertAgree(seed, input, reference.presentRecord(userAgent, accurateAt),
+                        vector.presentRecord(userAgent, accurateAt));
+                assertAgree(seed, input, reference.present(userAgent, accurateAt),
+                        vector.present(userAgent, accurateAt));
+                assertAgree(seed, input, reference.present(userAgent, accurateAt),
+                        adaptive.present(userAgent, accurateAt));
+
+                Latin1Text latin1 = latin1(userAgent);
+                int expectedLatin1 = reference.presentRecord(latin1.toString(), accurateAt);
+                assertAgree(seed, input, expectedLatin1, automaton.presentRecord(latin1, accurateAt));
+                assertAgree(seed, input, expectedLatin1, vector.presentRecord(latin1, accurateAt));
+                assertAgree(seed, input, expectedLatin1 != IncludeUserAgents.NO_RECORD,
+                        automaton.present(latin1, accurateAt));
+            }
+        }
+    }
+
+    @Test
+    public void ipRangesAgree() throws IOException {
+        for (int round = 0; round < ROUNDS; round++) {
+            long seed = SEED + round;
+            FuzzLists fuzz = new FuzzLists(seed);
+            String list = fuzz.ipList(1 + round);
+            ReferenceIpRanges reference = new ReferenceIpRanges(list);
+            IpRanges ranges = new IpRanges(FuzzLists.asLatin1Stream(list));
+
+            for (int i = 0; i < INPUTS_PER_ROUND; i++) {
+                BigInteger address = fuzz.ipAddress();
+                InetAddress ipAddress = FuzzLists.toInetAddress(address);
+                assertAgree(seed, ipAddress, reference.belong(ipAddress), ranges.belong(ipAddress));
+                assertAgree(seed, address.toString(16), reference.belongIpv6(address),
+                        ranges.belongIpv6(FuzzLists.high(address), FuzzLists.low(address)));
+            }
+        }
+    }
+
+    /**
+     * @return the user agent encoded into ISO-8859-1, with a little of other data on both sides
+     */
+    private static Latin1Text latin1(String userAgent) {
+        byte[] bytes = ("<" + userAgent + ">").getBytes(StandardCharsets.ISO_8859_1);
+        return new Latin1Text(bytes, 1, bytes.length - 2);
+    }
+
+    private static void assertAgree(long seed, Object input, Object expected, Object actual) {
+        if (expected == null ? actual != null : !expected.equals(actual)) {
+            throw new AssertionError("Seed " + seed + ", input '" + input + "': expected " + expected
+                    + " as the reference, but was " + actual);
+        }
+    }
+
+}
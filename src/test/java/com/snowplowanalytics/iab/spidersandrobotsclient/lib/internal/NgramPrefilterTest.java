@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.PrefilterStats;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NgramPrefilterTest {
+
+    private static final String BROWSER_USER_AGENT =
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) "
+                    + "Chrome/120.0.0.0 Safari/537.36";
+
+    @Test
+    public void rejectsUserAgentsWithoutAnyPattern() {
+        NgramPrefilter prefilter = NgramPrefilter.build(Arrays.asList("googlebot", "mozilla/5.0 (compatible",
+                "x11; linux crawler", "\u00E9t\u00E9"));
+
+        assertThat(prefilter.mayMatch(BROWSER_USER_AGENT)).isFalse();
+        assertThat(prefilter.mayMatch("bo")).isFalse();
+        assertThat(prefilter.mayMatch("")).isFalse();
+        assertThat(prefilter.mayMatch("Mozilla/5.0 (compatible; GOOGLEBOT/2.1)")).isTrue();
+        assertThat(prefilter.mayMatch("Mozilla/5.0 (X11; Linux Crawler)")).isTrue();
+        assertThat(prefilter.mayMatch("\u00C9T\u00C9")).isTrue();
+        assertThat(prefilter.mayMatch(new StringBuilder("x (compatible"))).isTrue();
+
+        PrefilterStats stats = prefilter.stats();
+        assertThat(stats.getChecks()).isEqualTo(7L);
+        assertThat(stats.getPassed()).isEqualTo(4L);
+        assertThat(stats.getPassThroughRate()).isEqualTo(4.0 / 7);
+        assertThat(stats.getGrams()).isEqualTo(4);
+        assertThat(stats.getUnfilterablePatterns()).isZero();
+    }
+
+    @Test
+    public void passesUserAgentsWhichMayChangeLength() {
+        NgramPrefilter prefilter = NgramPrefilter.build(Arrays.asList("googlebot", "\u0444bot"));
+
+        assertThat(prefilter.mayMatch("\u0130 browser")).isTrue();
+        assertThat(prefilter.mayMatch("\u0444 browser")).isTrue();
+        assertThat(prefilter.mayMatch("bot browser")).isFalse();
+        assertThat(prefilter.stats().getGrams()).isEqualTo(1);
+    }
+
+    @Test
+    public void passesEveryUserAgentWithShortPatterns() {
+        NgramPrefilter prefilter = NgramPrefilter.build(Arrays.asList("googlebot", "ia"));
+
+        assertThat(prefilter.mayMatch(BROWSER_USER_AGENT)).isTrue();
+        assertThat(prefilter.stats().getUnfilterablePatterns()).isEqualTo(1);
+        assertThat(prefilter.stats().getPassThroughRate()).isEqualTo(1.0);
+    }
+
+}
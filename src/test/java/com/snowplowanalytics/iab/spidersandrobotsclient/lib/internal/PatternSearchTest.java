@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.IabFile;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against the Vector API when the tests are run with {@code --add-modules jdk.incubator.vector}, as the
+ * build does, and against the scalar search otherwise.
+ */
+public class PatternSearchTest {
+
+    private static final List<String> PATTERNS = Arrays.asList("googlebot", "bot", "", "ot/",
+            "\u00E9t\u00E9", "\u0444bot", "mozilla/5.0 (compatible; googlebot/2.1)");
+
+    @Test
+    public void usesTheVectorApiWhenAvailable() {
+        assertThat(PatternSearch.create(PATTERNS, false).isVectorized()).isEqualTo(PatternSearch.isVectorAvailable());
+        assertThat(new PatternSearch(PATTERNS, false).isVectorized()).isFalse();
+    }
+
+    @Test
+    public void findsPatternsAnywhere() {
+        for (PatternSearch search : searches(PATTERNS, false)) {
+            assertThat(found(search, "Mozilla/5.0 (compatible; GOOGLEBOT/2.1)")).containsExactly(0, 1, 2, 3, 6);
+            assertThat(found(search, "\u00C9T\u00C9 bot")).containsExactly(1, 2, 4);
+            assertThat(found(search, "\u0130 \u0424BOT/")).containsExactly(1, 2, 3, 5);
+            assertThat(found(search, "bo")).containsExactly(2);
+            assertThat(found(search, "")).containsExactly(2);
+        }
+    }
+
+    @Test
+    public void findsPatternsAtStart() {
+        for (PatternSearch search : searches(PATTERNS, true)) {
+            assertThat(found(search, "Mozilla/5.0 (compatible; GOOGLEBOT/2.1)")).containsExactly(2, 6);
+            assertThat(found(search, "GoogleBot")).containsExactly(0, 2);
+            assertThat(found(search, "\u0424BOT \u0130")).containsExactly(2, 5);
+            assertThat(found(search, "a bot")).containsExactly(2);
+        }
+    }
+
+    @Test
+    public void lowerCasesAsIabFile() {
+        PatternSearch search = PatternSearch.create(PATTERNS, false);
+        byte[] text = new byte[256 + search.padding()];
+        for (int i = 0; i < 256; i++) {
+            text[i] = (byte) i;
+        }
+
+        search.lowerCase(text, 256);
+        char[] lowerCase = new char[256];
+        char[] expected = new char[256];
+        for (int i = 0; i < 256; i++) {
+            lowerCase[i] = (char) (text[i] & 0xFF);
+            expected[i] = IabFile.toLowerCaseLatin1((char) i);
+        }
+        assertThat(new String(lowerCase)).isEqualTo(new String(expected));
+    }
+
+    @Test
+    public void agreesWithStringSearchAtAnyLength() {
+        Random random = new Random(20170323L);
+        for (int round = 0; round < 300; round++) {
+            char[] chars = new char[random.nextInt(300)];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = "abAB /\u00E9\u00C9".charAt(random.nextInt(8));
+            }
+            String text = new String(chars);
+            String lowerCase = IabFile.toLowerCase(text);
+
+            List<String> patterns = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int start = random.nextInt(lowerCase.length() + 1);
+                int end = Math.min(lowerCase.length(), start + random.nextInt(12));
+                // half of them from the text, the others likely absent
+                patterns.add(i % 2 == 0 ? lowerCase.substring(start, end) : "ab/\u00E9ba".substring(0, 1 + i % 5));
+            }
+
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < patterns.size(); i++) {
+                if (lowerCase.contains(patterns.get(i))) {
+                    expected.add(i);
+                }
+            }
+            for (PatternSearch search : searches(patterns, false)) {
+                assertThat(found(search, text)).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void agreesWithStringSearchWithManyPatterns() {
+        Random random = new Random(20170323L);
+        for (int round = 0; round < 40; round++) {
+            // enough patterns to fill the buckets, many sharing their first bytes
+            List<String> patterns = new ArrayList<>();
+            int patternCount = 1 + random.nextInt(400);
+            for (int i = 0; i < patternCount; i++) {
+                patterns.add(randomString(random, "abcd /\u00E9", random.nextInt(8)));
+            }
+
+            for (int text = 0; text < 20; text++) {
+                String userAgent = randomString(random, "abcdAB /\u00E9\u00C9", random.nextInt(200));
+                String lowerCase = IabFile.toLowerCase(userAgent);
+                List<Integer> expected = new ArrayList<>();
+                for (int i = 0; i < patterns.size(); i++) {
+                    if (lowerCase.contains(patterns.get(i))) {
+                        expected.add(i);
+                    }
+                }
+                for (PatternSearch search : searches(patterns, false)) {
+                    assertThat(found(search, userAgent)).isEqualTo(expected);
+                }
+            }
+        }
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(chars);
+    }
+
+    private static List<PatternSearch> searches(List<String> patterns, boolean anchored) {
+        return Arrays.asList(PatternSearch.create(patterns, anchored), new PatternSearch(patterns, anchored));
+    }
+
+    private static List<Integer> found(PatternSearch search, String text) {
+        PatternAutomaton.Matches matches = search.scan(text);
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < search.patternCount(); i++) {
+            if (matches.contains(i)) {
+                result.add(i);
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.VerdictCacheStats;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VerdictCacheTest {
+
+    @Test
+    public void getAndPut() {
+        VerdictCache<String> cache = new VerdictCache<>(1024 * 1024);
+
+        assertThat(cache.get("agent", 0)).isNull();
+        cache.put("agent", 0, "verdict");
+        assertThat(cache.get("agent", 0)).isEqualTo("verdict");
+        assertThat(cache.get("agent", 1)).isNull();
+
+        cache.put("agent", 1, "other verdict");
+        assertThat(cache.get("agent", 1)).isEqualTo("other verdict");
+        assertThat(cache.get("agent", 0)).isNull();
+
+        VerdictCacheStats stats = cache.stats();
+        assertThat(stats.getHits()).isEqualTo(2L);
+        assertThat(stats.getMisses()).isEqualTo(3L);
+        assertThat(stats.getEntries()).isEqualTo(1L);
+
+        cache.clear();
+        assertThat(cache.get("agent", 1)).isNull();
+        assertThat(cache.stats().getEntries()).isEqualTo(0L);
+    }
+
+    @Test
+    public void evictionKeepsFrequentEntries() {
+        VerdictCache<Integer> cache = new VerdictCache<>(16 * 1024);
+
+        cache.put("frequent", 0, -1);
+        assertThat(cache.get("frequent", 0)).isEqualTo(-1);
+
+        for (int i = 0; i < 10000; i++) {
+            cache.put("one-off " + i, 0, i);
+            assertThat(cache.get("frequent", 0)).isEqualTo(-1);
+        }
+
+        VerdictCacheStats stats = cache.stats();
+        assertThat(stats.getWeight()).isLessThanOrEqualTo(16 * 1024);
+        assertThat(stats.getEvictions()).isGreaterThan(0);
+        assertThat(stats.getEntries() + stats.getEvictions()).isEqualTo(10001L);
+    }
+
+}
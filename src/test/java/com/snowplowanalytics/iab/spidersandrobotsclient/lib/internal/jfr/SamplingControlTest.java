@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.jfr;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SamplingControlTest {
+
+    @Test
+    public void mostFrequentSamplingWins() {
+        SamplingControl control = new SamplingControl();
+        assertThat(control.combine(new HashSet<>(Arrays.asList("100", "10", "1000")))).isEqualTo("10");
+        assertThat(control.combine(Collections.<String>emptySet())).isEqualTo("1");
+    }
+
+    @Test
+    public void invalidValuesSampleEveryEvent() {
+        SamplingControl control = new SamplingControl();
+        control.setValue("often");
+        assertThat(control.getValue()).isEqualTo("1");
+        control.setValue("-5");
+        assertThat(control.getValue()).isEqualTo("1");
+        assertThat(control.sample()).isTrue();
+    }
+
+    @Test
+    public void sampleOneEventInN() {
+        SamplingControl control = new SamplingControl();
+        control.setValue("4");
+        int sampled = 0;
+        for (int i = 0; i < 40_000; i++) {
+            if (control.sample()) {
+                sampled++;
+            }
+        }
+        assertThat(sampled).isBetween(9_000, 11_000);
+    }
+
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.test;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.util.IabFile;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Small IAB lists and inputs built to make the corner cases of matching likely, generated from a seed so
+ * that a failing case can be replayed: patterns drawn from a few overlapping fragments, ISO-8859-1 and a
+ * few other chars in any case, exception patterns, start-of-string flags, inactive dates checked on and
+ * around their boundaries, and IP ranges checked on and around their bounds, IPv4-mapped IPv6 included.
+ */
+public final class FuzzLists {
+
+    private static final String[] FRAGMENTS = {"a", "ab", "abc", "bc", "b", "bot", "ro", "robot", "crawl",
+            "mozilla", "/5.0", " ", "x", "\u00E9", "\u00C9t\u00E9", "\u00DF", "\u00FF", "\u00B5", "\u00C4", "\u00E4",
+            "\u00D7", "k"};
+
+    private static final String[] OTHER_CHARS = {"\u212A", "\u0130", "\u00C5\u212B", "\u4E2D"};
+
+    private static final String[] INACTIVE_DATES = {"03/22/2017", "03/23/2017", "03/24/2017"};
+
+    private static final BigInteger IPV4_MAPPED = BigInteger.valueOf(0xFFFFL).shiftLeft(32);
+
+    private static final BigInteger IPV6_MAX = BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE);
+
+    private final SplittableRandom random;
+
+    private final List<BigInteger[]> ipBounds = new ArrayList<>();
+
+    public FuzzLists(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    public String excludeList(int records) {
+        return excludeList(records, 0);
+    }
+
+    /**
+     * @param minPatternLength the length below which a user agent pattern is drawn again
+     */
+    public String excludeList(int records, int minPatternLength) {
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < records; i++) {
+            int exceptions = random.nextInt(4) == 0 ? 1 + random.nextInt(2) : 0;
+            String[] exceptionPatterns = new String[exceptions];
+            for (int j = 0; j < exceptions; j++) {
+                exceptionPatterns[j] = pattern();
+            }
+            String pattern = pattern();
+            while (pattern.length() < minPatternLength) {
+                pattern = pattern();
+            }
+            list.append(pattern).append('|').append(flag(4)).append('|')
+                    .append(StringUtils.join(exceptionPatterns, ',')).append("|0|").append(random.nextInt(3))
+                    .append('|').append(flag(3)).append('|').append(inactiveDate()).append(StringUtils.LF);
+        }
+        return list.toString();
+    }
+
+    public String includeList(int records) {
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < records; i++) {
+            list.append(pattern()).append('|').append(flag(4)).append('|').append(flag(3)).append('|')
+                    .append(inactiveDate()).append(StringUtils.LF);
+        }
+        return list.toString();
+    }
+
+    public List<String> customList(int patterns) {
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < patterns; i++) {
+            list.add(pattern());
+        }
+        return list;
+    }
+
+    /**
+     * The ranges are remembered, so that {@link #ipAddress()} can draw addresses on and around their bounds.
+     */
+    public String ipList(int records) {
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < records; i++) {
+            list.append(ipRecord()).append(StringUtils.LF);
+        }
+        return list.toString();
+    }
+
+    public String userAgent() {
+        StringBuilder userAgent = new StringBuilder();
+        int fragments = random.nextInt(7);
+        for (int i = 0; i < fragments; i++) {
+            String fragment = random.nextInt(20) == 0 ?
+                    OTHER_CHARS[random.nextInt(OTHER_CHARS.length)] : FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+            userAgent.append(random.nextBoolean() ? fragment : fragment.toUpperCase(Locale.ROOT));
+        }
+        return userAgent.toString();
+    }
+
+    /**
+     * @return a time on, just before or just after an inactive date, or far from all of them
+     */
+    public long accurateAt() {
+        long date = IabFile.parseDateMillis(INACTIVE_DATES[random.nextInt(INACTIVE_DATES.length)]);
+        switch (random.nextInt(5)) {
+            case 0:
+                return date - 1;
+            case 1:
+                return date;
+            case 2:
+                return date + 1;
+            case 3:
+                return date - 365L * 24 * 3600 * 1000;
+            default:
+                return date + 365L * 24 * 3600 * 1000;
+        }
+    }
+
+    /**
+     * @return an address on or next to a bound of a range of {@link #ipList(int)}, or a random one; IPv4
+     * addresses are given as IPv4-mapped IPv6 addresses
+     */
+    public BigInteger ipAddress() {
+        if (ipBounds.isEmpty() || random.nextInt(4) == 0) {
+            return random.nextBoolean() ? IPV4_MAPPED.or(BigInteger.valueOf(random.nextLong() & 0xFFFFFFFFL)) :
+                    new BigInteger(128, new Random(random.nextLong()));
+        }
+        BigInteger[] bounds = ipBounds.get(random.nextInt(ipBounds.size()));
+        BigInteger bound = bounds[random.nextInt(2)];
+        BigInteger address = bound.add(BigInteger.valueOf(random.nextInt(3) - 1));
+        return address.signum() < 0 ? BigInteger.ZERO : address.min(IPV6_MAX);
+    }
+
+    public static boolean isIpv4Mapped(BigInteger address) {
+        return address.shiftRight(32).equals(BigInteger.valueOf(0xFFFFL));
+    }
+
+    public static long high(BigInteger address) {
+        return address.shiftRight(64).longValue();
+    }
+
+    public static long low(BigInteger address) {
+        return address.longValue();
+    }
+
+    /**
+     * @return the address as Java resolves it: IPv4-mapped addresses become {@link java.net.Inet4Address}
+     */
+    public static InetAddress toInetAddress(BigInteger address) {
+        byte[] bytes = new byte[16];
+        byte[] magnitude = address.toByteArray();
+        int length = Math.min(magnitude.length, 16);
+        System.arraycopy(magnitude, magnitude.length - length, bytes, 16 - length, length);
+        try {
+            return InetAddress.getByAddress(bytes);
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static InputStream asLatin1Stream(String list) {
+        return new ByteArrayInputStream(list.getBytes(IabFile.CHARSET));
+    }
+
+    private String ipRecord() {
+        int kind = random.nextInt(8);
+        if (kind < 4) {
+            int address = random.nextInt();
+            int prefix = kind == 0 ? 32 : random.nextInt(33);
+            remember(IPV4_MAPPED.or(BigInteger.valueOf(address & 0xFFFFFFFFL)), 96 + prefix);
+            String text = (address >>> 24) + "." + (address >>> 16 & 0xFF) + "." + (address >>> 8 & 0xFF) + "."
+                    + (address & 0xFF);
+            return kind == 0 ? text : text + "/" + prefix;
+        }
+        if (kind == 4) {
+            int address = random.nextInt();
+            int prefix = 96 + random.nextInt(33);
+            remember(IPV4_MAPPED.or(BigInteger.valueOf(address & 0xFFFFFFFFL)), prefix);
+            return "::ffff:" + (address >>> 24) + "." + (address >>> 16 & 0xFF) + "." + (address >>> 8 & 0xFF)
+                    + "." + (address & 0xFF) + "/" + prefix;
+        }
+        BigInteger address = new BigInteger(128, new Random(random.nextLong()));
+        if (random.nextBoolean()) {
+            address = address.shiftRight(64 + random.nextInt(64));
+        }
+        int[] edgePrefixes = {1, 32, 63, 64, 65, 95, 96, 127, 128};
+        int prefix = random.nextBoolean() ?
+                edgePrefixes[random.nextInt(edgePrefixes.length)] : 1 + random.nextInt(128);
+        remember(address, prefix);
+        String text = isIpv4Mapped(address) ?
+                "::ffff:" + toInetAddress(address).getHostAddress() : toInetAddress(address).getHostAddress();
+        return text + "/" + prefix;
+    }
+
+    private void remember(BigInteger address, int prefix) {
+        BigInteger hostMask = BigInteger.ONE.shiftLeft(128 - prefix).subtract(BigInteger.ONE);
+        BigInteger lower = address.andNot(hostMask);
+        ipBounds.add(new BigInteger[]{lower, lower.or(hostMask)});
+    }
+
+    private String pattern() {
+        StringBuilder pattern = new StringBuilder(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+        while (random.nextInt(3) == 0) {
+            pattern.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+        }
+        return random.nextInt(4) == 0 ? pattern.toString().toUpperCase(Locale.ROOT) : pattern.toString();
+    }
+
+    /**
+     * @return "0" once in falseOneIn, "1" otherwise
+     */
+    private String flag(int falseOneIn) {
+        return IabFile.toBooleanStr(random.nextInt(falseOneIn) != 0);
+    }
+
+    private String inactiveDate() {
+        return random.nextBoolean() ? "" : INACTIVE_DATES[random.nextInt(INACTIVE_DATES.length)];
+    }
+
+}
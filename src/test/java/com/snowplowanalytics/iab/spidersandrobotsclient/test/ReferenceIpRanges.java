@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.test;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.math.BigInteger;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The IP address list as a plain list of ranges tried one by one, to check the indexes of IpRanges against.
+ * <p>
+ * Every record is a range of 128 bit addresses, IPv4 records and addresses being IPv4-mapped, and an address
+ * belongs to the list when any range contains it. Records which aren't a single address or a range in CIDR
+ * notation are ignored.
+ */
+public final class ReferenceIpRanges {
+
+    private static final int IPV4_MAPPED_PREFIX_LENGTH = 96;
+
+    private static final BigInteger IPV4_MAPPED = BigInteger.valueOf(0xFFFFL).shiftLeft(32);
+
+    private final List<BigInteger[]> ranges = new ArrayList<>();
+
+    public ReferenceIpRanges(String ipList) {
+        for (String line : StringUtils.split(ipList, StringUtils.LF)) {
+            String record = StringUtils.trimToNull(line);
+            if (record != null) {
+                add(record);
+            }
+        }
+    }
+
+    private void add(String record) {
+        String address = StringUtils.substringBefore(record, "/");
+        boolean ipv6 = address.contains(":");
+        int prefixLength = record.contains("/") ?
+                Integer.parseInt(StringUtils.substringAfter(record, "/")) : ipv6 ? 128 : 32;
+        BigInteger value;
+        try {
+            value = toBigInteger(InetAddress.getByName(address));
+        } catch (UnknownHostException e) {
+            return;
+        }
+        if (!ipv6) {
+            prefixLength += IPV4_MAPPED_PREFIX_LENGTH;
+        }
+
+        BigInteger hostMask = BigInteger.ONE.shiftLeft(128 - prefixLength).subtract(BigInteger.ONE);
+        BigInteger lower = value.andNot(hostMask);
+        ranges.add(new BigInteger[]{lower, lower.or(hostMask)});
+    }
+
+    public boolean belong(InetAddress ipAddress) {
+        return belongIpv6(toBigInteger(ipAddress));
+    }
+
+    public boolean belongIpv6(BigInteger address) {
+        for (BigInteger[] range : ranges) {
+            if (address.compareTo(range[0]) >= 0 && address.compareTo(range[1]) <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the address as 128 bits, IPv4 addresses being IPv4-mapped
+     */
+    private static BigInteger toBigInteger(InetAddress ipAddress) {
+        BigInteger value = new BigInteger(1, ipAddress.getAddress());
+        return ipAddress instanceof Inet4Address ? IPV4_MAPPED.or(value) : value;
+    }
+
+}
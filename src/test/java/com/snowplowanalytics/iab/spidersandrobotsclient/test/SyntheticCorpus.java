@@ -0,0 +1,548 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.test;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * IAB lists of the size and shape of a real release, and traffic to check against them, generated from a
+ * seed so that every run sees the same corpus.
+ * <p>
+ * The exclude list mixes exception patterns, start-of-string records, inactive dates and all the impact
+ * flags; the IP list mixes IPv4 and IPv6 addresses and CIDR ranges. The traffic draws user agents and IP
+ * addresses from fixed pools with Zipf-distributed popularity, so that a few of them make most of the
+ * events, as in a real event stream.
+ */
+public final class SyntheticCorpus {
+
+    public static final String EXCLUDE_FILE_NAME = "exclude_current.txt";
+
+    public static final String INCLUDE_FILE_NAME = "include_current.txt";
+
+    public static final String IP_FILE_NAME = "ip_exclude_current_cidr.txt";
+
+    private static final String HEADER = "# Synthetic list, not for production use" + StringUtils.LF;
+
+    private static final String[] BROWSER_PATTERNS = {"Mozilla", "Opera", "Dalvik", "Lynx", "Links"};
+
+    private static final String[] SYLLABLES = {"ba", "ko", "ri", "xe", "lu", "ta", "mo", "ne", "zi", "qua",
+            "ve", "dro", "pi", "sen", "hal", "ty", "gor", "fin", "wu", "ca"};
+
+    private static final String[] ROBOT_SUFFIXES = {"bot", "crawler", "spider", "fetcher", "agent", "scanner",
+            "monitor", "preview", "archiver", "checker"};
+
+    private static final String[] PLATFORMS = {"Windows NT 10.0; Win64; x64", "Macintosh; Intel Mac OS X 10_15_7",
+            "X11; Linux x86_64", "Linux; Android 14; Pixel 8", "iPhone; CPU iPhone OS 17_4 like Mac OS X"};
+
+    private static final String[] ENGINES = {"AppleWebKit/537.36 (KHTML, like Gecko)", "Gecko/20100101"};
+
+    private static final String[] BROWSERS = {"Chrome", "Firefox", "Safari", "Edg", "OPR", "SamsungBrowser"};
+
+    private static final DateTimeFormatter INACTIVE_DATE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
+    private static final long FIRST_INACTIVE_DAY = LocalDate.of(2010, 1, 1).toEpochDay();
+
+    private static final long LAST_INACTIVE_DAY = LocalDate.of(2025, 12, 31).toEpochDay();
+
+    private final Builder settings;
+
+    private final List<String> robotPatterns = new ArrayList<>();
+
+    private final List<Boolean> robotStartOfString = new ArrayList<>();
+
+    private final List<String> exceptionPatterns = new ArrayList<>();
+
+    private final List<int[]> ipv4Ranges = new ArrayList<>();
+
+    private final List<long[]> ipv6Ranges = new ArrayList<>();
+
+    private final String excludeList;
+
+    private final String includeList;
+
+    private final String ipList;
+
+    private final String[] userAgents;
+
+    private final InetAddress[] ipAddresses;
+
+    private SyntheticCorpus(Builder settings) {
+        this.settings = settings;
+        SplittableRandom random = new SplittableRandom(settings.seed);
+        this.excludeList = generateExcludeList(random.split());
+        this.includeList = generateIncludeList(random.split());
+        this.ipList = generateIpList(random.split());
+        this.userAgents = generateUserAgents(random.split());
+        this.ipAddresses = generateIpAddresses(random.split());
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static SyntheticCorpus generate(long seed) {
+        return builder().seed(seed).build();
+    }
+
+    public String excludeList() {
+        return excludeList;
+    }
+
+    public String includeList() {
+        return includeList;
+    }
+
+    public String ipList() {
+        return ipList;
+    }
+
+    /**
+     * Writes the three lists to the directory, named as in an IAB release and encoded in ISO-8859-1.
+     */
+    public void writeTo(File directory) throws IOException {
+        Files.createDirectories(directory.toPath());
+        write(new File(directory, EXCLUDE_FILE_NAME), excludeList);
+        write(new File(directory, INCLUDE_FILE_NAME), includeList);
+        write(new File(directory, IP_FILE_NAME), ipList);
+    }
+
+    private static void write(File file, String list) throws IOException {
+        Files.write(file.toPath(), list.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * @return the distinct user agents of the traffic, the most frequent first
+     */
+    public String[] userAgents() {
+        return userAgents.clone();
+    }
+
+    /**
+     * @return the distinct IP addresses of the traffic, the most frequent first
+     */
+    public InetAddress[] ipAddresses() {
+        return ipAddresses.clone();
+    }
+
+    /**
+     * @param seed the seed of this stream; streams of different seeds draw from the same pools
+     */
+    public Traffic traffic(long seed) {
+        return new Traffic(seed);
+    }
+
+    private String generateExcludeList(SplittableRandom random) {
+        StringBuilder list = new StringBuilder(HEADER);
+        for (int i = 0; i < settings.excludeRecords; i++) {
+            String pattern = robotName(random);
+            boolean startOfString = random.nextDouble() < settings.startOfStringShare;
+            boolean active = random.nextDouble() >= settings.inactiveRecordShare;
+            List<String> exceptions = new ArrayList<>();
+            if (random.nextDouble() < settings.exceptionShare) {
+                int count = 1 + random.nextInt(3);
+                for (int j = 0; j < count; j++) {
+                    exceptions.add(exceptionPattern(pattern, random));
+                }
+            }
+            String inactiveDate = random.nextDouble() < settings.inactiveDateShare ? inactiveDate(random) : "";
+
+            list.append(pattern).append('|')
+                    .append(active ? 1 : 0).append('|')
+                    .append(StringUtils.join(exceptions, ", ")).append('|')
+                    .append(random.nextInt(2)).append('|')
+                    .append(random.nextInt(3)).append('|')
+                    .append(startOfString ? 1 : 0);
+            if (!inactiveDate.isEmpty()) {
+                list.append('|').append(inactiveDate);
+            }
+            list.append(StringUtils.LF);
+
+            if (active) {
+                robotPatterns.add(pattern);
+                robotStartOfString.add(startOfString);
+                exceptionPatterns.addAll(exceptions);
+            }
+        }
+        return list.toString();
+    }
+
+    private String generateIncludeList(SplittableRandom random) {
+        StringBuilder list = new StringBuilder(HEADER);
+        for (String pattern : BROWSER_PATTERNS) {
+            list.append(pattern).append("|1|1").append(StringUtils.LF);
+        }
+        for (int i = BROWSER_PATTERNS.length; i < settings.includeRecords; i++) {
+            list.append(capitalize(word(random, 2 + random.nextInt(2)))).append('/')
+                    .append('|').append(random.nextDouble() < 0.95 ? 1 : 0)
+                    .append('|').append(random.nextInt(2));
+            if (random.nextDouble() < settings.inactiveDateShare) {
+                list.append('|').append(inactiveDate(random));
+            }
+            list.append(StringUtils.LF);
+        }
+        return list.toString();
+    }
+
+    private String generateIpList(SplittableRandom random) {
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < settings.ipv4Ranges; i++) {
+            int prefix = ipv4PrefixLength(random);
+            int base = random.nextInt() & (prefix == 0 ? 0 : -1 << (32 - prefix));
+            ipv4Ranges.add(new int[]{base, prefix});
+            list.append(ipv4String(base));
+            if (prefix < 32) {
+                list.append('/').append(prefix);
+            }
+            list.append(StringUtils.LF);
+        }
+        for (int i = 0; i < settings.ipv6Ranges; i++) {
+            boolean single = random.nextDouble() < 0.3;
+            int prefix = single ? 128 : 32 + random.nextInt(33);
+            long high = (0x2000_0000_0000_0000L | (random.nextLong() >>> 3)) & (-1L << (64 - Math.min(prefix, 64)));
+            long low = single ? random.nextLong() : 0;
+            ipv6Ranges.add(new long[]{high, low, prefix});
+            list.append(ipv6String(high, low));
+            if (!single) {
+                list.append('/').append(prefix);
+            }
+            list.append(StringUtils.LF);
+        }
+        return list.toString();
+    }
+
+    private String[] generateUserAgents(SplittableRandom random) {
+        String[] result = new String[settings.distinctUserAgents];
+        for (int i = 0; i < result.length; i++) {
+            double kind = random.nextDouble();
+            if (kind < settings.robotShare && !robotPatterns.isEmpty()) {
+                result[i] = robotUserAgent(random);
+            } else if (kind < settings.robotShare + settings.unknownShare) {
+                result[i] = word(random, 2) + "-client/" + random.nextInt(10) + '.' + random.nextInt(30);
+            } else {
+                result[i] = browserUserAgent(random);
+            }
+        }
+        return result;
+    }
+
+    private InetAddress[] generateIpAddresses(SplittableRandom random) {
+        InetAddress[] result = new InetAddress[settings.distinctIpAddresses];
+        for (int i = 0; i < result.length; i++) {
+            boolean ipv6 = random.nextDouble() < settings.ipv6Share;
+            boolean listed = random.nextDouble() < settings.listedIpShare;
+            result[i] = ipv6 ? ipv6Address(random, listed) : ipv4Address(random, listed);
+        }
+        return result;
+    }
+
+    private String robotUserAgent(SplittableRandom random) {
+        int index = random.nextInt(robotPatterns.size());
+        if (!exceptionPatterns.isEmpty() && random.nextDouble() < 0.05) {
+            return "Mozilla/5.0 (compatible; "
+                    + exceptionPatterns.get(random.nextInt(exceptionPatterns.size())) + ')';
+        }
+        String pattern = robotPatterns.get(index);
+        if (robotStartOfString.get(index)) {
+            return pattern + '/' + random.nextInt(5) + ".0 (+http://www.example.com/" + word(random, 2) + ')';
+        }
+        return "Mozilla/5.0 (compatible; " + pattern + '/' + random.nextInt(5) + '.' + random.nextInt(10)
+                + "; +http://www.example.com/bot.html)";
+    }
+
+    private static String browserUserAgent(SplittableRandom random) {
+        String browser = BROWSERS[random.nextInt(BROWSERS.length)];
+        return "Mozilla/5.0 (" + PLATFORMS[random.nextInt(PLATFORMS.length)] + ") "
+                + ENGINES[random.nextInt(ENGINES.length)] + ' '
+                + browser + '/' + (90 + random.nextInt(40)) + ".0." + random.nextInt(7000) + '.'
+                + random.nextInt(200);
+    }
+
+    private InetAddress ipv4Address(SplittableRandom random, boolean listed) {
+        int address = random.nextInt();
+        if (listed && !ipv4Ranges.isEmpty()) {
+            int[] range = ipv4Ranges.get(random.nextInt(ipv4Ranges.size()));
+            int hostMask = range[1] == 32 ? 0 : -1 >>> range[1];
+            address = range[0] | (address & hostMask);
+        }
+        return toInetAddress(new byte[]{(byte) (address >>> 24), (byte) (address >>> 16),
+                (byte) (address >>> 8), (byte) address});
+    }
+
+    private InetAddress ipv6Address(SplittableRandom random, boolean listed) {
+        long high = 0x2000_0000_0000_0000L | (random.nextLong() >>> 3);
+        long low = random.nextLong();
+        if (listed && !ipv6Ranges.isEmpty()) {
+            long[] range = ipv6Ranges.get(random.nextInt(ipv6Ranges.size()));
+            int prefix = (int) range[2];
+            if (prefix == 128) {
+                high = range[0];
+                low = range[1];
+            } else {
+                high = range[0] | (prefix == 64 ? 0 : high & (-1L >>> prefix));
+            }
+        }
+        return toInetAddress(ipv6Bytes(high, low));
+    }
+
+    private static int ipv4PrefixLength(SplittableRandom random) {
+        double kind = random.nextDouble();
+        if (kind < 0.4) {
+            return 32;
+        }
+        if (kind < 0.7) {
+            return 24;
+        }
+        return 16 + random.nextInt(16);
+    }
+
+    private static String robotName(SplittableRandom random) {
+        String name = capitalize(word(random, 1 + random.nextInt(3)))
+                + ROBOT_SUFFIXES[random.nextInt(ROBOT_SUFFIXES.length)];
+        return random.nextDouble() < 0.2 ? name + ' ' + word(random, 2) : name;
+    }
+
+    private static String exceptionPattern(String pattern, SplittableRandom random) {
+        return random.nextBoolean() ? capitalize(word(random, 2)) + ' ' + pattern
+                : pattern + '+' + word(random, 2);
+    }
+
+    private static String inactiveDate(SplittableRandom random) {
+        long day = FIRST_INACTIVE_DAY + random.nextLong(LAST_INACTIVE_DAY - FIRST_INACTIVE_DAY + 1);
+        return LocalDate.ofEpochDay(day).format(INACTIVE_DATE_FORMAT);
+    }
+
+    private static String word(SplittableRandom random, int syllables) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < syllables; i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return word.toString();
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    private static String ipv4String(int address) {
+        return (address >>> 24) + "." + ((address >>> 16) & 0xff) + "." + ((address >>> 8) & 0xff) + "."
+                + (address & 0xff);
+    }
+
+    private static String ipv6String(long high, long low) {
+        return toInetAddress(ipv6Bytes(high, low)).getHostAddress();
+    }
+
+    private static byte[] ipv6Bytes(long high, long low) {
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (high >>> (56 - 8 * i));
+            bytes[8 + i] = (byte) (low >>> (56 - 8 * i));
+        }
+        return bytes;
+    }
+
+    private static InetAddress toInetAddress(byte[] address) {
+        try {
+            return InetAddress.getByAddress(address);
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * An endless stream of events: user agents and IP addresses drawn independently, each with a Zipf
+     * distribution over its pool.
+     */
+    public final class Traffic {
+
+        private final SplittableRandom random;
+
+        private final ZipfDistribution userAgentRanks;
+
+        private final ZipfDistribution ipAddressRanks;
+
+        private Traffic(long seed) {
+            this.random = new SplittableRandom(seed);
+            this.userAgentRanks = new ZipfDistribution(userAgents.length, settings.zipfExponent);
+            this.ipAddressRanks = new ZipfDistribution(ipAddresses.length, settings.zipfExponent);
+        }
+
+        public String nextUserAgent() {
+            return userAgents[userAgentRanks.sample(random)];
+        }
+
+        public InetAddress nextIpAddress() {
+            return ipAddresses[ipAddressRanks.sample(random)];
+        }
+
+        /**
+         * Fills both arrays with the next events, the user agent and IP address of an event at the same index.
+         */
+        public void fill(String[] userAgents, InetAddress[] ipAddresses) {
+            for (int i = 0; i < userAgents.length; i++) {
+                userAgents[i] = nextUserAgent();
+                ipAddresses[i] = nextIpAddress();
+            }
+        }
+
+    }
+
+    private static final class ZipfDistribution {
+
+        private final double[] cumulative;
+
+        private ZipfDistribution(int size, double exponent) {
+            cumulative = new double[size];
+            double sum = 0;
+            for (int rank = 0; rank < size; rank++) {
+                sum += 1 / Math.pow(rank + 1, exponent);
+                cumulative[rank] = sum;
+            }
+            for (int rank = 0; rank < size; rank++) {
+                cumulative[rank] /= sum;
+            }
+        }
+
+        private int sample(SplittableRandom random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(index < 0 ? -index - 1 : index, cumulative.length - 1);
+        }
+
+    }
+
+    /**
+     * The defaults give lists about the size of a current IAB release.
+     */
+    public static final class Builder {
+
+        private long seed = 1;
+
+        private int excludeRecords = 4000;
+
+        private int includeRecords = 300;
+
+        private int ipv4Ranges = 8000;
+
+        private int ipv6Ranges = 2000;
+
+        private double exceptionShare = 0.1;
+
+        private double startOfStringShare = 0.15;
+
+        private double inactiveRecordShare = 0.03;
+
+        private double inactiveDateShare = 0.05;
+
+        private int distinctUserAgents = 20000;
+
+        private int distinctIpAddresses = 50000;
+
+        private double robotShare = 0.1;
+
+        private double unknownShare = 0.03;
+
+        private double ipv6Share = 0.2;
+
+        private double listedIpShare = 0.05;
+
+        private double zipfExponent = 1.0;
+
+        private Builder() {
+
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder excludeRecords(int excludeRecords) {
+            this.excludeRecords = excludeRecords;
+            return this;
+        }
+
+        public Builder includeRecords(int includeRecords) {
+            this.includeRecords = includeRecords;
+            return this;
+        }
+
+        public Builder ipRanges(int ipv4Ranges, int ipv6Ranges) {
+            this.ipv4Ranges = ipv4Ranges;
+            this.ipv6Ranges = ipv6Ranges;
+            return this;
+        }
+
+        /**
+         * @param exceptionShare     share of exclude records with exception patterns
+         * @param startOfStringShare share of exclude records matched at the start of the user agent only
+         * @param inactiveDateShare  share of records with an inactive date
+         */
+        public Builder recordShape(double exceptionShare, double startOfStringShare, double inactiveDateShare) {
+            this.exceptionShare = exceptionShare;
+            this.startOfStringShare = startOfStringShare;
+            this.inactiveDateShare = inactiveDateShare;
+            return this;
+        }
+
+        public Builder distinctUserAgents(int distinctUserAgents) {
+            this.distinctUserAgents = distinctUserAgents;
+            return this;
+        }
+
+        public Builder distinctIpAddresses(int distinctIpAddresses) {
+            this.distinctIpAddresses = distinctIpAddresses;
+            return this;
+        }
+
+        /**
+         * @param robotShare    share of the user agents of robots on the exclude list
+         * @param unknownShare  share of the user agents on neither list
+         * @param ipv6Share     share of the IP addresses which are IPv6
+         * @param listedIpShare share of the IP addresses within the IP list
+         */
+        public Builder trafficShape(double robotShare, double unknownShare, double ipv6Share, double listedIpShare) {
+            this.robotShare = robotShare;
+            this.unknownShare = unknownShare;
+            this.ipv6Share = ipv6Share;
+            this.listedIpShare = listedIpShare;
+            return this;
+        }
+
+        /**
+         * @param zipfExponent how skewed the popularity of user agents and IP addresses is; 0 is uniform
+         */
+        public Builder zipfExponent(double zipfExponent) {
+            this.zipfExponent = zipfExponent;
+            return this;
+        }
+
+        public SyntheticCorpus build() {
+            return new SyntheticCorpus(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.test;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.IabClient;
+import com.snowplowanalytics.iab.spidersandrobotsclient.IabResponse;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.CheckReason;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SyntheticCorpusTest {
+
+    @Test
+    public void sameSeedGivesSameCorpus() {
+        SyntheticCorpus corpus = SyntheticCorpus.generate(7);
+        SyntheticCorpus same = SyntheticCorpus.generate(7);
+        SyntheticCorpus other = SyntheticCorpus.generate(8);
+
+        assertThat(same.excludeList()).isEqualTo(corpus.excludeList());
+        assertThat(same.includeList()).isEqualTo(corpus.includeList());
+        assertThat(same.ipList()).isEqualTo(corpus.ipList());
+        assertThat(other.excludeList()).isNotEqualTo(corpus.excludeList());
+
+        SyntheticCorpus.Traffic traffic = corpus.traffic(3);
+        SyntheticCorpus.Traffic sameTraffic = same.traffic(3);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(sameTraffic.nextUserAgent()).isEqualTo(traffic.nextUserAgent());
+            assertThat(sameTraffic.nextIpAddress()).isEqualTo(traffic.nextIpAddress());
+        }
+    }
+
+    @Test
+    public void listsHaveTheSizeOfARelease() {
+        SyntheticCorpus corpus = SyntheticCorpus.generate(1);
+
+        assertThat(corpus.excludeList().split("\n")).hasSize(4001);
+        assertThat(corpus.includeList().split("\n")).hasSize(301);
+        assertThat(corpus.ipList().split("\n")).hasSize(10000);
+        assertThat(corpus.ipList()).contains(":").contains("/");
+    }
+
+    @Test
+    public void trafficHitsEveryCheck() throws IOException {
+        SyntheticCorpus corpus = SyntheticCorpus.generate(1);
+        File directory = Files.createTempDirectory("iab-synthetic").toFile();
+        directory.deleteOnExit();
+        corpus.writeTo(directory);
+        IabClient client = new IabClient(
+                new File(directory, SyntheticCorpus.IP_FILE_NAME),
+                new File(directory, SyntheticCorpus.EXCLUDE_FILE_NAME),
+                new File(directory, SyntheticCorpus.INCLUDE_FILE_NAME)
+        );
+
+        Map<CheckReason, Integer> reasons = new EnumMap<>(CheckReason.class);
+        SyntheticCorpus.Traffic traffic = corpus.traffic(1);
+        for (int i = 0; i < 20000; i++) {
+            IabResponse response = client.check(traffic.nextUserAgent(), traffic.nextIpAddress());
+            reasons.merge(response.getReason(), 1, Integer::sum);
+        }
+
+        assertThat(reasons.keySet()).containsExactly((Object[]) CheckReason.values());
+        assertThat(reasons.get(CheckReason.PASSED_ALL)).isGreaterThan(10000);
+    }
+
+    @Test
+    public void trafficIsSkewed() {
+        SyntheticCorpus corpus = SyntheticCorpus.generate(1);
+        String[] userAgents = corpus.userAgents();
+        InetAddress[] ipAddresses = corpus.ipAddresses();
+        Map<String, Integer> counts = new HashMap<>();
+        SyntheticCorpus.Traffic traffic = corpus.traffic(1);
+        for (int i = 0; i < 100000; i++) {
+            counts.merge(traffic.nextUserAgent(), 1, Integer::sum);
+        }
+
+        assertThat(counts.get(userAgents[0])).isGreaterThan(10 * counts.getOrDefault(userAgents[100], 1));
+        assertThat(counts.size()).isLessThan(userAgents.length);
+        assertThat(ipAddresses).hasSize(50000);
+    }
+
+}
@@ -13,10 +13,12 @@
 package com.snowplowanalytics.iab.spidersandrobotsclient.test;
 
 
+import com.snowplowanalytics.iab.spidersandrobotsclient.UserAgentColumns;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -92,4 +94,32 @@ public final class TestResources {
         return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
     }
 
+    /**
+     * Packs the user agents as ISO-8859-1 bytes; a char beyond it becomes '?', as the decoded
+     * {@link #latin1(CharSequence)} tells.
+     */
+    public static UserAgentColumns latin1Columns(CharSequence[] userAgents) {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        int[] offsets = new int[userAgents.length + 1];
+        boolean[] missing = new boolean[userAgents.length];
+        for (int i = 0; i < userAgents.length; i++) {
+            if (userAgents[i] == null) {
+                missing[i] = true;
+            } else {
+                byte[] bytes = userAgents[i].toString().getBytes(StandardCharsets.ISO_8859_1);
+                data.write(bytes, 0, bytes.length);
+            }
+            offsets[i + 1] = data.size();
+        }
+        return UserAgentColumns.of(data.toByteArray(), offsets, missing);
+    }
+
+    /**
+     * @return the user agent as it reads once encoded into ISO-8859-1, or null
+     */
+    public static String latin1(CharSequence userAgent) {
+        return userAgent == null ? null :
+                new String(userAgent.toString().getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.ISO_8859_1);
+    }
+
 }
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2017-2026 Snowplow Analytics Ltd. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0,
+ * and you may not use this file except in compliance with the Apache License Version 2.0.
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the Apache License Version 2.0 is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+package com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.vector;
+
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.PatternAutomaton;
+import com.snowplowanalytics.iab.spidersandrobotsclient.lib.internal.PatternSearch;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link PatternSearch} which lower cases the text and finds the candidate positions of all the patterns at
+ * once, a whole vector of positions at a time.
+ * <p>
+ * The patterns are sorted and split into 8 buckets, a bit of a byte each. For each of its first
+ * {@value #FINGERPRINT_LENGTH} bytes, a pattern sets the bit of its bucket in two tables of 16 entries, one
+ * indexed by the low nibble of the byte and the other by its high nibble; past its end, in all of the entries.
+ * Looking the nibbles of a vector of text bytes up in such a table is a single shuffle, and a position is a
+ * candidate when the tables of all these bytes from it have a bit in common. Only the patterns beginning with
+ * the two bytes at a candidate, found in a hash table of the first two bytes of the patterns, are then
+ * compared with the text. Patterns shorter than two bytes are looked for one after the other.
+ * <p>
+ * The more patterns a bucket holds, the more entries of its tables are set and the more positions are
+ * candidates, so the cost grows with the number of patterns, up to that of comparing every pattern at every
+ * position; sorting the patterns keeps those of common beginnings in the same bucket. Where this beats the
+ * automaton of {@code AUTOMATON}, by the number of patterns and the length of the text, is what
+ * {@code PatternSearchBenchmark} measures on a given machine.
+ * <p>
+ * This is the only class using the incubating {@code jdk.incubator.vector} module, and the only one compiled
+ * with it, in a source set of its own; it is loaded by {@link PatternSearch#create(List, boolean)} only when
+ * the module is available.
+ */
+public final class VectorPatternSearch extends PatternSearch {
+
+    private static final int NIBBLES = 16;
+
+    /**
+     * The preferred species, but of 16 lanes at least, so that a nibble indexes a lane of a table, and 64 at
+     * most, so that a mask fits the long of {@link VectorMask#toLong()}: wider vectors, as with SVE up to 2048
+     * bits, are used 512 bits at a time.
+     */
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED.length() > Long.SIZE ?
+            ByteVector.SPECIES_512 : ByteVector.SPECIES_PREFERRED.length() < NIBBLES ?
+            ByteVector.SPECIES_128 : ByteVector.SPECIES_PREFERRED;
+
+    private static final int BUCKETS = Byte.SIZE;
+
+    private static final int FINGERPRINT_LENGTH = 3;
+
+    private static final int PAIR_HASH_BITS = 12;
+
+    private static final byte LOW_NIBBLE = 0x0F;
+
+    private static final byte LATIN_1_UPPER_CASE_FIRST = (byte) 0xC0;
+
+    private static final byte LATIN_1_UPPER_CASE_LAST = (byte) 0xDE;
+
+    private static final byte MULTIPLICATION_SIGN = (byte) 0xD7;
+
+    private static final byte CASE_OFFSET = 'a' - 'A';
+
+    private final byte[][] latin1Patterns;
+
+    private final int[] shortPatterns;
+
+    /**
+     * The nibble tables of the fingerprint bytes, padded to a vector
+     */
+    private final byte[][] lowNibbleBuckets = new byte[FINGERPRINT_LENGTH][SPECIES.length()];
+
+    private final byte[][] highNibbleBuckets = new byte[FINGERPRINT_LENGTH][SPECIES.length()];
+
+    /**
+     * The patterns of two bytes or more by the hash of their first two, in {@code pairPatterns} from
+     * {@code pairOffsets[hash]} to {@code pairOffsets[hash + 1]}
+     */
+    private final int[] pairOffsets = new int[(1 << PAIR_HASH_BITS) + 1];
+
+    private final int[] pairPatterns;
+
+    public VectorPatternSearch(List<String> patterns, boolean anchored) {
+        super(patterns, anchored);
+        latin1Patterns = new byte[patterns.size()][];
+        List<Integer> shortIds = new ArrayList<>();
+        List<Integer> longIds = new ArrayList<>();
+        for (int i = 0; i < latin1Patterns.length; i++) {
+            // a pattern beyond ISO-8859-1 can't be present in a text within it
+            latin1Patterns[i] = toLatin1(patterns.get(i));
+            if (latin1Patterns[i] != null) {
+                (latin1Patterns[i].length < 2 ? shortIds : longIds).add(i);
+            }
+        }
+        shortPatterns = shortIds.stream().mapToInt(Integer::intValue).toArray();
+
+        longIds.sort((a, b) -> Arrays.compareUnsigned(latin1Patterns[a], latin1Patterns[b]));
+        for (int i = 0; i < longIds.size(); i++) {
+            byte[] pattern = latin1Patterns[longIds.get(i)];
+            byte bucket = (byte) (1 << (int) ((long) i * BUCKETS / longIds.size()));
+            for (int k = 0; k < FINGERPRINT_LENGTH; k++) {
+                for (int nibble = 0; nibble < NIBBLES; nibble++) {
+                    if (k >= pattern.length || (pattern[k] & LOW_NIBBLE) == nibble) {
+                        lowNibbleBuckets[k][nibble] |= bucket;
+                    }
+                    if (k >= pattern.length || (pattern[k] >>> 4 & LOW_NIBBLE) == nibble) {
+                        highNibbleBuckets[k][nibble] |= bucket;
+                    }
+                }
+            }
+        }
+
+        pairPatterns = new int[longIds.size()];
+        for (int id : longIds) {
+            pairOffsets[pairHash(latin1Patterns[id][0], latin1Patterns[id][1]) + 1]++;
+        }
+        for (int i = 1; i < pairOffsets.length; i++) {
+            pairOffsets[i] += pairOffsets[i - 1];
+        }
+        int[] next = Arrays.copyOf(pairOffsets, pairOffsets.length - 1);
+        for (int id : longIds) {
+            pairPatterns[next[pairHash(latin1Patterns[id][0], latin1Patterns[id][1])]++] = id;
+        }
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return true;
+    }
+
+    /**
+     * A vector past the last position read, plus the fingerprint bytes following it
+     */
+    @Override
+    protected int padding() {
+        return SPECIES.length() + FINGERPRINT_LENGTH;
+    }
+
+    /**
+     * Adds the case offset to A-Z and to the ISO-8859-1 upper case letters, 0xC0 to 0xDE but 0xD7, which as
+     * signed bytes form a single range.
+     */
+    @Override
+    protected void lowerCase(byte[] text, int length) {
+        for (int i = 0; i < length; i += SPECIES.length()) {
+            ByteVector chars = ByteVector.fromArray(SPECIES, text, i);
+            VectorMask<Byte> upperCase = chars.compare(VectorOperators.GE, 'A')
+                    .and(chars.compare(VectorOperators.LE, 'Z'))
+                    .or(chars.compare(VectorOperators.GE, LATIN_1_UPPER_CASE_FIRST)
+                            .and(chars.compare(VectorOperators.LE, LATIN_1_UPPER_CASE_LAST))
+                            .and(chars.compare(VectorOperators.NE, MULTIPLICATION_SIGN)));
+            chars.add(CASE_OFFSET, upperCase).intoArray(text, i);
+        }
+    }
+
+    @Override
+    protected void findAll(byte[] text, int length, PatternAutomaton.Matches result) {
+        for (int id : shortPatterns) {
+            if (contains(text, length, latin1Patterns[id])) {
+                addFound(result, id);
+            }
+        }
+        // a pattern of two bytes or more starts before the last byte
+        int positions = length - 1;
+        if (pairPatterns.length == 0 || positions <= 0) {
+            return;
+        }
+
+        ByteVector low0 = ByteVector.fromArray(SPECIES, lowNibbleBuckets[0], 0);
+        ByteVector high0 = ByteVector.fromArray(SPECIES, highNibbleBuckets[0], 0);
+        ByteVector low1 = ByteVector.fromArray(SPECIES, lowNibbleBuckets[1], 0);
+        ByteVector high1 = ByteVector.fromArray(SPECIES, highNibbleBuckets[1], 0);
+        ByteVector low2 = ByteVector.fromArray(SPECIES, lowNibbleBuckets[2], 0);
+        ByteVector high2 = ByteVector.fromArray(SPECIES, highNibbleBuckets[2], 0);
+        for (int i = 0; i < positions; i += SPECIES.length()) {
+            ByteVector buckets = buckets(text, i, low0, high0)
+                    .and(buckets(text, i + 1, low1, high1))
+                    .and(buckets(text, i + 2, low2, high2));
+            long candidates = buckets.compare(VectorOperators.NE, 0).toLong();
+            if (positions - i < SPECIES.length()) {
+                // the padding past the text
+                candidates &= (1L << (positions - i)) - 1;
+            }
+            while (candidates != 0) {
+                compareAt(text, length, i + Long.numberOfTrailingZeros(candidates), result);
+                candidates &= candidates - 1;
+            }
+        }
+    }
+
+    /**
+     * @return the buckets of the patterns whose byte of the fingerprint may be the text byte, for a vector of
+     * text bytes
+     */
+    private static ByteVector buckets(byte[] text, int offset, ByteVector lowNibbleTable, ByteVector highNibbleTable) {
+        ByteVector bytes = ByteVector.fromArray(SPECIES, text, offset);
+        return bytes.and(LOW_NIBBLE).selectFrom(lowNibbleTable)
+                .and(bytes.lanewise(VectorOperators.LSHR, 4).selectFrom(highNibbleTable));
+    }
+
+    private void compareAt(byte[] text, int length, int position, PatternAutomaton.Matches result) {
+        int hash = pairHash(text[position], text[position + 1]);
+        for (int i = pairOffsets[hash]; i < pairOffsets[hash + 1]; i++) {
+            int id = pairPatterns[i];
+            byte[] pattern = latin1Patterns[id];
+            if (position + pattern.length <= length && !result.contains(id)
+                    && Arrays.equals(text, position, position + pattern.length, pattern, 0, pattern.length)) {
+                addFound(result, id);
+            }
+        }
+    }
+
+    private static int pairHash(byte first, byte second) {
+        return ((first & 0xFF) << Byte.SIZE | second & 0xFF) * 0x9E3779B1 >>> (Integer.SIZE - PAIR_HASH_BITS);
+    }
+
+}